@@ -0,0 +1,63 @@
+package nl.rutilo.yamler.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Runs the JMH benchmarks (same command line as the JMH Main) with the GC profiler and then
+  * reports the results of benchmarks that process text (see YamlBenchmark) as MB/s and as
+  * allocated bytes per processed byte.
+  */
+public final class BenchmarkMain {
+    private BenchmarkMain() {}
+
+    public static void main(String... args) throws RunnerException, CommandLineOptionException, java.io.IOException {
+        if(List.of(args).stream().anyMatch(arg -> arg.equals("-h") || arg.equals("-l") || arg.equals("-lp") || arg.equals("-lprof"))) {
+            Main.main(args);
+            return;
+        }
+        final CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        final Collection<RunResult> results = new Runner(new OptionsBuilder()
+            .parent(cmdOptions)
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+        report(results);
+    }
+
+    private static void report(Collection<RunResult> results) {
+        final StringBuilder sb = new StringBuilder();
+        for(final RunResult result : results) {
+            final String benchmark = result.getParams().getBenchmark();
+            if(!benchmark.startsWith(YamlBenchmark.class.getName() + ".")) continue;
+            final String method = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+            final String input = result.getParams().getParam("input");
+            final long bytes = YamlBenchmark.bytesPerOperation(method, input);
+            final Result<?> primary = result.getPrimaryResult();
+            final double opsPerSecond = primary.getScore() * TimeUnit.SECONDS.toNanos(1) / result.getParams().getTimeUnit().toNanos(1);
+            final double allocatedPerOp = allocatedPerOperation(result.getSecondaryResults());
+            sb.append(String.format("%-10s %-14s %10.1f MB/s %10.2f B/byte%n",
+                method, input, opsPerSecond * bytes / 1_000_000d, allocatedPerOp / bytes));
+        }
+        if(sb.length() > 0) System.out.print("\nBenchmark  Input          Throughput       Allocation\n" + sb);
+    }
+
+    /** The normalized allocation rate of the GC profiler (named with a '·' prefix in older JMH versions) */
+    private static double allocatedPerOperation(Map<String, Result> secondary) {
+        return secondary.entrySet().stream()
+            .filter(e -> e.getKey().endsWith("gc.alloc.rate.norm"))
+            .mapToDouble(e -> e.getValue().getScore())
+            .findFirst()
+            .orElse(Double.NaN);
+    }
+}
@@ -0,0 +1,131 @@
+package nl.rutilo.yamler.benchmarks;
+
+import nl.rutilo.yamler.yamler.Yamler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/** Benchmark inputs: the test corpus of yamler and generated documents of various shapes.
+  * Each input is a list of yaml texts that are all processed in a single benchmark operation.
+  * Generated inputs are deterministic, so results of different runs can be compared.
+  */
+public final class Inputs {
+    private Inputs() {}
+
+    public static List<String> texts(String name) {
+        return switch(name) {
+            case "fragments"     -> fragments();
+            case "invoice"       -> List.of(resource("test-invoice.yaml").replaceAll("/\\*.*?\\*/", "")); // without the unsupported /*remarks*/
+            case "log"           -> List.of(resource("test-log.yaml"));
+            case "deep"          -> List.of(deep(200, 24));
+            case "wide"          -> List.of(wide(20_000));
+            case "blockScalars"  -> List.of(blockScalars(500, 40));
+            case "numbers"       -> List.of(numbers(200, 100));
+            case "manyDocuments" -> List.of(manyDocuments(5_000));
+            default -> throw new IllegalArgumentException("Unknown input: " + name);
+        };
+    }
+
+    /** Number of UTF-8 bytes in given texts */
+    public static long bytesOf(List<String> texts) {
+        return texts.stream().mapToLong(text -> text.getBytes(UTF_8).length).sum();
+    }
+
+    /** The yaml of the test fragments that parse without error using the default configuration */
+    static List<String> fragments() {
+        final String corpus = resource("test-yaml-fragments.txt").replace("\r\n", "\n");
+        final List<String> texts = new ArrayList<>();
+        for(final String block : corpus.substring(0, corpus.indexOf(">>== END")).split("@@@@")) {
+            final String yaml = block.split("~~~~")[0]
+                .replace("·", " ")
+                .replace("→", "\t")
+                .replace("↓\n", "\n")
+                .replace("⇓\n", "\n")
+                .replace("°", "");
+            try {
+                new Yamler().parseYaml(yaml);
+                texts.add(yaml);
+            } catch(final RuntimeException parseError) {
+                // fragments that test parse errors are no benchmark input
+            }
+        }
+        return List.copyOf(texts);
+    }
+
+    /** Many maps of nested block maps */
+    static String deep(int count, int depth) {
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < count; i++) {
+            sb.append("item").append(i).append(":\n");
+            for(int d = 1; d <= depth; d++) sb.append("  ".repeat(d)).append("level").append(d).append(":\n");
+            sb.append("  ".repeat(depth + 1)).append("value: ").append(i).append('\n');
+            sb.append("  ".repeat(depth + 1)).append("name: leaf ").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** A single map with many keys and mixed scalar values */
+    static String wide(int keys) {
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < keys; i++) {
+            sb.append("key").append(i).append(": ");
+            switch(i % 4) {
+                case 0  -> sb.append("plain value ").append(i);
+                case 1  -> sb.append(i * 31);
+                case 2  -> sb.append("\"quoted \\t value ").append(i).append('"');
+                default -> sb.append(i % 8 == 3);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Entries with long literal and folded block scalars */
+    static String blockScalars(int count, int lines) {
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < count; i++) {
+            sb.append("literal").append(i).append(": |\n");
+            for(int line = 0; line < lines; line++) sb.append("  line ").append(line).append(" of a literal text with some words in it\n");
+            sb.append("folded").append(i).append(": >-\n");
+            for(int line = 0; line < lines; line++) sb.append("  line ").append(line).append(" of a folded text\n").append(line % 10 == 9 ? "\n" : "");
+        }
+        return sb.toString();
+    }
+
+    /** Flow lists of integers and decimals */
+    static String numbers(int rows, int columns) {
+        final StringBuilder sb = new StringBuilder();
+        for(int row = 0; row < rows; row++) {
+            sb.append("row").append(row).append(": [");
+            for(int col = 0; col < columns; col++) {
+                if(col > 0) sb.append(", ");
+                if(col % 2 == 0) sb.append(row * columns + col); else sb.append(row).append('.').append(col * 7919 % 1000);
+            }
+            sb.append("]\n");
+        }
+        return sb.toString();
+    }
+
+    /** Many small documents in a single text */
+    static String manyDocuments(int count) {
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < count; i++) {
+            sb.append("---\nid: ").append(i).append("\nname: document ").append(i).append("\ntags: [a, b, c]\nenabled: ").append(i % 2 == 0).append('\n');
+        }
+        return sb.toString();
+    }
+
+    static String resource(String name) {
+        try(final InputStream in = Inputs.class.getResourceAsStream("/" + name)) {
+            if(in == null) throw new IllegalStateException("Resource not found: " + name);
+            return new String(in.readAllBytes(), UTF_8);
+        } catch(final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
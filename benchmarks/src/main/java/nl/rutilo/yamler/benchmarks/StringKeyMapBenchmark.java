@@ -0,0 +1,120 @@
+package nl.rutilo.yamler.benchmarks;
+
+import nl.rutilo.yamler.collections.KeyPath;
+import nl.rutilo.yamler.collections.StringKeyMap;
+import nl.rutilo.yamler.yamler.Yamler;
+import nl.rutilo.yamler.yamler.YamlerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/** Lookups and joins of StringKeyMap, each next to a baseline with plain maps that gives the
+  * same result for this data.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StringKeyMapBenchmark {
+    private static final String YAML = """
+        server:
+          http: { host: localhost, port: 8080, timeouts: { connect: 5, read: 30 } }
+          tls: { enabled: true, protocols: [TLSv1.2, TLSv1.3] }
+        database: { url: 'jdbc:h2:mem', pool: { min: 2, max: 10 } }
+        """;
+    private static final String OVERRIDES = """
+        server:
+          http: { port: 9090, timeouts: { read: 60 } }
+        database: { pool: { max: 20 } }
+        logging: { level: debug }
+        """;
+
+    private final StringKeyMap map = parse(YAML);
+    private final StringKeyMap overrides = parse(OVERRIDES);
+    private final Map<String, Object> plainMap = toHashMaps(map);
+    private final Map<String, Object> plainOverrides = toHashMaps(overrides);
+    private final Map<String, Object> caseInsensitiveMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final KeyPath compiledPath = KeyPath.compile("server.http.timeouts.read");
+
+    { caseInsensitiveMap.putAll(plainMap); }
+
+    @Benchmark
+    public Object get() {
+        return map.get("database");
+    }
+    @Benchmark
+    public Object getBaseline() {
+        return plainMap.get("database");
+    }
+
+    @Benchmark
+    public Object getDottedPath() {
+        return map.get("server.http.timeouts.read");
+    }
+    @Benchmark
+    public Object getCompiledPath() {
+        return map.get(compiledPath);
+    }
+    @Benchmark
+    public int getDottedPathAsInt() {
+        return map.get("server.http.timeouts.read", 0);
+    }
+    @Benchmark
+    public Object getDottedPathBaseline() {
+        return child(child(child(plainMap, "server"), "http"), "timeouts").get("read");
+    }
+
+    @Benchmark
+    public Object getIgnoreCase() {
+        return map.getIgnoreCase("DataBase");
+    }
+    @Benchmark
+    public Object getIgnoreCaseBaseline() {
+        return caseInsensitiveMap.get("DataBase");
+    }
+
+    @Benchmark
+    public StringKeyMap join() {
+        return StringKeyMap.join(map, overrides);
+    }
+    @Benchmark
+    public Map<String, Object> joinBaseline() {
+        return deepMerge(plainMap, plainOverrides);
+    }
+
+    private static StringKeyMap parse(String yaml) {
+        return StringKeyMap.convertFrom((Map<?, ?>) new Yamler(YamlerConfig.builder().orderedMaps().build()).parseYaml(yaml).first());
+    }
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> child(Map<String, Object> map, String key) {
+        return (Map<String, Object>) map.get(key);
+    }
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toHashMaps(Map<String, Object> map) {
+        final Map<String, Object> result = new HashMap<>();
+        map.forEach((key, value) -> result.put(key, value instanceof Map<?, ?> nested ? toHashMaps((Map<String, Object>) nested) : value));
+        return result;
+    }
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> deepMerge(Map<String, Object> a, Map<String, Object> b) {
+        final Map<String, Object> result = new HashMap<>(a);
+        b.forEach((key, value) -> result.merge(key, value, (old, add) ->
+            old instanceof Map<?, ?> oldMap && add instanceof Map<?, ?> addMap
+                ? deepMerge((Map<String, Object>) oldMap, (Map<String, Object>) addMap)
+                : add));
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+package nl.rutilo.yamler.benchmarks;
+
+import nl.rutilo.yamler.utils.ThreadUtils;
+import nl.rutilo.yamler.utils.TimedRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/** Cost of calls to throttle and debounce that don't run (the common case), by a single thread
+  * and by threads contending for the same id. Throttles and debounces are set to an hour so the
+  * runner is (after the first throttle) never called during the benchmark.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreadUtilsBenchmark {
+    private static final int THREADS = 4;
+    private static final Duration HOUR = Duration.ofHours(1);
+    private static final String THROTTLE_ID = "benchmark-throttle";
+    private static final String DEBOUNCE_ID = "benchmark-debounce";
+
+    @TearDown
+    public void tearDown() {
+        TimedRunner.cancelAll();
+    }
+
+    @Benchmark
+    public Object throttle() {
+        return ThreadUtils.throttle(THROTTLE_ID, HOUR, false, () -> "result");
+    }
+    /** The id is the location of the caller, which is found from the stack */
+    @Benchmark
+    public Object throttleByCaller() {
+        return ThreadUtils.throttle(HOUR, () -> "result");
+    }
+    @Benchmark @Threads(THREADS)
+    public Object throttleContended() {
+        return ThreadUtils.throttle(THROTTLE_ID, HOUR, false, () -> "result");
+    }
+
+    /** Each call reschedules the runner */
+    @Benchmark
+    public void debounce() {
+        ThreadUtils.debounce(DEBOUNCE_ID, HOUR, () -> {});
+    }
+    @Benchmark
+    public void debounceWithMaxDelay() {
+        ThreadUtils.debounce(DEBOUNCE_ID, HOUR, HOUR, () -> {});
+    }
+    @Benchmark @Threads(THREADS)
+    public void debounceContended() {
+        ThreadUtils.debounce(DEBOUNCE_ID, HOUR, () -> {});
+    }
+}
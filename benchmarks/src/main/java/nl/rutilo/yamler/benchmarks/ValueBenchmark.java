@@ -0,0 +1,77 @@
+package nl.rutilo.yamler.benchmarks;
+
+import nl.rutilo.yamler.utils.VStream;
+import nl.rutilo.yamler.utils.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/** Value and VStream (as used by the object mapper and Yamler) next to Optional and Stream doing
+  * the same.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValueBenchmark {
+    private final List<Integer> numbers = IntStream.range(0, 100).boxed().toList();
+    private String present = "text";
+    private String absent = null;
+
+    @Benchmark
+    public int valuePresent() {
+        return Value.of(present).map(String::length).filter(n -> n > 2).orElse(0);
+    }
+    @Benchmark
+    public int optionalPresent() {
+        return Optional.ofNullable(present).map(String::length).filter(n -> n > 2).orElse(0);
+    }
+
+    @Benchmark
+    public int valueAbsent() {
+        return Value.of(absent).map(String::length).filter(n -> n > 2).orElse(0);
+    }
+    @Benchmark
+    public int optionalAbsent() {
+        return Optional.ofNullable(absent).map(String::length).filter(n -> n > 2).orElse(0);
+    }
+
+    /** Fallbacks like Yamler and RSObjectMapper use to find a conversion */
+    @Benchmark
+    public String valueOrSupply() {
+        return Value.<String>orSupplyValue(
+            () -> Value.of(absent),
+            () -> Value.of(absent).map(String::trim),
+            () -> Value.of(present)
+        ).orElse("");
+    }
+    @Benchmark
+    public String optionalOr() {
+        return Optional.ofNullable(absent)
+            .or(() -> Optional.ofNullable(absent).map(String::trim))
+            .or(() -> Optional.ofNullable(present))
+            .orElse("");
+    }
+
+    @Benchmark
+    public List<String> vstreamMapFilter() {
+        return VStream.of(numbers.stream()).filter(n -> n % 3 != 0).map(String::valueOf).toList();
+    }
+    @Benchmark
+    public List<String> streamMapFilter() {
+        return numbers.stream().filter(n -> n % 3 != 0).map(String::valueOf).toList();
+    }
+}
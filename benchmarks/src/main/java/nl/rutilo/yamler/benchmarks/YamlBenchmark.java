@@ -0,0 +1,71 @@
+package nl.rutilo.yamler.benchmarks;
+
+import nl.rutilo.yamler.yamler.YamlTokenizer;
+import nl.rutilo.yamler.yamler.Yamler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/** Throughput of tokenizing (which includes reading scalars), parsing and generating json for
+  * each of the Inputs. BenchmarkMain reports these as MB/s and allocated bytes per byte of text.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YamlBenchmark {
+    @Param({"fragments", "invoice", "log", "deep", "wide", "blockScalars", "numbers", "manyDocuments"})
+    public String input;
+
+    private final Yamler yamler = new Yamler();
+    private List<String> texts;
+    private List<Object> parsed;
+
+    @Setup
+    public void setup() {
+        texts = Inputs.texts(input);
+        parsed = parseAll(yamler, texts);
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole bh) {
+        for(final String text : texts) bh.consume(new YamlTokenizer(text).tokenize());
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for(final String text : texts) bh.consume(yamler.parseYaml(text));
+    }
+
+    @Benchmark
+    public void toJson(Blackhole bh) {
+        for(final Object data : parsed) bh.consume(Yamler.toJsonString(data));
+    }
+
+    /** Bytes processed by a single operation of given benchmark method: the yaml that is read or the json that is written */
+    public static long bytesPerOperation(String method, String input) {
+        final List<String> texts = Inputs.texts(input);
+        if(!"toJson".equals(method)) return Inputs.bytesOf(texts);
+        return parseAll(new Yamler(), texts).stream().mapToLong(data -> Yamler.toJsonString(data).getBytes(UTF_8).length).sum();
+    }
+
+    private static List<Object> parseAll(Yamler yamler, List<String> texts) {
+        return texts.stream().map(text -> (Object) yamler.parseYaml(text)).toList();
+    }
+}
@@ -0,0 +1,168 @@
+package nl.rutilo.yamler.objectmapper;
+
+import nl.rutilo.yamler.collections.StringKeyMap;
+import nl.rutilo.yamler.objectmapper.MapperTypes.AnnotatedItem;
+import nl.rutilo.yamler.objectmapper.MapperTypes.BuilderItem;
+import nl.rutilo.yamler.objectmapper.MapperTypes.ConstructorItem;
+import nl.rutilo.yamler.objectmapper.MapperTypes.CustomItem;
+import nl.rutilo.yamler.objectmapper.MapperTypes.FieldsItem;
+import nl.rutilo.yamler.objectmapper.MapperTypes.GetSetItem;
+import nl.rutilo.yamler.objectmapper.MapperTypes.Order;
+import nl.rutilo.yamler.objectmapper.MapperTypes.RecordItem;
+import nl.rutilo.yamler.yamler.Yamler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Costs of RSObjectMapper: discovering the strategy of a class (when not cached yet), creating
+  * objects from maps and maps from objects for each strategy, binding nested generic collections
+  * and annotated keys, and the same under contention of threads that share the caches. This is
+  * in the objectmapper package to be able to clear the cache of strategies.
+  */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+    private static final int THREADS = 4;
+
+    @State(Scope.Benchmark)
+    public static class StrategyState {
+        @Param({"constructor", "builder", "getSet", "fields", "custom", "record"})
+        public String strategy;
+
+        Class<?> type;
+        ReflectionStrategy<?> reflectionStrategy;
+        final StringKeyMap data = new StringKeyMap().putc("name", "item").putc("count", 3).putc("enabled", true);
+        Object instance;
+
+        @Setup
+        public void setup() {
+            final Class<?> expectedStrategy;
+            switch(strategy) {
+                case "constructor" -> { type = ConstructorItem.class; expectedStrategy = ConstructorStrategy.class; }
+                case "builder"     -> { type = BuilderItem.class;     expectedStrategy = BuilderStrategy.class; }
+                case "getSet"      -> { type = GetSetItem.class;      expectedStrategy = GettersSettersStrategy.class; }
+                case "fields"      -> { type = FieldsItem.class;      expectedStrategy = PublicFieldsStrategy.class; }
+                case "custom"      -> { type = CustomItem.class;      expectedStrategy = CustomMapperStrategy.class; }
+                case "record"      -> { type = RecordItem.class;      expectedStrategy = RecordStrategy.class; }
+                default -> throw new IllegalArgumentException("Unknown strategy: " + strategy);
+            }
+            reflectionStrategy = RSObjectMapper.getStrategy(type);
+            if(reflectionStrategy.getClass() != expectedStrategy) {
+                throw new IllegalStateException(type.getSimpleName() + " is mapped by " + reflectionStrategy.getClass().getSimpleName());
+            }
+            instance = reflectionStrategy.createObjectFrom(data);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BindingState {
+        final StringKeyMap order = StringKeyMap.convertFrom((Map<?,?>) new Yamler().parseYaml("""
+            id: order-1
+            items:
+              - { name: a, count: 1, enabled: true }
+              - { name: b, count: 2, enabled: false }
+              - { name: c, count: 3, enabled: true }
+            byWarehouse:
+              north: { name: d, count: 4, enabled: true }
+              south: { name: e, count: 5, enabled: false }
+            tags: [x, y, z]
+            """).first());
+        final StringKeyMap annotated = new StringKeyMap().putc("ITEM-NAME", "item").putc("Count", 3).putc("is-enabled", true);
+        final String orderYaml = Yamler.toJsonString(order);
+        Order orderInstance;
+        AnnotatedItem annotatedInstance;
+
+        @Setup
+        public void setup() {
+            orderInstance = Yamler.mapCollectionsToClass(order, Order.class);
+            annotatedInstance = Yamler.mapCollectionsToClass(annotated, AnnotatedItem.class);
+        }
+    }
+
+    @Benchmark
+    public ReflectionStrategy<?> discover(StrategyState state) {
+        RSObjectMapper.clearCachedStrategies();
+        return RSObjectMapper.getStrategy(state.type);
+    }
+
+    @Benchmark
+    public Object createObjectFrom(StrategyState state) {
+        return state.reflectionStrategy.createObjectFrom(state.data);
+    }
+
+    @Benchmark
+    public StringKeyMap createMapFrom(StrategyState state) {
+        return state.reflectionStrategy.createMapFrom(state.instance);
+    }
+
+    /** Including the lookup of the strategy in the cache */
+    @Benchmark
+    public Object convert(StrategyState state) {
+        return RSObjectMapper.convert(state.type, state.data);
+    }
+
+    @Benchmark
+    public Order bindNestedCollections(BindingState state) {
+        return Yamler.mapCollectionsToClass(state.order, Order.class);
+    }
+
+    @Benchmark
+    public Object unbindNestedCollections(BindingState state) {
+        return Yamler.toCollections(state.orderInstance);
+    }
+
+    @Benchmark
+    public AnnotatedItem bindAnnotated(BindingState state) {
+        return Yamler.mapCollectionsToClass(state.annotated, AnnotatedItem.class);
+    }
+
+    @Benchmark
+    public Object unbindAnnotated(BindingState state) {
+        return Yamler.toCollections(state.annotatedInstance);
+    }
+
+    /** Text to class, which includes the projection of the class (see YamlProjection.forClass) */
+    @Benchmark
+    public Order mapYamlToClass(BindingState state) {
+        return new Yamler().mapYamlToClass(state.orderYaml, Order.class);
+    }
+
+    // Contended variants: threads share the cache of strategies and of class projections
+
+    /** Strategies are created while holding the lock of the cache */
+    @Benchmark @Threads(THREADS)
+    public ReflectionStrategy<?> discoverContended(StrategyState state) {
+        RSObjectMapper.clearCachedStrategies();
+        return RSObjectMapper.getStrategy(state.type);
+    }
+
+    @Benchmark @Threads(THREADS)
+    public Object convertContended(StrategyState state) {
+        return RSObjectMapper.convert(state.type, state.data);
+    }
+
+    @Benchmark @Threads(THREADS)
+    public Order bindNestedCollectionsContended(BindingState state) {
+        return Yamler.mapCollectionsToClass(state.order, Order.class);
+    }
+
+    @Benchmark @Threads(THREADS)
+    public Order mapYamlToClassContended(BindingState state) {
+        return new Yamler().mapYamlToClass(state.orderYaml, Order.class);
+    }
+}
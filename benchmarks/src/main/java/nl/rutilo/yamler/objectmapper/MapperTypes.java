@@ -0,0 +1,105 @@
+package nl.rutilo.yamler.objectmapper;
+
+import nl.rutilo.yamler.collections.StringKeyMap;
+import nl.rutilo.yamler.yamler.annotations.CustomMapper;
+import nl.rutilo.yamler.yamler.annotations.YamlIgnoreCase;
+import nl.rutilo.yamler.yamler.annotations.YamlName;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Classes with the same data (a name, a number and a flag) that are each mapped by another
+  * strategy, plus classes with nested generic collections and with annotated fields.
+  */
+public final class MapperTypes {
+    private MapperTypes() {}
+
+    /** ConstructorStrategy */
+    public static final class ConstructorItem {
+        public final String name;
+        public final int count;
+        public final boolean enabled;
+        public ConstructorItem(String name, int count, boolean enabled) { this.name = name; this.count = count; this.enabled = enabled; }
+    }
+
+    /** BuilderStrategy (the constructor is private so the ConstructorStrategy does not apply) */
+    public static final class BuilderItem {
+        public final String name;
+        public final int count;
+        public final boolean enabled;
+        private BuilderItem(String name, int count, boolean enabled) { this.name = name; this.count = count; this.enabled = enabled; }
+
+        public static Builder builder() { return new Builder(); }
+        public static final class Builder {
+            private String name;
+            private int count;
+            private boolean enabled;
+            public Builder name(String name) { this.name = name; return this; }
+            public Builder count(int count) { this.count = count; return this; }
+            public Builder enabled(boolean enabled) { this.enabled = enabled; return this; }
+            public BuilderItem build() { return new BuilderItem(name, count, enabled); }
+        }
+    }
+
+    /** GettersSettersStrategy */
+    public static final class GetSetItem {
+        private String name;
+        private int count;
+        private boolean enabled;
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public int getCount() { return count; }
+        public void setCount(int count) { this.count = count; }
+        public boolean getEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    }
+
+    /** PublicFieldsStrategy */
+    public static final class FieldsItem {
+        public String name;
+        public int count;
+        public boolean enabled;
+    }
+
+    /** CustomMapperStrategy */
+    @CustomMapper
+    public static final class CustomItem {
+        public final String name;
+        public final int count;
+        public final boolean enabled;
+        public CustomItem(String name, int count, boolean enabled) { this.name = name; this.count = count; this.enabled = enabled; }
+
+        public static CustomItem fromMap(StringKeyMap map) {
+            return new CustomItem(map.get("name", ""), map.get("count", 0), map.get("enabled", false));
+        }
+        public StringKeyMap toMap() {
+            return new StringKeyMap().putc("name", name).putc("count", count).putc("enabled", enabled);
+        }
+    }
+
+    /** RecordStrategy */
+    public record RecordItem(String name, int count, boolean enabled) {}
+
+    /** Nested generic collections of mapped classes */
+    public static final class Order {
+        public final String id;
+        public final List<ConstructorItem> items;
+        public final Map<String, RecordItem> byWarehouse;
+        public final Set<String> tags;
+        public Order(String id, List<ConstructorItem> items, Map<String, RecordItem> byWarehouse, Set<String> tags) {
+            this.id = id; this.items = items; this.byWarehouse = byWarehouse; this.tags = tags;
+        }
+    }
+
+    /** Keys matched ignoring case and keys with another name */
+    @YamlIgnoreCase
+    public static final class AnnotatedItem {
+        @YamlName("item-name") public final String name;
+        public final int count;
+        @YamlName("is-enabled") public final boolean enabled;
+        public AnnotatedItem(String name, int count, boolean enabled) {
+            this.name = name; this.count = count; this.enabled = enabled;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package nl.rutilo.yamler.collections;
+
+import java.lang.ref.Cleaner;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Insertion ordered map for many small maps that have the same keys, like records in a large
+  * document. Maps that got the same keys added in the same order share a single 'shape' that
+  * holds the keys, so each map only stores its values in a flat array.<br><br>
+  *
+  * When a map gets too many keys, when a key is removed or when the global number of shapes
+  * is exhausted, the map upgrades itself to a LinkedHashMap and continues as a normal map.
+  * Shapes are only weakly kept by their parents, so shapes (and their keys) that no map uses
+  * anymore are garbage collected and no longer count towards the number of shapes.
+  */
+@SuppressWarnings("squid:S2160") // equals() of AbstractMap is correct here
+public class CompactMap<K, V> extends AbstractMap<K, V> {
+    private static final int MAX_KEYS = 32;
+    private static final int MAX_SHAPES = 16_384;
+    private static final Object NULL_KEY = new Object();
+    private static final AtomicInteger shapeCount = new AtomicInteger();
+    private static final Cleaner cleaner = Cleaner.create(); // releases shapes that are collected
+    private static final Shape ROOT = new Shape(null, null);
+
+    /** Ordered set of keys. Shapes form a tree from the ROOT shape where each added key is a
+      * transition. A parent doesn't keep its children: they are kept by the maps that use them
+      * (and by their own children, so the path to a shape in use is not collected).
+      */
+    private static final class Shape {
+        final Object[] keys;
+        final int[] hashes;
+        @SuppressWarnings({"unused", "FieldCanBeLocal"}) private final Shape parent; // keeps the path to this shape
+        private final Map<Object, WeakReference<Shape>> transitions = new ConcurrentHashMap<>();
+
+        Shape(Shape parent, Object key) {
+            this.parent = parent;
+            if (parent == null) {
+                keys = new Object[0];
+                hashes = new int[0];
+            } else {
+                keys = Arrays.copyOf(parent.keys, parent.keys.length + 1);
+                hashes = Arrays.copyOf(parent.hashes, parent.hashes.length + 1);
+                keys[keys.length - 1] = key;
+                hashes[hashes.length - 1] = Objects.hashCode(key);
+            }
+        }
+        int indexOf(Object key) {
+            final int hash = Objects.hashCode(key);
+            for (int i = 0; i < keys.length; i++) {
+                if (hashes[i] == hash && Objects.equals(keys[i], key)) return i;
+            }
+            return -1;
+        }
+        /** Returns null when no more shapes are allowed */
+        Shape with(Object key) {
+            final Object transitionKey = key == null ? NULL_KEY : key;
+            final Shape shape = known(transitionKey);
+            if (shape != null || shapeCount.get() >= MAX_SHAPES) return shape;
+            synchronized (this) {
+                final Shape added = known(transitionKey);
+                if (added != null) return added;
+                final Shape created = new Shape(this, key);
+                final WeakReference<Shape> ref = new WeakReference<>(created);
+                final Map<Object, WeakReference<Shape>> parentTransitions = transitions; // the cleaning action can't refer to the shape
+                transitions.put(transitionKey, ref);
+                shapeCount.incrementAndGet();
+                cleaner.register(created, () -> {
+                    parentTransitions.remove(transitionKey, ref);
+                    shapeCount.decrementAndGet();
+                });
+                return created;
+            }
+        }
+        private Shape known(Object transitionKey) {
+            final WeakReference<Shape> ref = transitions.get(transitionKey);
+            return ref == null ? null : ref.get();
+        }
+    }
+
+    private Shape shape;               // null when upgraded
+    private Object[] values;           // null when upgraded
+    private LinkedHashMap<K, V> map;   // non-null when upgraded
+    private int modCount;              // incremented when keys are added or removed
+
+    public CompactMap() { this(0); }
+    public CompactMap(int expectedSize) {
+        shape = ROOT;
+        values = new Object[Math.max(0, Math.min(expectedSize, MAX_KEYS))];
+    }
+
+    /** Number of shapes that are in use (for tests) */
+    static int shapeCount() { return shapeCount.get(); }
+
+    /** True while this map still shares its keys with other maps */
+    public boolean isCompact() { return map == null; }
+    boolean sharesKeysWith(CompactMap<?, ?> other) { return map == null && shape == other.shape; }
+
+    private Map<K, V> upgrade() {
+        if (map == null) {
+            map = new LinkedHashMap<>(Math.max(16, shape.keys.length * 2));
+            for (int i = 0; i < shape.keys.length; i++) map.put(key(i), value(i));
+            shape = null;
+            values = null;
+        }
+        return map;
+    }
+    @SuppressWarnings("unchecked") private K key(int index) { return (K) shape.keys[index]; }
+    @SuppressWarnings("unchecked") private V value(int index) { return (V) values[index]; }
+
+    @Override public int size() { return map != null ? map.size() : shape.keys.length; }
+    @Override public boolean containsKey(Object key) { return map != null ? map.containsKey(key) : shape.indexOf(key) >= 0; }
+    @Override public V get(Object key) {
+        if (map != null) return map.get(key);
+        final int index = shape.indexOf(key);
+        return index < 0 ? null : value(index);
+    }
+    @Override public V put(K key, V value) {
+        if (map != null) {
+            final int oldSize = map.size();
+            final V old = map.put(key, value);
+            if (map.size() != oldSize) modCount++;
+            return old;
+        }
+        final int index = shape.indexOf(key);
+        if (index >= 0) {
+            final V old = value(index);
+            values[index] = value;
+            return old;
+        }
+        final Shape newShape = shape.keys.length < MAX_KEYS ? shape.with(key) : null;
+        if (newShape == null) {
+            modCount++;
+            return upgrade().put(key, value);
+        }
+        final int size = shape.keys.length;
+        if (values.length == size) values = Arrays.copyOf(values, Math.min(MAX_KEYS, Math.max(4, size * 2)));
+        values[size] = value;
+        shape = newShape;
+        modCount++;
+        return null;
+    }
+    @Override public V remove(Object key) {
+        if (map == null ? shape.indexOf(key) < 0 : !map.containsKey(key)) return null;
+        modCount++;
+        return upgrade().remove(key);
+    }
+    @Override public void clear() {
+        modCount++;
+        map = null;
+        shape = ROOT;
+        values = new Object[0];
+    }
+
+    @Override public Set<Map.Entry<K, V>> entrySet() {
+        if (map != null) return map.entrySet();
+        return new AbstractSet<>() {
+            @Override public int size() { return CompactMap.this.size(); }
+            @Override public Iterator<Map.Entry<K, V>> iterator() {
+                return map != null ? map.entrySet().iterator() : new ShapeIterator();
+            }
+        };
+    }
+
+    /** Iterates the keys and values of the shape the map had on creation. Changes are written through
+      * to the map. Keys added or removed other than via this iterator fail with a ConcurrentModificationException.
+      */
+    private final class ShapeIterator implements Iterator<Map.Entry<K, V>> {
+        private final Object[] keys = shape.keys;
+        private final Object[] vals = values;
+        private int expectedModCount = modCount;
+        private int index = 0;
+        private K lastKey;
+        private boolean canRemove;
+
+        @Override public boolean hasNext() { return index < keys.length; }
+        @Override @SuppressWarnings("unchecked") public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            final K key = (K) keys[index];
+            final V value = (V) vals[index++];
+            lastKey = key;
+            canRemove = true;
+            return new SimpleEntry<>(key, value) {
+                @Override public V setValue(V newValue) {
+                    super.setValue(newValue);
+                    return CompactMap.this.put(key, newValue);
+                }
+            };
+        }
+        @Override public void remove() {
+            if (!canRemove) throw new IllegalStateException();
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            canRemove = false;
+            CompactMap.this.remove(lastKey);
+            expectedModCount = modCount;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package nl.rutilo.yamler.collections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/** Growable list of doubles without boxing. Boxed access via the List interface is supported
+  * for compatibility, while getDouble(), addDouble() and toDoubleArray() stay unboxed.
+  */
+public final class DoubleList extends AbstractList<Double> implements RandomAccess {
+    private double[] values;
+    private int size;
+
+    public DoubleList() { this(10); }
+    public DoubleList(int capacity) { values = new double[Math.max(0, capacity)]; }
+    public static DoubleList of(double... values) {
+        final DoubleList list = new DoubleList(0);
+        list.values = values.clone();
+        list.size = values.length;
+        return list;
+    }
+
+    @Override public int size() { return size; }
+    @Override public Double get(int index) { return getDouble(index); }
+    @Override public Double set(int index, Double value) { return setDouble(index, value); }
+    @Override public void add(int index, Double value) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException(index);
+        ensureCapacity(size + 1);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+        modCount++;
+    }
+    @Override public Double remove(int index) {
+        final double old = getDouble(index);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+    @Override public void clear() { size = 0; modCount++; }
+
+    public double getDouble(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException(index);
+        return values[index];
+    }
+    public double setDouble(int index, double value) {
+        final double old = getDouble(index);
+        values[index] = value;
+        return old;
+    }
+    public void addDouble(double value) {
+        ensureCapacity(size + 1);
+        values[size++] = value;
+        modCount++;
+    }
+
+    public double[] toDoubleArray() { return Arrays.copyOf(values, size); }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+    }
+}
@@ -0,0 +1,73 @@
+package nl.rutilo.yamler.collections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/** Growable list of ints without boxing. Boxed access via the List interface is supported
+  * for compatibility, while getInt(), addInt() and toIntArray() stay unboxed.
+  */
+public final class IntList extends AbstractList<Integer> implements RandomAccess {
+    private int[] values;
+    private int size;
+
+    public IntList() { this(10); }
+    public IntList(int capacity) { values = new int[Math.max(0, capacity)]; }
+    public static IntList of(int... values) {
+        final IntList list = new IntList(0);
+        list.values = values.clone();
+        list.size = values.length;
+        return list;
+    }
+
+    @Override public int size() { return size; }
+    @Override public Integer get(int index) { return getInt(index); }
+    @Override public Integer set(int index, Integer value) { return setInt(index, value); }
+    @Override public void add(int index, Integer value) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException(index);
+        ensureCapacity(size + 1);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+        modCount++;
+    }
+    @Override public Integer remove(int index) {
+        final int old = getInt(index);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+    @Override public void clear() { size = 0; modCount++; }
+
+    public int getInt(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException(index);
+        return values[index];
+    }
+    public int setInt(int index, int value) {
+        final int old = getInt(index);
+        values[index] = value;
+        return old;
+    }
+    public void addInt(int value) {
+        ensureCapacity(size + 1);
+        values[size++] = value;
+        modCount++;
+    }
+
+    public int[] toIntArray() { return Arrays.copyOf(values, size); }
+    public long[] toLongArray() {
+        final long[] result = new long[size];
+        for (int i = 0; i < size; i++) result[i] = values[i];
+        return result;
+    }
+    public double[] toDoubleArray() {
+        final double[] result = new double[size];
+        for (int i = 0; i < size; i++) result[i] = values[i];
+        return result;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+    }
+}
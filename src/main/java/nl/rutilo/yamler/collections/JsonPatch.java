@@ -0,0 +1,232 @@
+package nl.rutilo.yamler.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/** Creates and applies JSON Patches (RFC 6902) for trees of maps, lists and scalars, like
+  * parsed yaml. A patch is a list of operation maps, like {"op":"replace","path":"/a/0","value":1},
+  * so it can be written and read like any other document (e.g. with Yamler.toJsonString()).<br><br>
+  *
+  * diff() uses TreeHashes to skip equal subtrees without walking them, so its cost depends on
+  * the size of the changes rather than the size of the trees. Lists are compared after skipping
+  * their common begin and end, so inserting or removing an item leads to a single operation.
+  * Values in the patch are the values in the target tree, not copies.<br><br>
+  *
+  * apply() leaves the source untouched and copies only the maps and lists on the paths of the
+  * operations (each once per patch, or once more after a copy operation put it in a second
+  * place). Everything else is shared with the source.
+  */
+public final class JsonPatch {
+    private JsonPatch() {}
+
+    /** Operations that change source into target */
+    public static List<StringKeyMap> diff(Object source, Object target) {
+        return diff(source, target, new TreeHashes());
+    }
+    /** Operations that change source into target, using given hashes that may already
+      * contain (some of) the trees, like when diffing many versions against the same source.
+      */
+    public static List<StringKeyMap> diff(Object source, Object target, TreeHashes hashes) {
+        final List<StringKeyMap> ops = new ArrayList<>();
+        diff(source, target, "", hashes, ops);
+        return ops;
+    }
+
+    /** Result of applying given operations to source, which is not changed. Throws an
+      * IllegalArgumentException when an operation can't be applied or a test fails.
+      */
+    public static Object apply(Object source, List<? extends Map<?,?>> patch) {
+        final Patcher patcher = new Patcher(source);
+        for(final Map<?,?> op : patch) patcher.apply(op);
+        return patcher.root;
+    }
+
+    /** Escapes given key to be used as a JSON Pointer (RFC 6901) reference token */
+    public static String escape(String key) {
+        return key.indexOf('~') < 0 && key.indexOf('/') < 0 ? key : key.replace("~", "~0").replace("/", "~1");
+    }
+
+    private static void diff(Object source, Object target, String path, TreeHashes hashes, List<StringKeyMap> ops) {
+        if(hashes.equal(source, target)) return;
+        if(source instanceof Map<?,?> sourceMap && target instanceof Map<?,?> targetMap) {
+            for(final Map.Entry<?,?> entry : sourceMap.entrySet()) {
+                final String childPath = path + "/" + escape(Objects.toString(entry.getKey()));
+                if(targetMap.containsKey(entry.getKey())) diff(entry.getValue(), targetMap.get(entry.getKey()), childPath, hashes, ops);
+                else ops.add(op("remove", childPath));
+            }
+            for(final Map.Entry<?,?> entry : targetMap.entrySet()) {
+                if(!sourceMap.containsKey(entry.getKey())) {
+                    ops.add(op("add", path + "/" + escape(Objects.toString(entry.getKey()))).putc("value", entry.getValue()));
+                }
+            }
+        } else
+        if(source instanceof List<?> sourceList && target instanceof List<?> targetList) {
+            int start = 0;
+            int sourceEnd = sourceList.size();
+            int targetEnd = targetList.size();
+            while(start < sourceEnd && start < targetEnd && hashes.equal(sourceList.get(start), targetList.get(start))) start++;
+            while(sourceEnd > start && targetEnd > start && hashes.equal(sourceList.get(sourceEnd - 1), targetList.get(targetEnd - 1))) { sourceEnd--; targetEnd--; }
+
+            final int common = start + Math.min(sourceEnd - start, targetEnd - start);
+            for(int i = start; i < common; i++) diff(sourceList.get(i), targetList.get(i), path + "/" + i, hashes, ops);
+            for(int i = sourceEnd - 1; i >= common; i--) ops.add(op("remove", path + "/" + i)); // from the end so indices stay valid
+            for(int i = common; i < targetEnd; i++) ops.add(op("add", path + "/" + i).putc("value", targetList.get(i)));
+        } else {
+            ops.add(op("replace", path).putc("value", target));
+        }
+    }
+    private static StringKeyMap op(String op, String path) {
+        return new StringKeyMap("op", op, "path", path);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class Patcher {
+        private final Set<Object> copies = Collections.newSetFromMap(new IdentityHashMap<>()); // created by this patcher, so can be changed
+        private Object root;
+
+        Patcher(Object root) { this.root = root; }
+
+        void apply(Map<?,?> op) {
+            final String name = Objects.toString(op.get("op"));
+            final String path = string(op, "path");
+            switch(name) {
+                case "add"     -> add(path, value(op));
+                case "remove"  -> remove(path);
+                case "replace" -> replace(path, value(op));
+                case "move"    -> {
+                    final String from = string(op, "from");
+                    if(path.startsWith(from + "/")) throw new IllegalArgumentException("Unable to move " + from + " into itself: " + path);
+                    final Object value = get(from);
+                    remove(from);
+                    add(path, value);
+                }
+                case "copy"    -> add(path, shared(get(string(op, "from"))));
+                case "test"    -> {
+                    if(!Objects.equals(get(path), value(op))) throw new IllegalArgumentException("Test failed for " + path);
+                }
+                default -> throw new IllegalArgumentException("Unknown patch operation: " + name);
+            }
+        }
+
+        private Object get(String path) {
+            Object node = root;
+            for(final String token : tokens(path)) {
+                if(node instanceof Map<?,?> map && map.containsKey(token)) node = map.get(token);
+                else if(node instanceof List<?> list) node = list.get(index(token, list.size() - 1, path));
+                else throw new IllegalArgumentException("No value at " + path);
+            }
+            return node;
+        }
+        private void add(String path, Object value) {
+            final List<String> tokens = tokens(path);
+            if(tokens.isEmpty()) { root = value; return; }
+            final Object parent = writableParent(tokens, path);
+            final String last = tokens.get(tokens.size() - 1);
+            if(parent instanceof Map<?,?> map) ((Map<String, Object>) map).put(last, value);
+            else {
+                final List<Object> list = (List<Object>) parent;
+                list.add("-".equals(last) ? list.size() : index(last, list.size(), path), value);
+            }
+        }
+        private void replace(String path, Object value) {
+            final List<String> tokens = tokens(path);
+            if(tokens.isEmpty()) { root = value; return; }
+            final Object parent = writableParent(tokens, path);
+            final String last = tokens.get(tokens.size() - 1);
+            if(parent instanceof Map<?,?> map) {
+                if(!map.containsKey(last)) throw new IllegalArgumentException("No value at " + path);
+                ((Map<String, Object>) map).put(last, value);
+            } else {
+                final List<Object> list = (List<Object>) parent;
+                list.set(index(last, list.size() - 1, path), value);
+            }
+        }
+        private void remove(String path) {
+            final List<String> tokens = tokens(path);
+            if(tokens.isEmpty()) { root = null; return; }
+            final Object parent = writableParent(tokens, path);
+            final String last = tokens.get(tokens.size() - 1);
+            if(parent instanceof Map<?,?> map) {
+                if(!map.containsKey(last)) throw new IllegalArgumentException("No value at " + path);
+                map.remove(last);
+            } else {
+                final List<?> list = (List<?>) parent;
+                list.remove(index(last, list.size() - 1, path));
+            }
+        }
+
+        /** Given value, which is going to be in two places, no longer counts as changeable. So
+          * when a later operation changes it in one place, it is copied first. Only copies have
+          * copies as children (as their parents are copied as well), so only those are walked.
+          */
+        private Object shared(Object value) {
+            if(copies.remove(value)) {
+                if(value instanceof Map<?,?> map) map.values().forEach(this::shared);
+                if(value instanceof List<?> list) list.forEach(this::shared);
+            }
+            return value;
+        }
+
+        /** Container of the last token, where it and all containers above it are copies */
+        private Object writableParent(List<String> tokens, String path) {
+            root = writable(root, path);
+            Object node = root;
+            for(int i = 0; i < tokens.size() - 1; i++) {
+                final String token = tokens.get(i);
+                if(node instanceof Map<?,?> map) {
+                    if(!map.containsKey(token)) throw new IllegalArgumentException("No value at " + path);
+                    final Object child = writable(map.get(token), path);
+                    ((Map<String, Object>) map).put(token, child);
+                    node = child;
+                } else {
+                    final List<Object> list = (List<Object>) node;
+                    final int index = index(token, list.size() - 1, path);
+                    final Object child = writable(list.get(index), path);
+                    list.set(index, child);
+                    node = child;
+                }
+            }
+            return node;
+        }
+        private Object writable(Object node, String path) {
+            if(copies.contains(node)) return node;
+            final Object copy;
+            if(node instanceof StringKeyMap map) copy = new StringKeyMap(map);
+            else if(node instanceof Map<?,?> map) copy = new LinkedHashMap<>(map);
+            else if(node instanceof List<?> list) copy = new ArrayList<>(list);
+            else throw new IllegalArgumentException("Unable to change " + path + " because it is not in a map or list but in: " + node);
+            copies.add(copy);
+            return copy;
+        }
+
+        private static List<String> tokens(String path) {
+            if(path.isEmpty()) return List.of();
+            if(!path.startsWith("/")) throw new IllegalArgumentException("Path should start with '/': " + path);
+            final List<String> tokens = new ArrayList<>();
+            for(final String token : path.substring(1).split("/", -1)) tokens.add(token.replace("~1", "/").replace("~0", "~"));
+            return tokens;
+        }
+        private static int index(String token, int max, String path) {
+            if(token.isEmpty() || !token.chars().allMatch(Character::isDigit) || (token.length() > 1 && token.charAt(0) == '0') || token.length() > 9) {
+                throw new IllegalArgumentException("Invalid list index '" + token + "' in " + path);
+            }
+            final int index = Integer.parseInt(token);
+            if(index > max) throw new IllegalArgumentException("List index " + index + " out of bounds in " + path);
+            return index;
+        }
+        private static String string(Map<?,?> op, String key) {
+            if(!(op.get(key) instanceof String s)) throw new IllegalArgumentException("Missing '" + key + "' in patch operation: " + op);
+            return s;
+        }
+        private static Object value(Map<?,?> op) {
+            if(!op.containsKey("value")) throw new IllegalArgumentException("Missing 'value' in patch operation: " + op);
+            return op.get("value");
+        }
+    }
+}
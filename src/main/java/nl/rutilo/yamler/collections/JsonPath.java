@@ -0,0 +1,452 @@
+package nl.rutilo.yamler.collections;
+
+import nl.rutilo.yamler.utils.Value;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/** Compiled JSONPath query on a tree of maps and lists (like parsed yaml, StringKeyMaps or the
+  * views of a LazyDocument). Where KeyPath selects a single value, a JsonPath can select many:
+  *<pre>
+  *   $.store.book[0].title      names and indices ('$.' is optional, so 'store.book' works too)
+  *   $['store']['book'][-1]     quoted names and negative indices
+  *   items[*].sku   items.*     wildcards
+  *   $..price                   recursive descent
+  *   $.book[1:5:2]  $.book[0,2] slices and unions
+  *   $.book[?(@.price < 10 && @.tags)]   filters with ==, !=, &lt;, &lt;=, >, >=, &&, ||, !, ()
+  *</pre>
+  * The query text is parsed once into a plan of steps, so evaluating it does no parsing.
+  * Matches are given in document order. Filter operands are paths relative to the current
+  * node (@) or the root ($), numbers, quoted strings, true, false or null. A path operand
+  * without comparison tests for existence. Numbers are compared by value, so 1 == 1.0.<br><br>
+  *
+  * Evaluation stops as soon as the caller doesn't need more matches (first(), stream()), and
+  * only visits the nodes the query leads to, so on lazy views the rest is never created.
+  * Invalid queries lead to an IllegalArgumentException.
+  */
+public final class JsonPath {
+    private static final int MAX_CACHE_SIZE = 1024;
+    private static final Map<String, JsonPath> cache = new ConcurrentHashMap<>();
+
+    private final String text;
+    private final Step[] steps;
+
+    private JsonPath(String text, Step[] steps) {
+        this.text = text;
+        this.steps = steps;
+    }
+
+    /** Parses given query into an evaluation plan */
+    public static JsonPath compile(String query) {
+        final Parser parser = new Parser(query);
+        final Step[] steps = parser.path(false);
+        if(parser.pos < query.length()) throw parser.error("Unexpected '" + query.charAt(parser.pos) + "'");
+        return new JsonPath(query, steps);
+    }
+
+    /** Same as compile(query) but (re)uses a compiled query from a bounded cache (see KeyPath.cached()) */
+    public static JsonPath cached(String query) {
+        final JsonPath path = cache.get(query);
+        if(path != null) return path;
+        if(cache.size() >= MAX_CACHE_SIZE) cache.clear();
+        final JsonPath compiled = compile(query);
+        cache.put(query, compiled);
+        return compiled;
+    }
+
+    /** All matches in given tree */
+    public List<Object> select(Object root) {
+        final List<Object> matches = new ArrayList<>();
+        eval(root, 0, root, matches::add);
+        return matches;
+    }
+    /** First match in given tree, which can be null. The tree is only walked up to it. */
+    public Value<Object> first(Object root) { return firstFrom(root, root); }
+    /** True if this query has any match in given tree */
+    public boolean matches(Object root) { return first(root).isPresent(); }
+
+    /** Matches in each of given documents. Documents are only evaluated (or taken from the
+      * stream) when the resulting stream gets to them, and a document is only walked as far
+      * as the stream needs matches from it.
+      */
+    public Stream<Object> stream(Stream<?> documents) {
+        return documents.flatMap(document -> StreamSupport.stream(new Matches(document), false));
+    }
+
+    @Override public String toString() { return text; }
+    @Override public int hashCode() { return text.hashCode(); }
+    @Override public boolean equals(Object other) { return other instanceof JsonPath path && path.text.equals(text); }
+
+    /** Gives the node at stepIndex to the steps, returns false when the sink wants no more */
+    private boolean eval(Object node, int stepIndex, Object root, Predicate<Object> sink) {
+        if(stepIndex == steps.length) return sink.test(node);
+        return steps[stepIndex].apply(node, root, child -> eval(child, stepIndex + 1, root, sink));
+    }
+    private Value<Object> firstFrom(Object node, Object root) {
+        final Object[] found = { null };
+        final boolean[] isFound = { false };
+        eval(node, 0, root, match -> { found[0] = match; isFound[0] = true; return false; });
+        return isFound[0] ? Value.ofNullable(found[0]) : Value.absent();
+    }
+
+    /** Matches of a single document. forEachRemaining() walks the tree once, giving each match
+      * as found. tryAdvance() (used when the stream can stop early) walks the tree for a batch
+      * of matches, skipping the ones already given. Batches double in size, so a tree that is
+      * consumed completely this way is walked about twice.
+      */
+    private final class Matches implements Spliterator<Object> {
+        private final Object root;
+        private final List<Object> batch = new ArrayList<>();
+        private int batchIndex;
+        private int given;
+        private boolean walkedAll;
+
+        Matches(Object root) { this.root = root; }
+
+        @Override public boolean tryAdvance(Consumer<? super Object> action) {
+            if(batchIndex == batch.size() && !walkedAll) nextBatch(Math.max(1, given));
+            if(batchIndex == batch.size()) return false;
+            given++;
+            action.accept(batch.get(batchIndex++));
+            return true;
+        }
+        @Override public void forEachRemaining(Consumer<? super Object> action) {
+            while(batchIndex < batch.size()) { given++; action.accept(batch.get(batchIndex++)); }
+            if(walkedAll) return;
+            walkedAll = true;
+            final int skip = given;
+            final int[] seen = { 0 };
+            eval(root, 0, root, match -> {
+                if(seen[0]++ >= skip) { given++; action.accept(match); }
+                return true;
+            });
+        }
+        private void nextBatch(int size) {
+            batch.clear();
+            batchIndex = 0;
+            final int skip = given;
+            final int[] seen = { 0 };
+            walkedAll = eval(root, 0, root, match -> {
+                if(seen[0]++ >= skip) batch.add(match);
+                return batch.size() < size;
+            });
+        }
+
+        @Override public Spliterator<Object> trySplit() { return null; }
+        @Override public long estimateSize() { return Long.MAX_VALUE; }
+        @Override public int characteristics() { return ORDERED; }
+    }
+
+    //<editor-fold desc="Steps">
+    /** Gives the selected children of node to next, returns false when next wants no more */
+    private interface Step {
+        boolean apply(Object node, Object root, Predicate<Object> next);
+    }
+
+    private record NameStep(String name) implements Step {
+        @Override public boolean apply(Object node, Object root, Predicate<Object> next) {
+            return !(node instanceof Map<?,?> map) || !map.containsKey(name) || next.test(map.get(name));
+        }
+    }
+    private record IndexStep(int index) implements Step {
+        @Override public boolean apply(Object node, Object root, Predicate<Object> next) {
+            if(!(node instanceof List<?> list)) return true;
+            final int i = index < 0 ? list.size() + index : index;
+            return i < 0 || i >= list.size() || next.test(list.get(i));
+        }
+    }
+    private record UnionStep(Step[] selectors) implements Step {
+        @Override public boolean apply(Object node, Object root, Predicate<Object> next) {
+            for(final Step selector : selectors) if(!selector.apply(node, root, next)) return false;
+            return true;
+        }
+    }
+    private record SliceStep(Integer start, Integer end, int step) implements Step {
+        @Override public boolean apply(Object node, Object root, Predicate<Object> next) {
+            if(!(node instanceof List<?> list) || step == 0) return true;
+            final int len = list.size();
+            if(step > 0) {
+                final int lower = bound(start == null ? 0 : start, len, 0, len);
+                final int upper = bound(end == null ? len : end, len, 0, len);
+                for(int i = lower; i < upper; i += step) if(!next.test(list.get(i))) return false;
+            } else {
+                final int upper = bound(start == null ? len - 1 : start, len, -1, len - 1);
+                final int lower = end == null ? -1 : bound(end, len, -1, len - 1);
+                for(int i = upper; i > lower; i += step) if(!next.test(list.get(i))) return false;
+            }
+            return true;
+        }
+        private static int bound(int index, int len, int min, int max) {
+            return Math.max(min, Math.min(max, index < 0 ? len + index : index));
+        }
+    }
+    private enum WildcardStep implements Step {
+        INSTANCE;
+        @Override public boolean apply(Object node, Object root, Predicate<Object> next) {
+            if(node instanceof Map<?,?> map) { for(final Object value : map.values()) if(!next.test(value)) return false; }
+            else if(node instanceof List<?> list) { for(final Object item : list) if(!next.test(item)) return false; }
+            return true;
+        }
+    }
+    /** The node itself and all nodes below it, for the step that follows */
+    private enum DescendantsStep implements Step {
+        INSTANCE;
+        @Override public boolean apply(Object node, Object root, Predicate<Object> next) {
+            if(!next.test(node)) return false;
+            return WildcardStep.INSTANCE.apply(node, root, child -> !(child instanceof Map<?,?> || child instanceof List<?>) || apply(child, root, next));
+        }
+    }
+    private record FilterStep(Expr expr) implements Step {
+        @Override public boolean apply(Object node, Object root, Predicate<Object> next) {
+            return WildcardStep.INSTANCE.apply(node, root, child -> !expr.test(child, root) || next.test(child));
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Filter expressions">
+    private interface Expr {
+        boolean test(Object current, Object root);
+    }
+    private interface Operand {
+        Value<Object> valueOf(Object current, Object root);
+    }
+    private record PathOperand(boolean fromRoot, JsonPath path) implements Operand, Expr {
+        @Override public Value<Object> valueOf(Object current, Object root) { return path.firstFrom(fromRoot ? root : current, root); }
+        @Override public boolean test(Object current, Object root) { return valueOf(current, root).isPresent(); }
+    }
+    private record Literal(Object value) implements Operand {
+        @Override public Value<Object> valueOf(Object current, Object root) { return Value.ofNullable(value); }
+    }
+    private record Comparison(Operand left, String op, Operand right) implements Expr {
+        @Override public boolean test(Object current, Object root) {
+            final Value<Object> a = left.valueOf(current, root);
+            final Value<Object> b = right.valueOf(current, root);
+            if(a.isAbsent() || b.isAbsent()) { // missing values are only equal to each other
+                final boolean bothAbsent = a.isAbsent() && b.isAbsent();
+                return "!=".equals(op) ? !bothAbsent : bothAbsent && op.contains("=");
+            }
+            final Object x = a.orElse(null);
+            final Object y = b.orElse(null);
+            return switch(op) {
+                case "==" -> isEqual(x, y);
+                case "!=" -> !isEqual(x, y);
+                default -> {
+                    final Integer cmp = compare(x, y);
+                    yield cmp != null && switch(op) {
+                        case "<"  -> cmp < 0;
+                        case "<=" -> cmp <= 0;
+                        case ">"  -> cmp > 0;
+                        default   -> cmp >= 0;
+                    };
+                }
+            };
+        }
+        private static boolean isEqual(Object x, Object y) {
+            return x instanceof Number && y instanceof Number ? compare(x, y) == 0 : Objects.equals(x, y);
+        }
+        private static Integer compare(Object x, Object y) {
+            if(x instanceof Number nx && y instanceof Number ny) return toBigDecimal(nx).compareTo(toBigDecimal(ny));
+            if(x instanceof String sx && y instanceof String sy) return sx.compareTo(sy);
+            return null;
+        }
+        private static BigDecimal toBigDecimal(Number n) {
+            if(n instanceof BigDecimal bd) return bd;
+            if(n instanceof Double || n instanceof Float) return BigDecimal.valueOf(n.doubleValue());
+            return new BigDecimal(n.toString());
+        }
+    }
+    private record Not(Expr expr) implements Expr {
+        @Override public boolean test(Object current, Object root) { return !expr.test(current, root); }
+    }
+    private record And(Expr left, Expr right) implements Expr {
+        @Override public boolean test(Object current, Object root) { return left.test(current, root) && right.test(current, root); }
+    }
+    private record Or(Expr left, Expr right) implements Expr {
+        @Override public boolean test(Object current, Object root) { return left.test(current, root) || right.test(current, root); }
+    }
+    //</editor-fold>
+
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) { this.text = text; }
+
+        /** Steps of a path up to its end, or in a filter up to something that is not a path */
+        Step[] path(boolean inFilter) {
+            final List<Step> steps = new ArrayList<>();
+            if(!inFilter) {
+                skip('$');
+                if(pos < text.length() && text.charAt(pos) != '.' && text.charAt(pos) != '[') steps.add(nameOrWildcard(inFilter));
+            }
+            while(pos < text.length()) {
+                final char c = text.charAt(pos);
+                if(c == '[') {
+                    steps.add(bracket());
+                } else if(c == '.') {
+                    pos++;
+                    if(skip('.')) {
+                        steps.add(DescendantsStep.INSTANCE);
+                        if(pos < text.length() && text.charAt(pos) == '[') continue;
+                    }
+                    steps.add(nameOrWildcard(inFilter));
+                } else if(inFilter) {
+                    break;
+                } else {
+                    throw error("Unexpected '" + c + "'");
+                }
+            }
+            return steps.toArray(Step[]::new);
+        }
+        private Step nameOrWildcard(boolean inFilter) {
+            if(skip('*')) return WildcardStep.INSTANCE;
+            final int start = pos;
+            while(pos < text.length() && isNameChar(text.charAt(pos), inFilter)) pos++;
+            if(pos == start) throw error("Expected name");
+            return new NameStep(text.substring(start, pos));
+        }
+        private static boolean isNameChar(char c, boolean inFilter) {
+            if(c == '.' || c == '[' || c == ']') return false;
+            return !inFilter || Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '$';
+        }
+
+        private Step bracket() {
+            expect('[');
+            skipSpaces();
+            final Step step;
+            if(skip('*')) step = WildcardStep.INSTANCE;
+            else if(skip('?')) {
+                step = new FilterStep(or());
+            } else {
+                final List<Step> selectors = new ArrayList<>();
+                do {
+                    skipSpaces();
+                    selectors.add(selector());
+                    skipSpaces();
+                } while(skip(','));
+                step = selectors.size() == 1 ? selectors.get(0) : new UnionStep(selectors.toArray(Step[]::new));
+            }
+            skipSpaces();
+            expect(']');
+            return step;
+        }
+        private Step selector() {
+            if(peek() == '\'' || peek() == '"') return new NameStep(quoted());
+            final Integer start = optionalInt();
+            if(!skip(':')) {
+                if(start == null) throw error("Expected index, slice or quoted name");
+                return new IndexStep(start);
+            }
+            final Integer end = optionalInt();
+            final Integer step = skip(':') ? optionalInt() : null;
+            return new SliceStep(start, end, step == null ? 1 : step);
+        }
+
+        private Expr or() {
+            Expr expr = and();
+            while(skipToken("||")) expr = new Or(expr, and());
+            return expr;
+        }
+        private Expr and() {
+            Expr expr = unary();
+            while(skipToken("&&")) expr = new And(expr, unary());
+            return expr;
+        }
+        private Expr unary() {
+            skipSpaces();
+            if(skip('!')) return new Not(unary());
+            if(skip('(')) {
+                final Expr expr = or();
+                skipSpaces();
+                expect(')');
+                return expr;
+            }
+            final Operand left = operand();
+            for(final String op : new String[] { "==", "!=", "<=", ">=", "<", ">" }) {
+                if(skipToken(op)) return new Comparison(left, op, operand());
+            }
+            if(left instanceof PathOperand path) return path;
+            throw error("Expected comparison");
+        }
+        private Operand operand() {
+            skipSpaces();
+            final char c = peek();
+            if(c == '@' || c == '$') {
+                final int start = pos++;
+                final Step[] steps = path(true);
+                return new PathOperand(c == '$', new JsonPath(text.substring(start, pos), steps));
+            }
+            if(c == '\'' || c == '"') return new Literal(quoted());
+            if(c == '-' || Character.isDigit(c)) {
+                final int start = pos++;
+                while(pos < text.length() && "0123456789.eE+-".indexOf(text.charAt(pos)) >= 0) pos++;
+                final String number = text.substring(start, pos);
+                try {
+                    return new Literal(number.matches("-?\\d+") ? (Object) Long.parseLong(number) : (Object) new BigDecimal(number));
+                } catch(final NumberFormatException e) {
+                    throw error("Invalid number '" + number + "'");
+                }
+            }
+            for(final String word : new String[] { "true", "false", "null" }) {
+                if(text.startsWith(word, pos)) {
+                    pos += word.length();
+                    return new Literal("null".equals(word) ? null : Boolean.valueOf(word));
+                }
+            }
+            throw error("Expected path or literal");
+        }
+
+        private String quoted() {
+            final char quote = text.charAt(pos++);
+            final StringBuilder sb = new StringBuilder();
+            while(pos < text.length() && text.charAt(pos) != quote) {
+                final char c = text.charAt(pos++);
+                if(c == '\\' && pos < text.length()) sb.append(text.charAt(pos++));
+                else sb.append(c);
+            }
+            expect(quote);
+            return sb.toString();
+        }
+        private Integer optionalInt() {
+            skipSpaces();
+            final int start = pos;
+            if(peek() == '-') pos++;
+            while(pos < text.length() && Character.isDigit(text.charAt(pos))) pos++;
+            if(pos == start) return null;
+            try {
+                return Integer.parseInt(text.substring(start, pos));
+            } catch(final NumberFormatException e) {
+                throw error("Invalid index '" + text.substring(start, pos) + "'");
+            }
+        }
+
+        private char peek() { return pos < text.length() ? text.charAt(pos) : 0; }
+        private boolean skip(char c) {
+            if(peek() != c) return false;
+            pos++;
+            return true;
+        }
+        private boolean skipToken(String token) {
+            skipSpaces();
+            if(!text.startsWith(token, pos)) return false;
+            pos += token.length();
+            return true;
+        }
+        private void skipSpaces() { while(pos < text.length() && text.charAt(pos) == ' ') pos++; }
+        private void expect(char c) {
+            if(!skip(c)) throw error("Expected '" + c + "'");
+        }
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + pos + " in JSONPath: " + text);
+        }
+    }
+}
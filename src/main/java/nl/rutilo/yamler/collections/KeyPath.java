@@ -0,0 +1,82 @@
+package nl.rutilo.yamler.collections;
+
+import nl.rutilo.yamler.utils.Value;
+import nl.rutilo.yamler.yamler.Yamler;
+import nl.rutilo.yamler.yamler.YamlerMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/** Pre-parsed path into a tree of maps and lists, like "path.to[3].value". Compiling once and
+  * reusing the KeyPath prevents splitting, unescaping and index parsing on every lookup.<br><br>
+  *
+  * Separators are '.', '[' and ']' (runs of them count as one). They can be escaped with a
+  * backslash to be part of a key.
+  */
+public final class KeyPath {
+    private static final Pattern DOT_SPLIT_PATTERN = Pattern.compile("(?<!\\\\)([]\\[.]+)");
+    private static final Pattern DOT_REPLACE_PATTERN = Pattern.compile("(?<!\\\\)\\\\([]\\[.]+)");
+    private static final int MAX_CACHE_SIZE = 1024;
+    private static final Map<String,KeyPath> cache = new ConcurrentHashMap<>();
+
+    private final String text;
+    final String[] keys;
+    final int[] indices; // -1 when key is not a list index
+
+    private KeyPath(String text, String[] keys) {
+        this.text = text;
+        this.keys = keys;
+        this.indices = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) indices[i] = toIndex(keys[i]);
+    }
+
+    /** Parses given path into its keys */
+    public static KeyPath compile(String path) {
+        final String[] keys = DOT_SPLIT_PATTERN.split(path);
+        for (int i = 0; i < keys.length; i++) keys[i] = DOT_REPLACE_PATTERN.matcher(keys[i]).replaceAll("$1");
+        return new KeyPath(path, keys);
+    }
+
+    /** Path of a single key that is used as-is, so without interpreting separators */
+    public static KeyPath literal(String key) {
+        return new KeyPath(key, new String[] { key });
+    }
+
+    /** Same as compile(path) but (re)uses a compiled path from a bounded cache. When the cache
+      * is full it is cleared, which is cheaper than maintaining access order on every lookup.
+      */
+    public static KeyPath cached(String path) {
+        final KeyPath keyPath = cache.get(path);
+        final YamlerMetrics metrics = Yamler.metrics();
+        if (metrics.isEnabled()) metrics.cacheAccessed(YamlerMetrics.Cache.KEY_PATHS, keyPath != null);
+        if (keyPath != null) return keyPath;
+        if (cache.size() >= MAX_CACHE_SIZE) cache.clear();
+        final KeyPath compiled = compile(path);
+        cache.put(path, compiled);
+        return compiled;
+    }
+
+    private static int toIndex(String key) {
+        if (key.isEmpty() || key.length() > 9) return -1;
+        int index = 0;
+        for (int i = 0; i < key.length(); i++) {
+            final char c = key.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    /** Value at this path in given tree of maps and lists, like StringKeyMap.getValue(path) */
+    public Value<Object> getValueIn(Object root) { return StringKeyMap.getValue(root, this); }
+
+    public int    size()          { return keys.length; }
+    public String key(int index)  { return keys[index]; }
+
+    @Override public String toString() { return text; }
+    @Override public int hashCode() { return text.hashCode(); }
+    @Override public boolean equals(Object other) {
+        return other instanceof KeyPath keyPath && keyPath.text.equals(text) && keyPath.keys.length == keys.length;
+    }
+}
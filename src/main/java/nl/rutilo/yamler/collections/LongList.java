@@ -0,0 +1,68 @@
+package nl.rutilo.yamler.collections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/** Growable list of longs without boxing. Boxed access via the List interface is supported
+  * for compatibility, while getLong(), addLong() and toLongArray() stay unboxed.
+  */
+public final class LongList extends AbstractList<Long> implements RandomAccess {
+    private long[] values;
+    private int size;
+
+    public LongList() { this(10); }
+    public LongList(int capacity) { values = new long[Math.max(0, capacity)]; }
+    public static LongList of(long... values) {
+        final LongList list = new LongList(0);
+        list.values = values.clone();
+        list.size = values.length;
+        return list;
+    }
+
+    @Override public int size() { return size; }
+    @Override public Long get(int index) { return getLong(index); }
+    @Override public Long set(int index, Long value) { return setLong(index, value); }
+    @Override public void add(int index, Long value) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException(index);
+        ensureCapacity(size + 1);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+        modCount++;
+    }
+    @Override public Long remove(int index) {
+        final long old = getLong(index);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+    @Override public void clear() { size = 0; modCount++; }
+
+    public long getLong(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException(index);
+        return values[index];
+    }
+    public long setLong(int index, long value) {
+        final long old = getLong(index);
+        values[index] = value;
+        return old;
+    }
+    public void addLong(long value) {
+        ensureCapacity(size + 1);
+        values[size++] = value;
+        modCount++;
+    }
+
+    public long[] toLongArray() { return Arrays.copyOf(values, size); }
+    public double[] toDoubleArray() {
+        final double[] result = new double[size];
+        for (int i = 0; i < size; i++) result[i] = values[i];
+        return result;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+    }
+}
@@ -0,0 +1,84 @@
+package nl.rutilo.yamler.collections;
+
+import nl.rutilo.yamler.utils.Value;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/** Read-only view on a stack of maps (like defaults, environment, host, overrides) where
+  * later layers override earlier ones. Lookups go through the layers, so nothing is copied
+  * and changes in the layers are visible immediately. Nested maps that exist in multiple
+  * layers are returned as an OverlayMap of those maps. Null values don't override.<br><br>
+  *
+  * Use StringKeyMap.merge() to get a snapshot instead.
+  *
+  * @see StringKeyMap#overlay(Map[])
+  */
+public final class OverlayMap extends AbstractMap<String, Object> {
+    private final List<Map<?,?>> layers;
+
+    OverlayMap(List<Map<?,?>> layers) {
+        this.layers = layers;
+    }
+
+    @Override public Object get(Object key) {
+        List<Map<?,?>> maps = null;
+        for(int i = layers.size() - 1; i >= 0; i--) {
+            final Object value = layers.get(i).get(key);
+            if(value == null) continue;
+            if(!(value instanceof Map<?,?> map)) {
+                if(maps == null) return value;
+                break; // a non-map value hides maps in lower layers
+            }
+            if(maps == null) maps = new ArrayList<>();
+            maps.add(0, map);
+        }
+        if(maps == null) return null;
+        return maps.size() == 1 ? maps.get(0) : new OverlayMap(maps);
+    }
+    @Override public boolean containsKey(Object key) {
+        for(final Map<?,?> layer : layers) if(layer.get(key) != null) return true;
+        return false;
+    }
+
+    @Override public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override public int size() { return keys().size(); }
+            @Override public Iterator<Entry<String, Object>> iterator() {
+                final Iterator<String> keys = keys().iterator();
+                return new Iterator<>() {
+                    @Override public boolean hasNext() { return keys.hasNext(); }
+                    @Override public Entry<String, Object> next() {
+                        if(!hasNext()) throw new NoSuchElementException();
+                        final String key = keys.next();
+                        return new SimpleImmutableEntry<>(key, get(key));
+                    }
+                };
+            }
+        };
+    }
+    /** Keys with a non-null value in any layer, in order of first appearance */
+    private Set<String> keys() {
+        final Set<String> keys = new LinkedHashSet<>();
+        for(final Map<?,?> layer : layers) {
+            layer.forEach((key, value) -> { if(value != null) keys.add(Objects.toString(key)); });
+        }
+        return keys;
+    }
+
+    public Object        get(String path)           { return get(KeyPath.cached(path)); }
+    public Value<Object> getValue(String path)      { return KeyPath.cached(path).getValueIn(this); }
+    public Object        get(KeyPath keyPath)       { return keyPath.getValueIn(this).orElse(null); }
+    public Value<Object> getValue(KeyPath keyPath)  { return keyPath.getValueIn(this); }
+
+    /** Snapshot of the current state of the layers */
+    public StringKeyMap toStringKeyMap() { return StringKeyMap.merge(layers); }
+}
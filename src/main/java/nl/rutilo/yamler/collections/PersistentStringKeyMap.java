@@ -0,0 +1,427 @@
+package nl.rutilo.yamler.collections;
+
+import nl.rutilo.yamler.utils.Value;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/** Immutable, insertion ordered map that can be 'changed' by creating a new version of it using
+  * with() and without(). New versions share all unchanged structure with the old version, so
+  * keeping many versions alive costs little memory and creating a snapshot is just keeping a
+  * reference.<br><br>
+  *
+  * Keys are stored in a hash array mapped trie (HAMT). Insertion order is kept in a persistent
+  * vector of the same entries, so iterating does not allocate anything but the iterator.<br><br>
+  *
+  * The with(path, value) and without(path) methods accept dotted paths (like StringKeyMap.get())
+  * and copy only the maps and lists on the path. Values that are Maps or Lists are converted into
+  * PersistentStringKeyMaps and unmodifiable lists when given, so no version can be changed
+  * via its values.
+  */
+@SuppressWarnings("squid:S2160") // equals() of AbstractMap is correct here
+public final class PersistentStringKeyMap extends AbstractMap<String, Object> {
+    private static final PersistentStringKeyMap EMPTY = new PersistentStringKeyMap(BitmapNode.EMPTY, OrderVector.EMPTY, 0);
+    private static final int MIN_HOLES_TO_COMPACT = 32;
+
+    private final Node root;
+    private final OrderVector order; // entries in insertion order, with null for removed entries
+    private final int size;
+    private transient Set<Map.Entry<String, Object>> entrySet;
+
+    private PersistentStringKeyMap(Node root, OrderVector order, int size) {
+        this.root = root;
+        this.order = order;
+        this.size = size;
+    }
+
+    public static PersistentStringKeyMap empty() { return EMPTY; }
+
+    /** Deep conversion of given map: nested maps become PersistentStringKeyMaps and nested lists unmodifiable */
+    public static PersistentStringKeyMap from(Map<?, ?> map) {
+        if (map instanceof PersistentStringKeyMap persistentMap) return persistentMap;
+        PersistentStringKeyMap result = EMPTY;
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            result = result.withKey(Objects.toString(entry.getKey()), toPersistentValue(entry.getValue()));
+        }
+        return result;
+    }
+
+    //<editor-fold desc="Map implementation">
+    @Override public int size() { return size; }
+    @Override public boolean isEmpty() { return size == 0; }
+    @Override public boolean containsKey(Object key) { return key instanceof String skey && find(skey) != null; }
+    @Override public Object get(Object key) {
+        final Entry entry = key instanceof String skey ? find(skey) : null;
+        return entry == null ? null : entry.value;
+    }
+    @Override public Set<Map.Entry<String, Object>> entrySet() {
+        if (entrySet == null) entrySet = new EntrySet();
+        return entrySet;
+    }
+    //</editor-fold>
+
+    /** Value at given dotted path (see StringKeyMap.get(String)) */
+    public Value<Object> getValue(String path) { return getValue(KeyPath.cached(path)); }
+    public Value<Object> getValue(KeyPath path) { return StringKeyMap.getValue(this, path); }
+
+    /** New version of this map with given value at given dotted path. Missing maps on the path are created. */
+    public PersistentStringKeyMap with(String path, Object value) { return with(KeyPath.cached(path), value); }
+    public PersistentStringKeyMap with(KeyPath path, Object value) {
+        return (PersistentStringKeyMap) withIn(this, path, 0, toPersistentValue(value));
+    }
+
+    /** New version of this map without the value at given dotted path. Returns this when the path does not exist. */
+    public PersistentStringKeyMap without(String path) { return without(KeyPath.cached(path)); }
+    public PersistentStringKeyMap without(KeyPath path) {
+        return (PersistentStringKeyMap) withoutIn(this, path, 0);
+    }
+
+    /** Mutable deep copy */
+    public StringKeyMap toStringKeyMap() {
+        final StringKeyMap map = new StringKeyMap();
+        forEach((key, value) -> map.put(key, toMutableValue(value)));
+        return map;
+    }
+
+    private Entry find(String key) {
+        return root.find(key, hash(key), 0);
+    }
+
+    /** Given value should already be converted by toPersistentValue() */
+    private PersistentStringKeyMap withKey(String key, Object value) {
+        final int hash = hash(key);
+        final Entry existing = root.find(key, hash, 0);
+        if (existing != null && existing.value == value) return this;
+        final Entry entry = new Entry(key, value, hash, existing == null ? order.size : existing.seq);
+        return new PersistentStringKeyMap(
+            root.put(entry, 0),
+            existing == null ? order.append(entry) : order.set(entry.seq, entry),
+            existing == null ? size + 1 : size
+        );
+    }
+    private PersistentStringKeyMap withoutKey(String key) {
+        final int hash = hash(key);
+        final Entry existing = root.find(key, hash, 0);
+        if (existing == null) return this;
+        final Node newRoot = root.remove(key, hash, 0);
+        final PersistentStringKeyMap result = new PersistentStringKeyMap(newRoot == null ? BitmapNode.EMPTY : newRoot, order.set(existing.seq, null), size - 1);
+        final int holes = result.order.size - result.size;
+        return holes >= MIN_HOLES_TO_COMPACT && holes > result.size ? result.compacted() : result;
+    }
+    private PersistentStringKeyMap compacted() {
+        PersistentStringKeyMap result = EMPTY;
+        for (final Map.Entry<String, Object> entry : entrySet()) result = result.withKey(entry.getKey(), entry.getValue());
+        return result;
+    }
+
+    private static Object withIn(Object node, KeyPath path, int keyIndex, Object value) {
+        final boolean isLast = keyIndex == path.keys.length - 1;
+        if (node instanceof List<?> list) {
+            final int index = path.indices[keyIndex];
+            if (index < 0 || index > list.size()) throw new IndexOutOfBoundsException("No index " + path.keys[keyIndex] + " in list of size " + list.size() + " for path " + path);
+            final List<Object> copy = new ArrayList<>(list);
+            final Object oldChild = index < list.size() ? list.get(index) : null;
+            final Object newChild = isLast ? value : withIn(oldChild, path, keyIndex + 1, value);
+            if (index == list.size()) copy.add(newChild); else copy.set(index, newChild);
+            return Collections.unmodifiableList(copy);
+        }
+        final PersistentStringKeyMap map = toPersistentMap(node, path);
+        final String key = path.keys[keyIndex];
+        return map.withKey(key, isLast ? value : withIn(map.get(key), path, keyIndex + 1, value));
+    }
+    private static Object withoutIn(Object node, KeyPath path, int keyIndex) {
+        final boolean isLast = keyIndex == path.keys.length - 1;
+        if (node instanceof List<?> list) {
+            final int index = path.indices[keyIndex];
+            if (index < 0 || index >= list.size()) return node;
+            final List<Object> copy = new ArrayList<>(list);
+            if (isLast) copy.remove(index);
+            else {
+                final Object newChild = withoutIn(list.get(index), path, keyIndex + 1);
+                if (newChild == list.get(index)) return node;
+                copy.set(index, newChild);
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        if (!(node instanceof PersistentStringKeyMap map)) return node;
+        final String key = path.keys[keyIndex];
+        if (isLast) return map.withoutKey(key);
+        final Entry entry = map.find(key);
+        if (entry == null) return map;
+        final Object newChild = withoutIn(entry.value, path, keyIndex + 1);
+        return newChild == entry.value ? map : map.withKey(key, newChild);
+    }
+    private static PersistentStringKeyMap toPersistentMap(Object node, KeyPath path) {
+        if (node == null) return EMPTY;
+        if (node instanceof Map<?, ?> map) return from(map);
+        throw new IllegalArgumentException("Unable to set " + path + " because it is not in a map or list but in: " + node);
+    }
+    private static Object toPersistentValue(Object value) {
+        if (value instanceof PersistentStringKeyMap) return value;
+        if (value instanceof Map<?, ?> map) return from(map);
+        if (value instanceof List<?> list) {
+            final List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(item -> copy.add(toPersistentValue(item)));
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+    private static Object toMutableValue(Object value) {
+        if (value instanceof PersistentStringKeyMap map) return map.toStringKeyMap();
+        if (value instanceof List<?> list) {
+            final List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(item -> copy.add(toMutableValue(item)));
+            return copy;
+        }
+        return value;
+    }
+
+    private static int hash(String key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    //<editor-fold desc="Entry set (iterates in insertion order)">
+    private final class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+        @Override public int size() { return size; }
+        @Override public boolean contains(Object obj) {
+            if (!(obj instanceof Map.Entry<?, ?> other) || !(other.getKey() instanceof String key)) return false;
+            final Entry entry = find(key);
+            return entry != null && Objects.equals(entry.value, other.getValue());
+        }
+        @Override public Iterator<Map.Entry<String, Object>> iterator() {
+            return new Iterator<>() {
+                private int index = 0;
+                private Object[] leaf = null;
+                private Entry next = advance();
+
+                private Entry advance() {
+                    while (index < order.size) {
+                        if (leaf == null || (index & OrderVector.MASK) == 0) leaf = order.leafFor(index);
+                        final Entry entry = (Entry) leaf[index++ & OrderVector.MASK];
+                        if (entry != null) return entry;
+                    }
+                    return null;
+                }
+                @Override public boolean hasNext() { return next != null; }
+                @Override public Map.Entry<String, Object> next() {
+                    if (next == null) throw new NoSuchElementException();
+                    final Entry entry = next;
+                    next = advance();
+                    return entry;
+                }
+            };
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Hash array mapped trie">
+    private static final class Entry implements Map.Entry<String, Object> {
+        final String key;
+        final Object value;
+        final int hash;
+        final int seq; // index in the order vector
+
+        Entry(String key, Object value, int hash, int seq) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+            this.seq = seq;
+        }
+        @Override public String getKey() { return key; }
+        @Override public Object getValue() { return value; }
+        @Override public Object setValue(Object value) { throw new UnsupportedOperationException("PersistentStringKeyMap is immutable"); }
+        @Override public int hashCode() { return key.hashCode() ^ Objects.hashCode(value); }
+        @Override public boolean equals(Object obj) {
+            return obj instanceof Map.Entry<?, ?> other && key.equals(other.getKey()) && Objects.equals(value, other.getValue());
+        }
+        @Override public String toString() { return key + "=" + value; }
+    }
+
+    private abstract static class Node {
+        abstract Entry find(String key, int hash, int shift);
+        abstract Node put(Entry entry, int shift);
+        /** Returns null when the node became empty */
+        abstract Node remove(String key, int hash, int shift);
+        /** Returns the only entry if this node contains just a single entry, otherwise null */
+        abstract Entry singleEntry();
+
+        static Node of(Entry a, Entry b, int shift) {
+            if (shift > 30) return new CollisionNode(new Entry[] { a, b });
+            final int bitA = BitmapNode.bit(a.hash, shift);
+            final int bitB = BitmapNode.bit(b.hash, shift);
+            if (bitA == bitB) return new BitmapNode(bitA, new Object[] { of(a, b, shift + 5) });
+            return new BitmapNode(bitA | bitB, Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[] { a, b } : new Object[] { b, a });
+        }
+    }
+
+    /** Node with up to 32 slots, each being an Entry or a sub node. Only used slots are stored. */
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+        final int bitmap;
+        final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+        static int bit(int hash, int shift) { return 1 << ((hash >>> shift) & 31); }
+        private int indexOf(int bit) { return Integer.bitCount(bitmap & (bit - 1)); }
+
+        @Override Entry find(String key, int hash, int shift) {
+            final int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return null;
+            final Object slot = slots[indexOf(bit)];
+            if (slot instanceof Entry entry) return entry.key.equals(key) ? entry : null;
+            return ((Node) slot).find(key, hash, shift + 5);
+        }
+        @Override Node put(Entry entry, int shift) {
+            final int bit = bit(entry.hash, shift);
+            final int index = indexOf(bit);
+            if ((bitmap & bit) == 0) {
+                final Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = entry;
+                System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+                return new BitmapNode(bitmap | bit, newSlots);
+            }
+            final Object slot = slots[index];
+            final Object newSlot;
+            if (slot instanceof Entry existing) {
+                newSlot = existing.key.equals(entry.key) ? entry : Node.of(existing, entry, shift + 5);
+            } else {
+                newSlot = ((Node) slot).put(entry, shift + 5);
+            }
+            return withSlot(index, newSlot);
+        }
+        @Override Node remove(String key, int hash, int shift) {
+            final int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return this;
+            final int index = indexOf(bit);
+            final Object slot = slots[index];
+            if (slot instanceof Entry entry) {
+                if (!entry.key.equals(key)) return this;
+                if (slots.length == 1) return null;
+                final Object[] newSlots = new Object[slots.length - 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+                return new BitmapNode(bitmap & ~bit, newSlots);
+            }
+            final Node subNode = (Node) slot;
+            final Node newSubNode = subNode.remove(key, hash, shift + 5);
+            if (newSubNode == subNode) return this;
+            if (newSubNode == null) return slots.length == 1 ? null : without(index, bit);
+            final Entry single = newSubNode.singleEntry();
+            return withSlot(index, single != null ? single : newSubNode); // inline a lone entry
+        }
+        @Override Entry singleEntry() {
+            return slots.length == 1 && slots[0] instanceof Entry entry ? entry : null;
+        }
+        private BitmapNode withSlot(int index, Object slot) {
+            final Object[] newSlots = slots.clone();
+            newSlots[index] = slot;
+            return new BitmapNode(bitmap, newSlots);
+        }
+        private BitmapNode without(int index, int bit) {
+            final Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+            return new BitmapNode(bitmap & ~bit, newSlots);
+        }
+    }
+
+    /** Entries of which the full hash is equal */
+    private static final class CollisionNode extends Node {
+        final Entry[] entries;
+
+        CollisionNode(Entry[] entries) { this.entries = entries; }
+
+        private int indexOf(String key) {
+            for (int i = 0; i < entries.length; i++) if (entries[i].key.equals(key)) return i;
+            return -1;
+        }
+        @Override Entry find(String key, int hash, int shift) {
+            final int index = indexOf(key);
+            return index < 0 ? null : entries[index];
+        }
+        @Override Node put(Entry entry, int shift) {
+            final int index = indexOf(entry.key);
+            final Entry[] newEntries;
+            if (index < 0) {
+                newEntries = new Entry[entries.length + 1];
+                System.arraycopy(entries, 0, newEntries, 0, entries.length);
+                newEntries[entries.length] = entry;
+            } else {
+                newEntries = entries.clone();
+                newEntries[index] = entry;
+            }
+            return new CollisionNode(newEntries);
+        }
+        @Override Node remove(String key, int hash, int shift) {
+            final int index = indexOf(key);
+            if (index < 0) return this;
+            if (entries.length == 1) return null;
+            final Entry[] newEntries = new Entry[entries.length - 1];
+            System.arraycopy(entries, 0, newEntries, 0, index);
+            System.arraycopy(entries, index + 1, newEntries, index, entries.length - index - 1);
+            return new CollisionNode(newEntries);
+        }
+        @Override Entry singleEntry() {
+            return entries.length == 1 ? entries[0] : null;
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Persistent vector for the insertion order">
+    private static final class OrderVector {
+        static final int BITS = 5;
+        static final int WIDTH = 1 << BITS;
+        static final int MASK = WIDTH - 1;
+        static final OrderVector EMPTY = new OrderVector(new Object[WIDTH], 0, 0);
+
+        final Object[] root;
+        final int shift;
+        final int size;
+
+        OrderVector(Object[] root, int shift, int size) {
+            this.root = root;
+            this.shift = shift;
+            this.size = size;
+        }
+
+        Object[] leafFor(int index) {
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) node = (Object[]) node[(index >>> level) & MASK];
+            return node;
+        }
+        OrderVector set(int index, Object value) {
+            return new OrderVector(set(root, shift, index, value), shift, size);
+        }
+        OrderVector append(Object value) {
+            if (size == 1 << (shift + BITS)) { // full: add a level
+                final Object[] newRoot = new Object[WIDTH];
+                newRoot[0] = root;
+                return new OrderVector(set(newRoot, shift + BITS, size, value), shift + BITS, size + 1);
+            }
+            return new OrderVector(set(root, shift, size, value), shift, size + 1);
+        }
+        private static Object[] set(Object[] node, int level, int index, Object value) {
+            final Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+            if (level == 0) copy[index & MASK] = value;
+            else {
+                final int sub = (index >>> level) & MASK;
+                copy[sub] = set((Object[]) copy[sub], level - BITS, index, value);
+            }
+            return copy;
+        }
+    }
+    //</editor-fold>
+}
@@ -14,13 +14,13 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -28,8 +28,8 @@ import java.util.stream.Stream;
     "squid:S2160" // (override equals()) false positive: this subclass does not add any (non-transient) state
     , "unchecked"})
 public class StringKeyMap extends LinkedHashMap<String, Object> {
-    private final transient Map<String, String> lcToKey = new HashMap<>();
-    private final transient IntChange hashChanged = new IntChange(this::updateKeyCasings);
+    private transient Map<String, String> lcToKey; // lazily created on first ignore-case use
+    private transient boolean lcKeysCollide;       // some keys have the same lowercase text
     private transient boolean useDottedPaths = true;
 
     private static <T> T toTargetObjectOrDefault(Object value, Class<T> targetType, Type genericType, T defaultValue) {
@@ -78,13 +78,67 @@ public class StringKeyMap extends LinkedHashMap<String, Object> {
     }
 
     public StringKeyMap asImmutable() { return new ImmutableStringKeyMap(this); }
+    public PersistentStringKeyMap toPersistent() { return PersistentStringKeyMap.from(this); }
 
-    private void checkKeyCasings() {
-        hashChanged.check(hashCode());
+    private Map<String, String> lcToKey() {
+        if(lcToKey == null) {
+            final Map<String, String> index = new HashMap<>();
+            keySet().forEach(key -> { if(key != null) index.put(StringUtils.lc(key), key); });
+            lcKeysCollide = index.size() < size() - (super.containsKey(null) ? 1 : 0);
+            lcToKey = index;
+        }
+        return lcToKey;
+    }
+    /** Called by mutators that cannot cheaply update the ignore-case index */
+    private <T> T keysChanged(T result) {
+        lcToKey = null;
+        return result;
     }
-    private void updateKeyCasings() {
-        lcToKey.clear();
-        keySet().forEach(key -> lcToKey.put(StringUtils.lc(key), key));
+
+    // The ignore-case index (if any) is kept up to date by the mutators below. Keys with
+    // the same lowercase text map to the last added key. While such keys exist, removing
+    // an indexed key drops the index, as finding the key that takes its place needs a scan.
+
+    @Override
+    public Object put(String key, Object value) {
+        if(lcToKey == null || key == null) return super.put(key, value);
+        final boolean isNewKey = !super.containsKey(key);
+        final Object oldValue = super.put(key, value);
+        if(isNewKey && lcToKey.put(StringUtils.lc(key), key) != null) lcKeysCollide = true;
+        return oldValue;
+    }
+    @Override
+    public void putAll(Map<? extends String, ?> map) {
+        if(lcToKey == null) super.putAll(map);
+        else map.forEach(this::put);
+    }
+    @Override
+    public Object remove(Object key) {
+        if(lcToKey == null || !(key instanceof String skey) || !super.containsKey(key)) return super.remove(key);
+        final Object oldValue = super.remove(key);
+        final String lcKey = StringUtils.lc(skey);
+        if(skey.equals(lcToKey.get(lcKey))) {
+            if(lcKeysCollide) return keysChanged(oldValue);
+            lcToKey.remove(lcKey);
+        }
+        return oldValue;
+    }
+    @Override
+    public void clear() {
+        super.clear();
+        if(lcToKey != null) lcToKey.clear();
+        lcKeysCollide = false;
+    }
+    @Override public Object putIfAbsent(String key, Object value) { return keysChanged(super.putIfAbsent(key, value)); }
+    @Override public boolean remove(Object key, Object value) { return keysChanged(super.remove(key, value)); }
+    @Override public Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) { return keysChanged(super.computeIfAbsent(key, mappingFunction)); }
+    @Override public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) { return keysChanged(super.computeIfPresent(key, remappingFunction)); }
+    @Override public Object compute(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) { return keysChanged(super.compute(key, remappingFunction)); }
+    @Override public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) { return keysChanged(super.merge(key, value, remappingFunction)); }
+    @Override public StringKeyMap clone() {
+        final StringKeyMap copy = (StringKeyMap) super.clone();
+        copy.lcToKey = null; // don't share the index
+        return copy;
     }
 
     /**
@@ -102,21 +156,23 @@ public class StringKeyMap extends LinkedHashMap<String, Object> {
     }
 
     public String actualCasingForKey(String key) {
-        checkKeyCasings();
-        return Value.of(lcToKey.get(key.toLowerCase(Locale.US))).orElse(key);
+        final String actualKey = lcToKey().get(StringUtils.lc(key));
+        if(actualKey == null) return key;
+        if(!super.containsKey(actualKey)) return keysChanged(this).actualCasingForKey(key); // removed via keySet(), iterator, etc.
+        return actualKey;
     }
 
     public int        get(String key, int defaultValue) {
-        return toNumber(get(key), defaultValue);
+        return getInt(keyPathOf(key), defaultValue);
     }
     public long       get(String key, long defaultValue) {
-        return toNumber(get(key), defaultValue);
+        return getLong(keyPathOf(key), defaultValue);
     }
     public short      get(String key, short defaultValue) {
         return toNumber(get(key), defaultValue);
     }
     public double     get(String key, double defaultValue) {
-        return toNumber(get(key), defaultValue);
+        return getDouble(keyPathOf(key), defaultValue);
     }
     public float      get(String key, float defaultValue) {
         return toNumber(get(key), defaultValue);
@@ -173,55 +229,80 @@ public class StringKeyMap extends LinkedHashMap<String, Object> {
         }
     }
 
-    private static final Pattern DOT_SPLIT_PATTERN = Pattern.compile("(?<!\\\\)([]\\[.]+)");
-    private static final Pattern DOT_REPLACE_PATTERN = Pattern.compile("(?<!\\\\)\\\\([]\\[.]+)");
+    private static final Object NOT_FOUND = new Object();
 
-    private Value<Object> getValue(Map<?, ?> srcMap, String key) {
-        if(useDottedPaths) {
-            final String[] keyParts = DOT_SPLIT_PATTERN.split(key);
-            for (int i = 0; i < keyParts.length; i++)
-                keyParts[i] = DOT_REPLACE_PATTERN.matcher(keyParts[i]).replaceAll("$1");
-            return getValue(srcMap, keyParts, 0);
-        } else {
-            return getValue(srcMap, new String[] { key }, 0);
+    private KeyPath keyPathOf(String key) {
+        return useDottedPaths ? KeyPath.cached(key) : KeyPath.literal(key);
+    }
+    static Value<Object> getValue(Object src, KeyPath keyPath) {
+        final Object value = resolve(src, keyPath);
+        return value == NOT_FOUND ? Value.empty() : Value.ofNullable(value);
+    }
+    /** Returns the value at given path or NOT_FOUND. When a value on the path is null, null is returned. */
+    private static Object resolve(Object src, KeyPath keyPath) {
+        Object value = src;
+        for (int i = 0; i < keyPath.keys.length; i++) {
+            value = resolve(value, keyPath.keys[i], keyPath.indices[i]);
+            if (value == null || value == NOT_FOUND) return value;
         }
+        return value;
     }
-    private Value<Object> getValue(Object src, String[] keyParts, int keyIndex) {
-        final String key = keyParts[keyIndex];
-        Object value = null;
-        boolean hasValue = false;
-        if (src instanceof List) {
-            try {
-                value = ((List<?>) src).get(Integer.parseInt(key));
-                hasValue = true;
-            } catch (final Exception e) { /*value remains null, hasValue false*/ }
+    private static Object resolve(Object src, String key, int index) {
+        if (src instanceof final List<?> list) {
+            return index >= 0 && index < list.size() ? list.get(index) : NOT_FOUND;
         } else if (src instanceof final Map<?, ?> map) {
-            value = map.get(key);
-            hasValue = value != null || map.containsKey(key);
+            final Object value = map.get(key);
+            return value != null || map.containsKey(key) ? value : NOT_FOUND;
         } else if (src != null) {
             try {
-                value = src.getClass().getField(key).get(src);
-                hasValue = true;
+                return src.getClass().getField(key).get(src);
             } catch (final Exception e) {
                 try {
-                    value = src.getClass().getMethod("get" + key.substring(0, 1).toUpperCase() + key.substring(1)).invoke(src);
-                    hasValue = true;
-                } catch (final Exception e2) { /*value remains null, hasValue false */ }
+                    return src.getClass().getMethod("get" + key.substring(0, 1).toUpperCase() + key.substring(1)).invoke(src);
+                } catch (final Exception e2) { /*not found*/ }
             }
         }
-        return value != null && (keyIndex < keyParts.length - 1)
-            ? getValue(value, keyParts, keyIndex + 1)
-            : (hasValue ? Value.ofNullable(value) : Value.empty());
+        return NOT_FOUND;
     }
 
     public Object get(String key) {
-        return getValue(this, key).orElse(null);
+        return get(keyPathOf(key));
     }
     public Value<Object> getValue(String key) {
-        return getValue(this, key);
+        return getValue(this, keyPathOf(key));
     }
     public Value<Object> getValueIgnoreCase(String key) {
-        return getValue(this, actualCasingForKey(key));
+        return getValue(this, keyPathOf(actualCasingForKey(key)));
+    }
+
+    public Object get(KeyPath keyPath) {
+        final Object value = resolve(this, keyPath);
+        return value == NOT_FOUND ? null : value;
+    }
+    public Value<Object> getValue(KeyPath keyPath) {
+        return getValue(this, keyPath);
+    }
+
+    /** Same as get(key, int) but without boxing. Values that are not a Number lead to the default value. */
+    public int     getInt(KeyPath keyPath, int defaultValue) {
+        return resolve(this, keyPath) instanceof Number number ? number.intValue() : defaultValue;
+    }
+    /** Same as get(key, long) but without boxing. Values that are not a Number lead to the default value. */
+    public long    getLong(KeyPath keyPath, long defaultValue) {
+        return resolve(this, keyPath) instanceof Number number ? number.longValue() : defaultValue;
+    }
+    /** Same as get(key, double) but without boxing. Values that are not a Number lead to the default value. */
+    public double  getDouble(KeyPath keyPath, double defaultValue) {
+        return resolve(this, keyPath) instanceof Number number ? number.doubleValue() : defaultValue;
+    }
+    /** Same as get(key, boolean) but without boxing. Values that are not a Boolean lead to the default value. */
+    public boolean getBoolean(KeyPath keyPath, boolean defaultValue) {
+        return resolve(this, keyPath) instanceof Boolean bool ? bool : defaultValue;
+    }
+
+    /** All values matching given JSONPath query, like "items[*].sku" (see JsonPath) */
+    public List<Object> select(String query) {
+        return JsonPath.cached(query).select(this);
     }
 
     public Object getOrDefault(String key, Object defaultValue) {
@@ -277,27 +358,57 @@ public class StringKeyMap extends LinkedHashMap<String, Object> {
         return join(convertFrom(a), convertFrom(b));
     }
     public static StringKeyMap join(StringKeyMap a, StringKeyMap b) {
-        return Stream.concat(a.entrySet().stream(), b.entrySet().stream())
-            .collect(Collectors.toMap(
-                /*keyMapper*/   Map.Entry::getKey,
-                /*valueMapper*/ Map.Entry::getValue,
-                /*merge*/       StringKeyMap::joinValues,
-                /*factory*/     StringKeyMap::new)
-            );
+        return merge(List.of(a, b));
     }
     public static StringKeyMap join(Collection<StringKeyMap> maps) {
-        return maps.stream().reduce(new StringKeyMap(), StringKeyMap::join);
+        return merge(new ArrayList<>(maps));
+    }
+
+    /** Deep merges the given layers in one pass, where later layers override earlier ones. Nested
+      * maps that exist in multiple layers are merged, otherwise the last value wins. Null values
+      * don't override. Keys are in order of first appearance.<br><br>
+      *
+      * Values that come from a single layer (including nested maps) are not copied but reused,
+      * so changing those in the result changes the layer as well.
+      */
+    public static StringKeyMap merge(List<? extends Map<?,?>> layers) {
+        final StringKeyMap result = new StringKeyMap();
+        Map<String, List<Map<?,?>>> toMerge = null;
+        for(final Map<?,?> layer : layers) {
+            for(final Map.Entry<?,?> entry : layer.entrySet()) {
+                if(entry.getValue() == null) continue;
+                final String key = Objects.toString(entry.getKey());
+                final Object value = entry.getValue();
+                final Object oldValue = result.put(key, value);
+                if(oldValue instanceof Map<?,?> oldMap && value instanceof Map<?,?> map) {
+                    if(toMerge == null) toMerge = new HashMap<>();
+                    toMerge.computeIfAbsent(key, k -> new ArrayList<>(List.of(oldMap))).add(map);
+                } else if(toMerge != null) {
+                    toMerge.remove(key);
+                }
+            }
+        }
+        if(toMerge != null) toMerge.forEach((key, maps) -> result.put(key, merge(maps)));
+        return result;
     }
-    private static Object joinValues(Object aValue, Object bValue) {
-        return (aValue instanceof Map && bValue instanceof Map) ? join((Map<?,?>)aValue, (Map<?,?>)bValue) : bValue;
+
+    /** JSON Patch operations that change this map into target (see JsonPatch.diff()) */
+    public List<StringKeyMap> diff(Map<?,?> target) {
+        return JsonPatch.diff(this, target);
+    }
+    /** Copy of this map with given JSON Patch operations applied, where only the maps and lists
+      * on the paths of the operations are copied (see JsonPatch.apply()).
+      */
+    public StringKeyMap applyPatch(List<? extends Map<?,?>> patch) {
+        final Object result = JsonPatch.apply(this, patch);
+        if(!(result instanceof Map<?,?> map)) throw new IllegalArgumentException("Patch replaced map by: " + result);
+        return convertFrom(map);
     }
 
-    private static class IntChange {
-        private int n;
-        private final Runnable handler;
-        public IntChange(Runnable handler) { this(0, handler); }
-        public IntChange(int n, Runnable handler) { this.n = n; this.handler = handler; }
-        public void check(int newValue) { if(n != newValue) { n = newValue; handler.run(); } }
-        public int get() { return n; }
+    /** Live read-only view of the given layers, where later layers override earlier ones,
+      * like merge() but without copying anything.
+      */
+    public static OverlayMap overlay(Map<?,?>... layers) {
+        return new OverlayMap(List.of(layers));
     }
 }
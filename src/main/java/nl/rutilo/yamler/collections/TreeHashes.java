@@ -0,0 +1,90 @@
+package nl.rutilo.yamler.collections;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/** Merkle style 64-bit hashes of trees of maps, lists and scalars (like parsed yaml), where the
+  * hash of a map or list is calculated from the hashes of its children. The hashes of maps and
+  * lists are cached by identity, so after the first call finding out whether two subtrees are
+  * equal is O(1), and subtrees that are shared between trees (like the unchanged parts of a
+  * StringKeyMap.merge() or JsonPatch.apply() result) are hashed only once.<br><br>
+  *
+  * Hashes follow equals(): maps are equal regardless of their type or key order, lists are equal
+  * regardless of their type (e.g. an IntList and an ArrayList) and scalars are equal when
+  * equals() says so (so 1 and 1L differ).<br><br>
+  *
+  * Because of the caching the trees should not be changed while a TreeHashes is used for them.
+  * Not thread safe.
+  */
+public final class TreeHashes {
+    private static final long NULL_HASH = 0x9E3779B97F4A7C15L;
+    private static final long MAP_SEED  = 0x3C6EF372FE94F82AL;
+    private static final long LIST_SEED = 0xA54FF53A5F1D36F1L;
+
+    private final Map<Object, Long> cache = new IdentityHashMap<>();
+
+    /** Hash of given node, which is cached when it is a map or a list */
+    public long hashOf(Object node) {
+        if(!(node instanceof Map<?,?>) && !(node instanceof List<?>)) return scalarHash(node);
+        final Long cached = cache.get(node);
+        if(cached != null) return cached;
+        final long hash = node instanceof Map<?,?> map ? mapHash(map) : listHash((List<?>) node);
+        cache.put(node, hash);
+        return hash;
+    }
+
+    /** True if both nodes are equal, where maps and lists are compared by their hashes */
+    public boolean equal(Object a, Object b) {
+        if(a == b) return true;
+        final boolean aIsTree = a instanceof Map<?,?> || a instanceof List<?>;
+        final boolean bIsTree = b instanceof Map<?,?> || b instanceof List<?>;
+        if(!aIsTree || !bIsTree) return !aIsTree && !bIsTree && Objects.equals(a, b);
+        return hashOf(a) == hashOf(b);
+    }
+
+    /** Number of maps and lists of which the hash is cached */
+    public int size() { return cache.size(); }
+
+    private long mapHash(Map<?,?> map) {
+        long sum = 0; // entry order should not matter
+        for(final Map.Entry<?,?> entry : map.entrySet()) {
+            sum += mix(scalarHash(entry.getKey()) * 31 + hashOf(entry.getValue()));
+        }
+        return mix(MAP_SEED + sum + map.size());
+    }
+    private long listHash(List<?> list) {
+        long hash = LIST_SEED;
+        for(final Object item : list) hash = mix(hash * 31 + hashOf(item));
+        return mix(hash + list.size());
+    }
+
+    private static long scalarHash(Object value) {
+        if(value == null) return NULL_HASH;
+        final long typeHash = value.getClass().getName().hashCode();
+        if(value instanceof String s) return mix(typeHash ^ stringHash(s));
+        if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return mix(typeHash ^ mix(((Number) value).longValue()));
+        }
+        if(value instanceof Double || value instanceof Float) {
+            return mix(typeHash ^ mix(Double.doubleToLongBits(((Number) value).doubleValue())));
+        }
+        return mix(typeHash ^ mix(value.hashCode()));
+    }
+    /** 64-bit FNV-1a, as String.hashCode() has too many collisions for this */
+    private static long stringHash(String s) {
+        long hash = 0xCBF29CE484222325L;
+        for(int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+    /** Finalizer of SplitMix64 */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -16,7 +16,7 @@ final class BuilderStrategy<T> extends ReflectionStrategy<T> {
         final Value<Method> optGetBuilder = Reflection.getMethod(clazz, "builder");
         final Value<Class<?>> optBuilderType = optGetBuilder.map(Method::getReturnType);
         final Value<Method> optBuildMethod = optBuilderType.flatMap(bt -> Reflection.getMethod(bt, "build"));
-        final Value<List<KVInfo>> optSetters = optBuilderType.map(bt -> Stream.of(bt.getMethods())
+        final Value<List<KVInfoSettable>> optSetters = optBuilderType.map(bt -> Stream.of(bt.getMethods())
             .filter(method -> method.getDeclaringClass() != Object.class)
             .filter(method -> method.getParameterCount() == 1)
             .filter(method -> !"build".equals(method.getName()))
@@ -43,9 +43,11 @@ final class BuilderStrategy<T> extends ReflectionStrategy<T> {
 
     private final Method getBuilder;
     private final Method build;
+    private final List<KVInfoSettable> setters;
 
-    public BuilderStrategy(Class<T> clazz, Method getBuilder, Method build, List<KVInfo> setters) {
+    public BuilderStrategy(Class<T> clazz, Method getBuilder, Method build, List<KVInfoSettable> setters) {
         super(clazz, setters);
+        this.setters = setters;
         this.getBuilder = getBuilder;
         this.build = build;
     }
@@ -54,7 +56,7 @@ final class BuilderStrategy<T> extends ReflectionStrategy<T> {
         final Object builder = Reflection.invoke(null, getBuilder, cause -> {
             throw new YamlerException("Unable to create builder for " + clazz, cause);
         });
-        kvInfos.forEach(setter -> setter.setValueIn(dataMap, builder));
+        setters.forEach(setter -> setter.setValueIn(dataMap, builder));
         return Reflection.invoke(builder, build, cause -> {
             throw new YamlerException("Unable to build a " + clazz, cause);
         });
@@ -66,6 +66,11 @@ final class CustomMapperStrategy<T> extends ReflectionStrategy<T> {
         }
     }
 
+    @Override
+    public Value<List<BoundKey>> boundKeys() {
+        return Value.absent(); // the custom mapper may read anything
+    }
+
     @Override
     public StringKeyMap createMapFrom(Object instance) {
         try {
@@ -42,13 +42,16 @@ final class GettersSettersStrategy<T> extends ReflectionStrategy<T> {
         return kvInfos.isEmpty() ? Value.absent() : Value.of(new GettersSettersStrategy<>(clazz, kvInfos));
     }
 
+    private final List<KVInfoGetterSetter> fieldInfos;
+
     private GettersSettersStrategy(Class<T> clazz, List<KVInfoGetterSetter> fieldInfos) {
         super(clazz, fieldInfos);
+        this.fieldInfos = fieldInfos;
     }
 
     public T createObjectFrom(StringKeyMap dataMap) {
         final T obj = Reflection.construct(clazz).orElseThrow();
-        kvInfos.forEach(kvInfo -> kvInfo.setValueIn(dataMap, obj));
+        fieldInfos.forEach(kvInfo -> kvInfo.setValueIn(dataMap, obj));
         return obj;
     }
 }
@@ -6,6 +6,7 @@ import nl.rutilo.yamler.utils.Value;
 import nl.rutilo.yamler.yamler.annotations.YamlIgnore;
 import nl.rutilo.yamler.yamler.annotations.YamlIgnoreCase;
 import nl.rutilo.yamler.yamler.annotations.YamlName;
+import nl.rutilo.yamler.yamler.exceptions.YamlerCancelledException;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
@@ -45,14 +46,23 @@ abstract class KVInfo implements Comparable<KVInfo> {
         return Value.of((T) annotations.get(clazz));
     }
 
+    /** Key of the value in a data map: the name or its YamlName */
+    public String keyName() {
+        return getAnnotation(YamlName.class).map(YamlName::value).orElse(name);
+    }
+    public boolean isIgnoreCase() {
+        return annotations.containsKey(YamlIgnoreCase.class);
+    }
+
     public Value<Object> getValueFrom(StringKeyMap dataMap) {
-        final String useName = getAnnotation(YamlName.class).map(YamlName::value).orElse(name);
+        final String useName = keyName();
         final Value<Object> value =
           isIgnored ? Value.absent()
-                    : annotations.containsKey(YamlIgnoreCase.class)
+                    : isIgnoreCase()
                         ? dataMap.getValueIgnoreCase(useName)
                         : dataMap.getValue(useName);
-        return value.map(rawVal -> RSObjectMapper.toTargetObject(rawVal, valueType, genericType));
+        return value.<Object>map(rawVal -> RSObjectMapper.toTargetObject(rawVal, valueType, genericType))
+                    .throwThrown(YamlerCancelledException.class);
     }
 
     public Object getDefaultValue() {
@@ -60,6 +70,4 @@ abstract class KVInfo implements Comparable<KVInfo> {
     }
 
     public abstract Object getValueFrom(Object obj);
-
-    public abstract void setValueIn(StringKeyMap source, Object target);
 }
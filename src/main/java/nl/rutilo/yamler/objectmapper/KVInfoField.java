@@ -11,7 +11,7 @@ import java.lang.reflect.Field;
 import java.util.List;
 
 @EqualsAndHashCode(callSuper = true)
-class KVInfoField extends KVInfo {
+class KVInfoField extends KVInfoSettable {
     public final Field field;
 
     public KVInfoField(Field field) {
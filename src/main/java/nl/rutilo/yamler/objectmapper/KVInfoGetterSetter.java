@@ -9,7 +9,7 @@ import nl.rutilo.yamler.utils.Value;
 import java.lang.reflect.Method;
 
 @EqualsAndHashCode(callSuper = true)
-class KVInfoGetterSetter extends KVInfo {
+class KVInfoGetterSetter extends KVInfoSettable {
     public final Method getMethod;
     public final Method setMethod;
 
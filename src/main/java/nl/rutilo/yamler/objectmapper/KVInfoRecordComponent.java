@@ -0,0 +1,51 @@
+package nl.rutilo.yamler.objectmapper;
+
+import lombok.EqualsAndHashCode;
+import nl.rutilo.yamler.utils.Reflection;
+import nl.rutilo.yamler.utils.Value;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.RecordComponent;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@EqualsAndHashCode(callSuper = true)
+class KVInfoRecordComponent extends KVInfo {
+    private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    public final RecordComponent component;
+    @EqualsAndHashCode.Exclude
+    private final MethodHandle accessor;
+
+    public KVInfoRecordComponent(RecordComponent component, Parameter canonicalParam, MethodHandle accessor) {
+        super(component.getDeclaringRecord(), component.getType(), component.getGenericType(),
+            component.getName(),
+            annotationsOf(component, canonicalParam));
+        this.component = component;
+        this.accessor = accessor.asType(ACCESSOR_TYPE);
+    }
+
+    /** Annotations on a record component are propagated to both the accessor and the canonical
+      * constructor parameter, so only keep the first of each type.
+      */
+    private static List<Annotation> annotationsOf(RecordComponent component, Parameter canonicalParam) {
+        final Set<Class<?>> seen = new HashSet<>();
+        return Reflection.getAnnotationsOn(canonicalParam, component.getAccessor(), component).stream()
+            .filter(annotation -> seen.add(annotation.annotationType()))
+            .toList();
+    }
+
+    public Value<Object> getValueFrom(Object obj) {
+        try {
+            return Value.ofNullable((Object) accessor.invokeExact(obj));
+        } catch (final Error error) {
+            throw error;
+        } catch (final Throwable cause) { // NOSONAR -- invokeExact declares Throwable
+            throw new RSObjectMapperException("Unable to get " + name + " of " + ownerClass.getName(), cause);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package nl.rutilo.yamler.objectmapper;
+
+import lombok.EqualsAndHashCode;
+import nl.rutilo.yamler.collections.StringKeyMap;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/** KVInfo of a value that can be set after construction (field, setter or builder method) */
+@EqualsAndHashCode(callSuper = true)
+abstract class KVInfoSettable extends KVInfo {
+    protected KVInfoSettable(Class<?> ownerClass, Class<?> valueType, Type genericType, String name, List<Annotation> annotations) {
+        super(ownerClass, valueType, genericType, name, annotations);
+    }
+
+    public abstract void setValueIn(StringKeyMap source, Object target);
+}
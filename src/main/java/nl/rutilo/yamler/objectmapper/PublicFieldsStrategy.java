@@ -40,13 +40,16 @@ final class PublicFieldsStrategy<T> extends ReflectionStrategy<T> {
              .map(kvInfos -> new PublicFieldsStrategy<>(clazz, kvInfos));
     }
 
+    private final List<KVInfoField> fieldInfos;
+
     private PublicFieldsStrategy(Class<T> clazz, List<KVInfoField> fieldInfos) {
         super(clazz, fieldInfos);
+        this.fieldInfos = fieldInfos;
     }
 
     public T createObjectFrom(StringKeyMap dataMap) {
         final T obj = Reflection.construct(clazz).orElseThrow(() -> new YamlerException("Unable to create " + clazz));
-        kvInfos.forEach(kvInfo -> kvInfo.setValueIn(dataMap, obj));
+        fieldInfos.forEach(kvInfo -> kvInfo.setValueIn(dataMap, obj));
         return obj;
     }
 }
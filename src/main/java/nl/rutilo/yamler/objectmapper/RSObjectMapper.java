@@ -1,8 +1,15 @@
 package nl.rutilo.yamler.objectmapper;
 
+import nl.rutilo.yamler.collections.DoubleList;
+import nl.rutilo.yamler.collections.IntList;
+import nl.rutilo.yamler.collections.LongList;
 import nl.rutilo.yamler.collections.StringKeyMap;
 import nl.rutilo.yamler.utils.Value;
+import nl.rutilo.yamler.yamler.YamlCancellation;
 import nl.rutilo.yamler.yamler.Yamler;
+import nl.rutilo.yamler.yamler.YamlerMetrics;
+import nl.rutilo.yamler.yamler.events.YamlBindEvent;
+import nl.rutilo.yamler.yamler.events.YamlStrategyDiscoveryEvent;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
@@ -27,6 +34,7 @@ import static nl.rutilo.yamler.collections.Collections2.firstOf;
   * classes that can be both serialized (instance to map) and deserialized (map to instance).
   * <pre>
   * There are various strategies for mapping:
+  * - records, using the canonical constructor and the component accessors
   * - matching constructor parameters to public final fields (requires java -parameters option)
   * - builder (typically as generated by Lombok) and public final fields
   * - getters & setters
@@ -50,21 +58,58 @@ public final class RSObjectMapper {
     private RSObjectMapper() {}
 
     public static <T> T convert(final Class<T> clazz, StringKeyMap dataMap) {
-        return getStrategy(clazz).createObjectFrom(dataMap);
+        final YamlBindEvent event = new YamlBindEvent();
+        event.begin();
+        final YamlerMetrics metrics = Yamler.metrics();
+        final long startNanos = metrics.isEnabled() ? System.nanoTime() : 0;
+        final ReflectionStrategy<T> strategy = getStrategy(clazz);
+        final YamlCancellation cancellation = YamlCancellation.current();
+        if(cancellation != null) cancellation.tick();
+        final T result = strategy.createObjectFrom(dataMap);
+        if(cancellation != null) cancellation.check(); // strategies may have swallowed the exception of a nested value
+        if(metrics.isEnabled()) metrics.bound(clazz, System.nanoTime() - startNanos);
+        if(event.shouldCommit()) {
+            event.type = clazz;
+            event.strategy = strategy.getClass().getSimpleName();
+            event.fields = strategy.kvInfos.size();
+            event.commit();
+        }
+        return result;
     }
     public static <T> ReflectionStrategy<T> getStrategy(final Class<T> clazz) {
+        final YamlerMetrics metrics = Yamler.metrics();
+        if(metrics.isEnabled()) {
+            final ReflectionStrategy<?> known = cachedReflectionStrategies.get(clazz);
+            metrics.cacheAccessed(YamlerMetrics.Cache.STRATEGIES, known != null);
+            if(known != null) return (ReflectionStrategy<T>) known;
+        }
+        return (ReflectionStrategy<T>)cachedReflectionStrategies.computeIfAbsent(clazz, c -> createStrategy(clazz, metrics));
+    }
+    private static <T> ReflectionStrategy<T> createStrategy(final Class<T> clazz, YamlerMetrics metrics) {
+        final YamlStrategyDiscoveryEvent event = new YamlStrategyDiscoveryEvent();
+        event.begin();
         final List<String> messages = new ArrayList<>();
-        return (ReflectionStrategy<T>)cachedReflectionStrategies.computeIfAbsent(clazz, c ->
+        final Value<? extends ReflectionStrategy<T>> strategy =
             Value.orSupplyValueExtends(
                 () -> CustomMapperStrategy.createFor(clazz, messages),
+                () -> RecordStrategy.createFor(clazz, messages),
                 () -> ConstructorStrategy.createFor(clazz, messages),
                 () -> BuilderStrategy.createFor(clazz, messages),
                 () -> GettersSettersStrategy.createFor(clazz, messages),
                 () -> PublicFieldsStrategy  .createFor(clazz, messages)
             )
-          //.peek(s -> { System.out.println("Chosen strategy for " + clazz + ": " + s); })
-            .orElseThrow(() -> new RSObjectMapperException("Don't know how to (de)serialize " + clazz.getName() + "\n - " + String.join("\n - ", messages)))
-        );
+            .peek(s -> { if(metrics.isEnabled()) metrics.strategyChosen(clazz, s.getClass()); });
+        if(event.shouldCommit()) {
+            event.type = clazz;
+            event.strategy = strategy.map(s -> s.getClass().getSimpleName()).orElse(null);
+            event.commit();
+        }
+        return strategy.orElseThrow(() -> new RSObjectMapperException("Don't know how to (de)serialize " + clazz.getName() + "\n - " + String.join("\n - ", messages)));
+    }
+
+    /** Forgets all strategies, so they are created again when needed (used to benchmark their creation) */
+    static void clearCachedStrategies() {
+        cachedReflectionStrategies.clear();
     }
 
     public  static <T> T toTargetObject    (Object value, Class<T> targetType, Type genericType) { // NOSONAR -- high cc: just type checking
@@ -96,6 +141,8 @@ public final class RSObjectMapper {
         return Yamler.mapCollectionsToClass(value, targetType);
     }
     private static <T> T toTargetArray     (Object value, Class<T> targetType, Type genericType) {
+        final Object primitiveArray = toPrimitiveArray(value, targetType);
+        if(primitiveArray != null) return (T) primitiveArray;
         final Function<Integer,Object> getter;
         final int len;
         if(value.getClass().isArray()) {
@@ -110,11 +157,28 @@ public final class RSObjectMapper {
         }
         final Class<?> itemType = targetType == null ? Object.class : targetType.getComponentType();
         final Object target = Array.newInstance(itemType, len);
+        final YamlCancellation cancellation = YamlCancellation.current();
         for (int i = 0; i < len; i++) {
+            if(cancellation != null) cancellation.tick();
             Array.set(target, i, toTargetObject(getter.apply(i), itemType, genericType));
         }
         return (T) target;
     }
+    /** Primitive lists are copied directly into primitive arrays, without boxing */
+    private static Object toPrimitiveArray(Object value, Class<?> targetType) {
+        final Class<?> itemType = targetType == null ? null : targetType.getComponentType();
+        if(value instanceof IntList ints) {
+            if(itemType == int.class   ) return ints.toIntArray();
+            if(itemType == long.class  ) return ints.toLongArray();
+            if(itemType == double.class) return ints.toDoubleArray();
+        }
+        if(value instanceof LongList longs) {
+            if(itemType == long.class  ) return longs.toLongArray();
+            if(itemType == double.class) return longs.toDoubleArray();
+        }
+        if(value instanceof DoubleList doubles && itemType == double.class) return doubles.toDoubleArray();
+        return null;
+    }
     private static <T> T toTargetCollection(Object value, Class<T> targetType, Type genericType) {
         if(targetType == null) throw new RSObjectMapperException("Unable to deserialize: no target type given for " + value);
         final Class<?> itemType = Value.or(getGenericTypeParameterOf(genericType), Object.class);
@@ -145,7 +209,9 @@ public final class RSObjectMapper {
                 }
             }
 
+        final YamlCancellation cancellation = YamlCancellation.current();
         ((Collection<?>)value).stream()
+            .peek(item -> { if(cancellation != null) cancellation.tick(); })
             .map(item -> toTargetObject(item, itemType, itemType))
             .forEach(((Collection<Object>) result)::add);
 
@@ -160,12 +226,14 @@ public final class RSObjectMapper {
         if(!(value instanceof Map)) throw new RSObjectMapperException("Unable to create map from " + value);
 
         final Class<?>[] itemTypes = itemTypes0;
+        final YamlCancellation cancellation = YamlCancellation.current();
         class TempEntry {
             final String key;
             final Object value;
             TempEntry(String k, Object v) { key=k; value=v; }
         }
         return (T)((Map<String,?>)value).entrySet().stream()
+                .peek(e -> { if(cancellation != null) cancellation.tick(); })
                 .map(e -> new TempEntry(e.getKey(), toTargetObject(e.getValue(), itemTypes[1], null)))
                 .filter(e -> e.value != null)
                 .collect(Collectors.toMap(e -> e.key, e -> e.value))
@@ -198,4 +266,7 @@ public final class RSObjectMapper {
     public static RSObjectMapperException unableToCreate(Class<?> clazz, Object value) {
         return new RSObjectMapperException("Unable to create " + clazz + " from " + value);
     }
+    public static RSObjectMapperException unableToCreate(Class<?> clazz, Object value, Throwable cause) {
+        return new RSObjectMapperException("Unable to create " + clazz + " from " + value, cause);
+    }
 }
@@ -2,5 +2,5 @@ package nl.rutilo.yamler.objectmapper;
 
 public class RSObjectMapperException extends RuntimeException {
     public RSObjectMapperException(String message) { super(message); }
-    public RSObjectMapperException(String message, Exception cause) { super(message, cause); }
+    public RSObjectMapperException(String message, Throwable cause) { super(message, cause); }
 }
@@ -0,0 +1,68 @@
+package nl.rutilo.yamler.objectmapper;
+
+import nl.rutilo.yamler.collections.StringKeyMap;
+import nl.rutilo.yamler.utils.Value;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/** Records are mapped through their canonical constructor and component accessors. Both are
+  * resolved once into method handles, so binding does not go through reflective invocation.
+  */
+final class RecordStrategy<T> extends ReflectionStrategy<T> {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    public static <T> Value<RecordStrategy<T>> createFor(Class<T> clazz, final List<String> messages) {
+        if (!clazz.isRecord()) {
+            messages.add("Not a record");
+            return Value.absent();
+        }
+        final RecordComponent[] components = clazz.getRecordComponents();
+        final Class<?>[] componentTypes = Stream.of(components).map(RecordComponent::getType).toArray(Class<?>[]::new);
+        try {
+            final Constructor<T> canonical = clazz.getDeclaredConstructor(componentTypes);
+            final Parameter[] params = canonical.getParameters();
+            final List<KVInfoRecordComponent> kvInfos = new ArrayList<>(components.length);
+            for (int i = 0; i < components.length; i++) {
+                kvInfos.add(new KVInfoRecordComponent(components[i], params[i], LOOKUP.unreflect(components[i].getAccessor())));
+            }
+            final MethodHandle constructor = LOOKUP.unreflectConstructor(canonical)
+                .asSpreader(Object[].class, components.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+            return Value.of(new RecordStrategy<>(clazz, constructor, kvInfos));
+        } catch (final NoSuchMethodException | IllegalAccessException e) {
+            messages.add("Record canonical constructor or accessors not accessible (record not public?): " + e.getMessage());
+            return Value.absent();
+        }
+    }
+
+    private final MethodHandle constructor;
+
+    private RecordStrategy(Class<T> clazz, MethodHandle constructor, List<KVInfoRecordComponent> kvInfos) {
+        super(clazz, kvInfos);
+        this.constructor = constructor;
+    }
+
+    @Override
+    public T createObjectFrom(StringKeyMap dataMap) {
+        final Object[] args = new Object[kvInfos.size()];
+        for (int i = 0; i < args.length; i++) {
+            final KVInfo kvInfo = kvInfos.get(i);
+            args[i] = kvInfo.getValueFrom(dataMap).orElseGet(kvInfo::getDefaultValue);
+        }
+        try {
+            return clazz.cast((Object) constructor.invokeExact(args));
+        } catch (final Error error) {
+            throw error;
+        } catch (final Throwable cause) { // NOSONAR -- invokeExact declares Throwable
+            throw RSObjectMapper.unableToCreate(clazz, dataMap, cause);
+        }
+    }
+}
@@ -3,11 +3,17 @@ package nl.rutilo.yamler.objectmapper;
 import nl.rutilo.yamler.collections.StringKeyMap;
 import nl.rutilo.yamler.yamler.Yamler;
 
+import nl.rutilo.yamler.utils.Value;
+
+import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
 
 public abstract class ReflectionStrategy<T> {
+    /** Key that is read from the data map when creating an object, with the type its value is converted to */
+    public record BoundKey(String name, boolean ignoreCase, Class<?> valueType, Type genericType) {}
+
     protected final Class<T> clazz;
     protected final List<? extends KVInfo> kvInfos;
 
@@ -18,6 +24,14 @@ public abstract class ReflectionStrategy<T> {
 
     public abstract T createObjectFrom(StringKeyMap dataMap);
 
+    /** Keys that createObjectFrom() reads from the data map, or absent when any key may be read */
+    public Value<List<BoundKey>> boundKeys() {
+        return Value.of(kvInfos.stream()
+            .filter(kvInfo -> kvInfo != null && !kvInfo.isIgnored)
+            .map(kvInfo -> new BoundKey(kvInfo.keyName(), kvInfo.isIgnoreCase(), kvInfo.valueType, kvInfo.genericType))
+            .toList());
+    }
+
     public StringKeyMap createMapFrom(Object obj) {
         return kvInfos.stream()
             .filter(kvInfo -> kvInfo != null && !kvInfo.isIgnored)
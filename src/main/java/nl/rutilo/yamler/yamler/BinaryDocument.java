@@ -0,0 +1,192 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.collections.KeyPath;
+import nl.rutilo.yamler.collections.StringKeyMap;
+import nl.rutilo.yamler.utils.Value;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/** Lazily read binary snapshot (see Yamler.readBinaryLazy() and YamlBinary). Read-only map and
+  * list views are created on access, directly on the (typically memory mapped) buffer. Only
+  * the containers and strings that are accessed are read, so opening a large snapshot to get
+  * a few values costs little more than indexing its string table.<br><br>
+  *
+  * Views are not thread safe. Keys of map views are strings, like with StringKeyMap.
+  */
+public final class BinaryDocument {
+    private static final Object UNRESOLVED = new Object();
+
+    private final YamlerConfig config;
+    private final YamlBinary.Reader reader;
+    private final int[] roots; // offset of each document node
+
+    BinaryDocument(YamlerConfig config, ByteBuffer buffer) {
+        this.config = config;
+        this.reader = new YamlBinary.Reader(buffer);
+        this.roots = new int[reader.varint()];
+        for(int i = 0; i < roots.length; i++) {
+            roots[i] = reader.pos;
+            reader.skip();
+        }
+    }
+
+    /** Number of documents */
+    public int size() { return roots.length; }
+
+    /** Document at given index: a BinaryMap, BinaryList, scalar or null */
+    public Object get(int index) { return view(roots[index]); }
+    public Object first() { return roots.length == 0 ? null : get(0); }
+
+    /** First document that is a map or an empty map if no such document exists */
+    public BinaryMap firstMap() {
+        for(int i = 0; i < size(); i++) {
+            if(get(i) instanceof BinaryMap map) return map;
+        }
+        return new BinaryMap(-1);
+    }
+
+    /** Reads all documents as they would have been created by parsing */
+    public YamlDocuments materialize() {
+        final YamlDocuments documents = new YamlDocuments();
+        for(final int root : roots) documents.add(materializeNode(root));
+        return documents;
+    }
+
+    private Object view(int offset) {
+        reader.pos = offset;
+        final int tag = reader.tag();
+        if(tag == YamlBinary.MAP)  return new BinaryMap(offset);
+        if(tag == YamlBinary.LIST) return new BinaryList(offset);
+        return reader.scalar(tag);
+    }
+    private Object materializeNode(int offset) {
+        reader.pos = offset;
+        return reader.node(config);
+    }
+    /** Offsets of the child nodes of the container at given offset. Keys and values alternate for maps. */
+    private int[] childOffsets(int offset) {
+        reader.pos = offset;
+        final int tag = reader.tag();
+        final int count = reader.varint() * (tag == YamlBinary.MAP ? 2 : 1);
+        reader.varint();
+        final int[] offsets = new int[count];
+        for(int i = 0; i < count; i++) {
+            offsets[i] = reader.pos;
+            reader.skip();
+        }
+        return offsets;
+    }
+
+    /** Read-only view on a map in the snapshot. Its entries are indexed on first access and
+      * values are read when requested. Getters are the same as those of StringKeyMap.
+      */
+    public final class BinaryMap extends AbstractMap<String, Object> {
+        private final int offset;
+        private String[] keys;   // unique keys in order, read on first access
+        private int[]    valueOffsets;
+        private Object[] views;
+        private Map<String, Integer> positions;
+
+        private BinaryMap(int offset) { this.offset = offset; }
+
+        private void indexEntries() {
+            if(keys != null) return;
+            final int[] offsets = offset < 0 ? new int[0] : childOffsets(offset);
+            final int pairs = offsets.length / 2;
+            keys         = new String[pairs];
+            valueOffsets = new int[pairs];
+            positions    = new HashMap<>(pairs * 2);
+            int count = 0;
+            for(int i = 0; i < pairs; i++) {
+                final String key = Objects.toString(materializeNode(offsets[i * 2]));
+                final Integer pos = positions.get(key);
+                if(pos != null) { valueOffsets[pos] = offsets[i * 2 + 1]; continue; } // keys that became equal as string
+                positions.put(key, count);
+                keys[count] = key;
+                valueOffsets[count++] = offsets[i * 2 + 1];
+            }
+            keys = Arrays.copyOf(keys, count);
+            views = new Object[count];
+            Arrays.fill(views, UNRESOLVED);
+        }
+        private Object valueAt(int pos) {
+            if(views[pos] == UNRESOLVED) views[pos] = view(valueOffsets[pos]);
+            return views[pos];
+        }
+
+        @Override public int size() { indexEntries(); return keys.length; }
+        @Override public boolean containsKey(Object key) { indexEntries(); return positions.containsKey(key); }
+        @Override public Object get(Object key) {
+            indexEntries();
+            final Integer pos = positions.get(key);
+            return pos == null ? null : valueAt(pos);
+        }
+        @Override public Set<Entry<String, Object>> entrySet() {
+            indexEntries();
+            return new AbstractSet<>() {
+                @Override public int size() { return keys.length; }
+                @Override public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int pos = 0;
+                        @Override public boolean hasNext() { return pos < keys.length; }
+                        @Override public Entry<String, Object> next() {
+                            if(!hasNext()) throw new NoSuchElementException();
+                            final int at = pos++;
+                            return new SimpleImmutableEntry<>(keys[at], valueAt(at));
+                        }
+                    };
+                }
+            };
+        }
+
+        public Object        get(String path)             { return get(KeyPath.cached(path)); }
+        public Value<Object> getValue(String path)        { return KeyPath.cached(path).getValueIn(this); }
+        public Object        get(KeyPath keyPath)         { return keyPath.getValueIn(this).orElse(null); }
+        public Value<Object> getValue(KeyPath keyPath)    { return keyPath.getValueIn(this); }
+        public int     getInt(KeyPath keyPath, int defaultValue)          { return get(keyPath) instanceof Number n ? n.intValue() : defaultValue; }
+        public long    getLong(KeyPath keyPath, long defaultValue)        { return get(keyPath) instanceof Number n ? n.longValue() : defaultValue; }
+        public double  getDouble(KeyPath keyPath, double defaultValue)    { return get(keyPath) instanceof Number n ? n.doubleValue() : defaultValue; }
+        public boolean getBoolean(KeyPath keyPath, boolean defaultValue)  { return get(keyPath) instanceof Boolean b ? b : defaultValue; }
+
+        /** Reads the map (and its children) as it would have been created by parsing */
+        public Map<?, ?> materialize() { // NOSONAR wildcards are inevitable here
+            return offset < 0 ? config.createMap(0) : (Map<?, ?>) materializeNode(offset);
+        }
+        public StringKeyMap toStringKeyMap() { return StringKeyMap.from(materialize()); }
+    }
+
+    /** Read-only view on a list in the snapshot. Items are read when requested. */
+    public final class BinaryList extends AbstractList<Object> implements RandomAccess {
+        private final int offset;
+        private final int[] offsets;
+        private final Object[] views;
+
+        private BinaryList(int offset) {
+            this.offset = offset;
+            this.offsets = childOffsets(offset);
+            this.views = new Object[offsets.length];
+            Arrays.fill(views, UNRESOLVED);
+        }
+
+        @Override public int size() { return offsets.length; }
+        @Override public Object get(int i) {
+            if(views[i] == UNRESOLVED) views[i] = view(offsets[i]);
+            return views[i];
+        }
+
+        /** Reads the list (and its children) as it would have been created by parsing */
+        public List<?> materialize() { return (List<?>) materializeNode(offset); }
+    }
+}
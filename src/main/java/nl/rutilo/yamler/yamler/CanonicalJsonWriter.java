@@ -0,0 +1,194 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.utils.Value;
+import nl.rutilo.yamler.yamler.exceptions.YamlerException;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static nl.rutilo.yamler.yamler.Yamler.toCollections;
+
+/** Writes JSON in a canonical form, so equal data always leads to the same text (and hash):
+  * <ul>
+  *   <li>map keys are strings, written in sorted order (the source maps are not changed). Keys
+  *       that are the same as text (like 1 and "1") lead to a YamlerException
+  *   <li>no whitespace
+  *   <li>numbers are normalized: integral values are written as plain digits, without fraction
+  *       or exponent (1.0 becomes 1). Other doubles and floats are written with the fewest digits
+  *       that read back as the same value, laid out like JavaScript (ECMAScript) does: plain,
+  *       unless smaller than 1e-6 (1.25e-7)
+  * </ul>
+  * The output is streamed to an Appendable and/or a SHA-256 digest, so a hash can be
+  * calculated without creating the JSON text.
+  */
+final class CanonicalJsonWriter {
+    private static final double MAX_EXACT_LONG = 9007199254740992d; // 2^53
+
+    private final Appendable out;              // may be null
+    private final MessageDigest digest;        // may be null
+    private final byte[] utf8 = new byte[512]; // buffered input for the digest
+    private int utf8Size;
+    private final List<Map.Entry<?,?>[]> entryBuffers = new ArrayList<>(); // per depth, reused for sorting
+
+    CanonicalJsonWriter(Appendable out, boolean hash) {
+        this.out = out;
+        this.digest = hash ? sha256() : null;
+    }
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 should be supported by every JVM", e);
+        }
+    }
+
+    /** Writes given object and returns the SHA-256 of the written text (or null if not hashing) */
+    byte[] write(Object obj) {
+        write(obj, 0);
+        if(digest == null) return null;
+        digest.update(utf8, 0, utf8Size);
+        utf8Size = 0;
+        return digest.digest();
+    }
+
+    private void write(Object obj, int depth) { // NOSONAR -- multiple returns adds readability here
+        if (obj == null              ) { emit("null"); return; }
+        if (obj instanceof Optional  ) { write(((Optional<?>) obj).orElse(null), depth); return; }
+        if (obj instanceof Value     ) { write(((Value<?>) obj).orElse(null), depth); return; }
+        if (obj instanceof String    ) { emit(JsonStringGenerator.toString((String) obj)); return; }
+        if (obj instanceof Number    ) { emit(normalized((Number) obj)); return; }
+        if (obj instanceof Boolean   ) { emit(obj.toString()); return; }
+        if (obj instanceof Map       ) { writeMap((Map<?,?>) obj, depth); return; }
+        if (obj instanceof Collection) {
+            emit("[");
+            boolean first = true;
+            for(final Object item : (Collection<?>) obj) {
+                if(!first) emit(",");
+                first = false;
+                write(item, depth + 1);
+            }
+            emit("]");
+            return;
+        }
+        if (obj.getClass().isArray()) {
+            emit("[");
+            for (int i = 0; i < Array.getLength(obj); i++) {
+                if(i > 0) emit(",");
+                write(Array.get(obj, i), depth + 1);
+            }
+            emit("]");
+            return;
+        }
+        write(toCollections(obj), depth);
+    }
+
+    private void writeMap(Map<?,?> map, int depth) {
+        while(entryBuffers.size() <= depth) entryBuffers.add(new Map.Entry<?,?>[16]);
+        Map.Entry<?,?>[] entries = entryBuffers.get(depth);
+        if(entries.length < map.size()) entryBuffers.set(depth, entries = new Map.Entry<?,?>[map.size()]);
+        final int size = map.size();
+        int i = 0;
+        for(final Map.Entry<?,?> entry : map.entrySet()) entries[i++] = entry;
+        Arrays.sort(entries, 0, size, (a, b) -> Objects.toString(a.getKey()).compareTo(Objects.toString(b.getKey())));
+        for(i = 1; i < size; i++) {
+            if(Objects.toString(entries[i].getKey()).equals(Objects.toString(entries[i - 1].getKey()))) {
+                final Object key = entries[i].getKey();
+                Arrays.fill(entries, 0, size, null);
+                throw new YamlerException("Canonical JSON can't have keys that are the same as text: " + key);
+            }
+        }
+
+        emit("{");
+        for(i = 0; i < size; i++) {
+            if(i > 0) emit(",");
+            emit(JsonStringGenerator.toString(Objects.toString(entries[i].getKey())));
+            emit(":");
+            write(entries[i].getValue(), depth + 1);
+        }
+        emit("}");
+        Arrays.fill(entries, 0, size, null); // don't keep references to the data
+    }
+
+    static String normalized(Number num) {
+        if(num instanceof BigDecimal big) return normalized(big);
+        if(num instanceof BigInteger) return num.toString();
+        if(num instanceof Double || num instanceof Float) {
+            final double d = num.doubleValue();
+            if(Double.isNaN(d) || Double.isInfinite(d)) return JsonStringGenerator.toString(d);
+            if(num instanceof Float f) return normalized(shortest(new BigDecimal(d), digits -> digits.floatValue() == f)); // 0.1f -> 0.1
+            if(d == Math.rint(d) && Math.abs(d) < MAX_EXACT_LONG) return Long.toString((long) d);
+            return normalized(shortest(new BigDecimal(d), digits -> digits.doubleValue() == d));
+        }
+        return Long.toString(num.longValue()); // Byte, Short, Integer, Long, AtomicInteger, ...
+    }
+    private static String normalized(BigDecimal num) {
+        final BigDecimal stripped = num.signum() == 0 ? BigDecimal.ZERO : num.stripTrailingZeros();
+        final int exponent = stripped.precision() - stripped.scale(); // digits before the point
+        if(stripped.scale() <= 0 || exponent > -6) return stripped.toPlainString();
+        final String digits = stripped.unscaledValue().abs().toString();
+        return (stripped.signum() < 0 ? "-" : "") + digits.charAt(0)
+             + (digits.length() > 1 ? "." + digits.substring(1) : "") + "e" + (exponent - 1);
+    }
+    /** Fewest digits that read back as the value. Double.toString() doesn't always give those
+      * before Java 19 (1e23 becomes 9.999999999999999E22).
+      */
+    private static BigDecimal shortest(BigDecimal exact, Predicate<BigDecimal> readsBack) {
+        for(int precision = 1; ; precision++) {
+            final BigDecimal nearest = exact.round(new MathContext(precision, RoundingMode.HALF_EVEN));
+            if(readsBack.test(nearest)) return nearest;
+            // at powers of two the values that read back are not evenly around the value
+            final BigDecimal other = exact.round(new MathContext(precision, nearest.compareTo(exact) < 0 ? RoundingMode.CEILING : RoundingMode.FLOOR));
+            if(readsBack.test(other)) return other;
+        }
+    }
+
+    private void emit(String s) {
+        if(out != null) {
+            try {
+                out.append(s);
+            } catch (final IOException e) {
+                throw new YamlerException("Unable to write JSON: " + e.getMessage());
+            }
+        }
+        if(digest != null) utf8Encode(s);
+    }
+    private void utf8Encode(String s) {
+        for(int i = 0; i < s.length(); i++) {
+            if(utf8Size > utf8.length - 4) {
+                digest.update(utf8, 0, utf8Size);
+                utf8Size = 0;
+            }
+            final char c = s.charAt(i);
+            if(c < 0x80) {
+                utf8[utf8Size++] = (byte) c;
+            } else if(c < 0x800) {
+                utf8[utf8Size++] = (byte) (0xC0 | (c >> 6));
+                utf8[utf8Size++] = (byte) (0x80 | (c & 0x3F));
+            } else if(Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, s.charAt(++i));
+                utf8[utf8Size++] = (byte) (0xF0 | (cp >> 18));
+                utf8[utf8Size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                utf8[utf8Size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                utf8[utf8Size++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                utf8[utf8Size++] = (byte) (0xE0 | (c >> 12));
+                utf8[utf8Size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                utf8[utf8Size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+}
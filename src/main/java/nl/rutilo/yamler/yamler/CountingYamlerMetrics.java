@@ -0,0 +1,126 @@
+package nl.rutilo.yamler.yamler;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Lock-free counters and histograms of all measurements, to be read periodically by an exporter.
+  * Counters never decrease, so exporters can report them as monotonic counters.<br><br>
+  *
+  * Histograms have a bucket per power of two, so percentiles are upper bounds that are at most
+  * twice the actual value. That is precise enough to see trends and outliers while recording is
+  * only a few atomic increments.
+  */
+public final class CountingYamlerMetrics implements YamlerMetrics {
+    public final Histogram parseNanos     = new Histogram();
+    /** Length of the parsed texts, of which max() is the largest text that was parsed */
+    public final Histogram parsedChars    = new Histogram();
+    public final Histogram bindNanos      = new Histogram();
+    public final Histogram serializeNanos = new Histogram();
+    public final Histogram serializedChars = new Histogram();
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final Map<Class<?>, Class<?>> strategies = new ConcurrentHashMap<>();
+    private final Map<Cache, LongAdder> cacheHits = new EnumMap<>(Cache.class);
+    private final Map<Cache, LongAdder> cacheMisses = new EnumMap<>(Cache.class);
+
+    public CountingYamlerMetrics() {
+        for(final Cache cache : Cache.values()) {
+            cacheHits.put(cache, new LongAdder());
+            cacheMisses.put(cache, new LongAdder());
+        }
+    }
+
+    @Override public void parsed(int chars, int documentCount, int tokenCount, long nanos) {
+        parseNanos.record(nanos);
+        parsedChars.record(chars);
+        documents.add(documentCount);
+        tokens.add(tokenCount);
+    }
+    @Override public void bound(Class<?> type, long nanos) {
+        bindNanos.record(nanos);
+    }
+    @Override public void strategyChosen(Class<?> type, Class<?> strategy) {
+        strategies.put(type, strategy);
+    }
+    @Override public void serialized(int chars, long nanos) {
+        serializeNanos.record(nanos);
+        serializedChars.record(chars);
+    }
+    @Override public void cacheAccessed(Cache cache, boolean hit) {
+        (hit ? cacheHits : cacheMisses).get(cache).increment();
+    }
+
+    public long parses()          { return parseNanos.count(); }
+    public long documents()       { return documents.sum(); }
+    public long tokens()          { return tokens.sum(); }
+    public long binds()           { return bindNanos.count(); }
+    public long serializations()  { return serializeNanos.count(); }
+    /** Strategy class per class that was bound or serialized */
+    public Map<Class<?>, Class<?>> strategies() { return Collections.unmodifiableMap(strategies); }
+    public long cacheHits(Cache cache)   { return cacheHits.get(cache).sum(); }
+    public long cacheMisses(Cache cache) { return cacheMisses.get(cache).sum(); }
+    /** Fraction of the accesses that were hits, or NaN when there were no accesses */
+    public double cacheHitRate(Cache cache) {
+        final long hits = cacheHits(cache);
+        final long total = hits + cacheMisses(cache);
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+
+    @Override public String toString() {
+        return "CountingYamlerMetrics{parses=" + parses() + ", documents=" + documents() + ", tokens=" + tokens()
+            + ", binds=" + binds() + ", serializations=" + serializations() + ", strategies=" + strategies.size()
+            + ", parseNanos=" + parseNanos + ", parsedChars=" + parsedChars + "}";
+    }
+
+    /** Lock-free histogram of non-negative values with a bucket per power of two */
+    public static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public void record(long value) {
+            final long v = Math.max(0, value);
+            buckets.incrementAndGet(bucketOf(v));
+            count.increment();
+            sum.add(v);
+            max.accumulate(v);
+        }
+
+        public long count() { return count.sum(); }
+        public long sum()   { return sum.sum(); }
+        public long max()   { return max.get(); }
+        public double mean() { final long n = count(); return n == 0 ? 0 : (double) sum() / n; }
+
+        /** Upper bound of the value below which given fraction (0..1) of the values are */
+        public long percentile(double fraction) {
+            final long n = count();
+            if(n == 0) return 0;
+            final long rank = Math.max(1, (long) Math.ceil(fraction * n));
+            long seen = 0;
+            for(int i = 0; i < Long.SIZE; i++) {
+                seen += buckets.get(i);
+                if(seen >= rank) return Math.min(max(), upperBoundOf(i));
+            }
+            return max();
+        }
+        /** Number of values per bucket, where bucket i holds values below 2^i (and at least 2^(i-1)) */
+        public long[] buckets() {
+            final long[] result = new long[Long.SIZE];
+            for(int i = 0; i < result.length; i++) result[i] = buckets.get(i);
+            return result;
+        }
+
+        private static int bucketOf(long value) { return Math.min(Long.SIZE - 1, Long.SIZE - Long.numberOfLeadingZeros(value)); }
+        private static long upperBoundOf(int bucket) { return bucket >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << bucket) - 1; }
+
+        @Override public String toString() {
+            return "{count=" + count() + ", mean=" + Math.round(mean()) + ", p50<=" + percentile(.5) + ", p99<=" + percentile(.99) + ", max=" + max() + "}";
+        }
+    }
+}
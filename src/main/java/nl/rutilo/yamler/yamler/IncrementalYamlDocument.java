@@ -0,0 +1,187 @@
+package nl.rutilo.yamler.yamler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/** Yaml text that is parsed again after each edit, where only the changed part is parsed when
+  * possible (see Yamler.parseYamlIncremental()). Meant for editors that parse on each keystroke.
+  *<br><br>
+  *
+  * The checkpoints are the entries of a block map at the root of the document: each line that
+  * starts at column 0 with a key starts an entry that can be parsed on its own. An edit only
+  * parses the entries it touches (plus the key line that follows them, to check that the new
+  * text doesn't continue into it, like an unterminated quote would). Other entries keep their
+  * parsed values, which are shared with the previous documents.<br><br>
+  *
+  * The whole text is parsed when the document is not a single block map or when it contains
+  * anchors, block comments or document separators, which can reach across entries.<br><br>
+  *
+  * When an edit leads to invalid yaml, the exception of the parser is thrown. The text keeps
+  * the edit and the documents of the last valid text remain available. Not thread safe.
+  */
+public final class IncrementalYamlDocument {
+    private static final String NO_KEY_START = "{[-?%!&*|>@`.";
+    private static final String[] CROSSES_ENTRIES = { "&", "/*", "---", "..." }; // anchors, block comments, document ends
+
+    private final YamlerConfig config;
+    private final StringBuilder text;
+    private final List<Entry> entries = new ArrayList<>(); // in text order, only when incremental
+    private boolean incremental;
+    private YamlDocuments documents;
+    private int lastParsedLength;
+
+    /** Parsed root map entry: text from its key line up to the next key line */
+    private static final class Entry {
+        int start;
+        int end;
+        final Object key;
+        final Object value;
+        Entry(int start, int end, Object key, Object value) {
+            this.start = start;
+            this.end = end;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    IncrementalYamlDocument(YamlerConfig config, String yamlText) {
+        this.config = config;
+        this.text = new StringBuilder(yamlText);
+        parseFully();
+    }
+
+    public String        text()      { return text.toString(); }
+    public YamlDocuments documents() { return documents; }
+    public Object        first()     { return documents.first(); }
+    /** Number of characters that were parsed for the last edit */
+    public int lastParsedLength()    { return lastParsedLength; }
+
+    /** Replaces removedLength characters at offset with insertedText and parses again. Returns
+      * the new documents, of which unchanged root entries are the same objects as before.
+      */
+    public YamlDocuments applyEdit(int offset, int removedLength, String insertedText) {
+        if(offset < 0 || removedLength < 0 || offset + removedLength > text.length()) {
+            throw new IndexOutOfBoundsException("Edit of " + removedLength + " at " + offset + " outside text of length " + text.length());
+        }
+        text.replace(offset, offset + removedLength, insertedText);
+        if(!incremental || !parseAround(offset, offset + removedLength, insertedText.length() - removedLength)) parseFully();
+        return documents;
+    }
+
+    private void parseFully() {
+        incremental = false;
+        entries.clear();
+        lastParsedLength = text.length();
+        documents = new YamlParser(config, text.toString()).parse();
+
+        if(documents.size() != 1 || !(documents.first() instanceof Map<?,?> map)) return;
+        final List<Entry> parsed = parseEntries(0, text.length(), -1, false);
+        if(parsed == null || parsed.isEmpty()) return;
+        final Map<Object, Object> assembled = config.createMap(parsed.size());
+        parsed.forEach(entry -> assembled.put(entry.key, entry.value));
+        if(!assembled.equals(map)) return; // parsing entries on their own gives something else
+        entries.addAll(parsed);
+        documents = YamlDocuments.of(assembled); // so later documents share the values of these entries
+        incremental = true;
+    }
+
+    /** Parses the entries touched by the edit of [editStart, editEnd) (old offsets). Returns false
+      * when the changed text can't be parsed as separate root entries.
+      */
+    private boolean parseAround(int editStart, int editEnd, int delta) {
+        int first = 0;
+        while(entries.get(first).end < editStart) first++; // last entry ends at text end, so always found
+        if(first > 0 && editStart <= entries.get(first).start) first--; // key line may become part of the entry before
+        int last = first - 1;
+        while(last + 1 < entries.size() && entries.get(last + 1).start <= editEnd) last++;
+
+        final int from = editStart < entries.get(0).start ? 0 : entries.get(first).start;
+        final int to   = (last >= first ? entries.get(last).end : entries.get(first).start) + delta;
+        final int next = last + 1 < entries.size() ? to : -1; // start of the key line after the changed text
+        final List<Entry> parsed = parseEntries(from, to, next, true);
+        if(parsed == null || (from > 0 && (parsed.isEmpty() || parsed.get(0).start != from))) return false;
+
+        final List<Entry> replaced = entries.subList(first, last + 1);
+        replaced.clear();
+        replaced.addAll(parsed);
+        for(int i = first + parsed.size(); i < entries.size(); i++) {
+            entries.get(i).start += delta;
+            entries.get(i).end += delta;
+        }
+        if(entries.isEmpty()) return false;
+        lastParsedLength = to - from;
+
+        final Map<Object, Object> map = config.createMap(entries.size());
+        entries.forEach(entry -> map.put(entry.key, entry.value));
+        documents = YamlDocuments.of(map);
+        return true;
+    }
+
+    /** Parses the root entries in [from, to). When verify is set, the entries are parsed together
+      * as well (along with the key line at next when not -1) to check that each entry ends where
+      * expected. Returns null when the text can't be parsed as separate root entries.
+      */
+    private List<Entry> parseEntries(int from, int to, int next, boolean verify) {
+        final List<Integer> starts = new ArrayList<>();
+        for(int lineStart = from; lineStart < to; lineStart = lineEnd(lineStart) + 1) {
+            final char c = text.charAt(lineStart);
+            if(c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '#') {
+                if(starts.isEmpty() && !isBlankOrComment(lineStart)) return null; // indented root
+                continue;
+            }
+            if(NO_KEY_START.indexOf(c) >= 0) return null;
+            starts.add(lineStart);
+        }
+        for(final String crossesEntries : CROSSES_ENTRIES) if(contains(from, to, crossesEntries)) return null;
+
+        // Text before the first key line (like comments) is parsed along with the first entry
+        final List<Entry> parsed = new ArrayList<>(starts.size());
+        for(int i = 0; i < starts.size(); i++) {
+            final int start = starts.get(i);
+            final int end = i + 1 < starts.size() ? starts.get(i + 1) : to;
+            final Map.Entry<?,?> entry = parseSingleEntry(text.substring(i == 0 ? from : start, end));
+            if(entry == null) return null;
+            parsed.add(new Entry(start, end, entry.getKey(), entry.getValue()));
+        }
+        if(verify && (next >= 0 || parsed.size() > 1)) { // no entry should continue into the next key line
+            final Map<?,?> together = parseMap(text.substring(from, next >= 0 ? lineEnd(next) : to));
+            if(together == null || together.size() != parsed.size() + (next >= 0 ? 1 : 0)) return null;
+        }
+        return parsed;
+    }
+
+    private Map.Entry<?,?> parseSingleEntry(String entryText) {
+        final Map<?,?> map = parseMap(entryText);
+        if(map == null || map.size() != 1) return null;
+        final Iterator<? extends Map.Entry<?,?>> it = map.entrySet().iterator();
+        return it.next();
+    }
+    private Map<?,?> parseMap(String yaml) {
+        try {
+            final YamlDocuments parsed = new YamlParser(config, yaml).parse();
+            return parsed.size() == 1 && parsed.first() instanceof Map<?,?> map ? map : null;
+        } catch(final RuntimeException e) {
+            return null; // let parsing the whole text give the error
+        }
+    }
+
+    private int lineEnd(int offset) {
+        final int end = text.indexOf("\n", offset);
+        return end < 0 ? text.length() : end;
+    }
+    private boolean isBlankOrComment(int lineStart) {
+        final int end = lineEnd(lineStart);
+        for(int i = lineStart; i < end; i++) {
+            final char c = text.charAt(i);
+            if(c == '#') return true;
+            if(c != ' ' && c != '\t' && c != '\r') return false;
+        }
+        return true;
+    }
+    private boolean contains(int from, int to, String s) {
+        final int at = text.indexOf(s, from);
+        return at >= 0 && at < to;
+    }
+}
@@ -1,6 +1,10 @@
 package nl.rutilo.yamler.yamler;
 
+import nl.rutilo.yamler.collections.DoubleList;
+import nl.rutilo.yamler.collections.IntList;
+import nl.rutilo.yamler.collections.LongList;
 import nl.rutilo.yamler.utils.Value;
+import nl.rutilo.yamler.yamler.events.YamlSerializeEvent;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
@@ -21,7 +25,18 @@ final class JsonStringGenerator {
         return generate(obj, 0);
     }
     public static String generate(Object obj, int indent) {
-        return toString(obj, indent);
+        final YamlSerializeEvent event = new YamlSerializeEvent();
+        event.begin();
+        final YamlerMetrics metrics = Yamler.metrics();
+        final long startNanos = metrics.isEnabled() ? System.nanoTime() : 0;
+        final String json = toString(obj, indent);
+        if(metrics.isEnabled()) metrics.serialized(json.length(), System.nanoTime() - startNanos);
+        if(event.shouldCommit()) {
+            event.type = obj == null ? null : obj.getClass();
+            event.chars = json.length();
+            event.commit();
+        }
+        return json;
     }
 
     private static String toString(Object obj, int indent) { // NOSONAR -- multiple returns adds readability here
@@ -31,6 +46,9 @@ final class JsonStringGenerator {
         if (obj instanceof String    ) return toString((String) obj);
         if (obj instanceof Number    ) return toString((Number) obj);
         if (obj instanceof Boolean   ) return toString((Boolean) obj);
+        if (obj instanceof IntList   ) return toString((IntList) obj, indent);
+        if (obj instanceof LongList  ) return toString((LongList) obj, indent);
+        if (obj instanceof DoubleList) return toString((DoubleList) obj, indent);
         if (obj instanceof Collection) return toString((Collection<?>) obj, indent);
         if (obj instanceof Map       ) return toString((Map<?, ?>) obj, indent);
         if (obj.getClass().isArray()) {
@@ -41,7 +59,7 @@ final class JsonStringGenerator {
         return toString(toCollections(obj), indent);
     }
 
-    private static String toString(String s) {
+    static String toString(String s) {
         final char[] chars = s.toCharArray();
         StringBuilder sb = new StringBuilder().append("\"");
         for(final char c : chars) {
@@ -73,15 +91,16 @@ final class JsonStringGenerator {
         sb.append("\"");
         return sb.toString();
     }
-    private static String toString(Number num) {
-        if(num instanceof Double) {
-            final double d = (Double) num;
-            if(d == Double.POSITIVE_INFINITY) return ".inf";
-            if(d == Double.NEGATIVE_INFINITY) return "-.inf";
-            if(((Double)num).isNaN()) return "nan";
-        }
+    static String toString(Number num) {
+        if(num instanceof Double) return toString((double) (Double) num);
         return num.toString();
     }
+    static String toString(double d) {
+        if(d == Double.POSITIVE_INFINITY) return ".inf";
+        if(d == Double.NEGATIVE_INFINITY) return "-.inf";
+        if(Double.isNaN(d)) return "nan";
+        return Double.toString(d);
+    }
     private static String toString(Boolean b) {
         return b.toString();
     }
@@ -90,6 +109,22 @@ final class JsonStringGenerator {
             + list.stream().map(obj -> toString(obj, indent)).collect(Collectors.joining("," + space(indent)))
             + space(indent) + "]";
     }
+    // Primitive lists are written without boxing their items
+    private static String toString(IntList list, int indent) {
+        final StringBuilder sb = new StringBuilder("[").append(space(indent));
+        for(int i = 0; i < list.size(); i++) (i == 0 ? sb : sb.append(',').append(space(indent))).append(list.getInt(i));
+        return sb.append(space(indent)).append(']').toString();
+    }
+    private static String toString(LongList list, int indent) {
+        final StringBuilder sb = new StringBuilder("[").append(space(indent));
+        for(int i = 0; i < list.size(); i++) (i == 0 ? sb : sb.append(',').append(space(indent))).append(list.getLong(i));
+        return sb.append(space(indent)).append(']').toString();
+    }
+    private static String toString(DoubleList list, int indent) {
+        final StringBuilder sb = new StringBuilder("[").append(space(indent));
+        for(int i = 0; i < list.size(); i++) (i == 0 ? sb : sb.append(',').append(space(indent))).append(toString(list.getDouble(i)));
+        return sb.append(space(indent)).append(']').toString();
+    }
     private static String toString(Map<?,?> map, int indent) {
         final String spaces = indent(nextIndent(indent));
         return "{" + newline(indent) + map.entrySet().stream()
@@ -0,0 +1,215 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.collections.JsonPath;
+import nl.rutilo.yamler.collections.KeyPath;
+import nl.rutilo.yamler.collections.StringKeyMap;
+import nl.rutilo.yamler.utils.Value;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/** Result of lazy parsing (see Yamler.parseYamlLazy()). The documents are stored as a tape
+  * (see YamlTape) from which read-only map and list views are created when accessed. Only the
+  * parts of the document that are accessed allocate, so when just a few paths of a large
+  * document are needed this is much cheaper than parsing into maps and lists.<br><br>
+  *
+  * Views are not thread safe. Keys of map views are strings, like with StringKeyMap.
+  */
+public final class LazyDocument {
+    private static final Object UNRESOLVED = new Object();
+
+    private final YamlerConfig config;
+    private final YamlTape tape;
+    private final List<Object> roots; // tape index per document or null for an empty document
+    private final Map<Integer, Object> anchorViews   = new HashMap<>();
+    private final Map<Integer, Object> anchorObjects = new HashMap<>();
+
+    LazyDocument(YamlerConfig config, YamlTape tape, List<Object> roots) {
+        this.config = config;
+        this.tape = tape;
+        this.roots = roots;
+    }
+
+    /** Number of documents */
+    public int size() { return roots.size(); }
+
+    /** Document at given index: a LazyMap, LazyList, scalar or null */
+    public Object get(int index) {
+        final Object root = roots.get(index);
+        return root == null ? null : view((Integer) root);
+    }
+    public Object first() { return roots.isEmpty() ? null : get(0); }
+
+    /** Documents as a stream, where the view of a document is created when the stream gets to it */
+    public Stream<Object> stream() { return IntStream.range(0, size()).mapToObj(this::get); }
+    /** Matches of given query in each document, in document order (see JsonPath) */
+    public Stream<Object> select(JsonPath query) { return query.stream(stream()); }
+
+    /** First document that is a map or an empty map if no such document exists */
+    public LazyMap firstMap() {
+        for(int i = 0; i < size(); i++) {
+            if(get(i) instanceof LazyMap map) return map;
+        }
+        return new LazyMap(-1);
+    }
+
+    /** Creates all documents as they would have been created by non-lazy parsing */
+    public YamlDocuments materialize() {
+        final YamlDocuments documents = new YamlDocuments();
+        roots.forEach(root -> documents.add(root == null ? null : materializeNode((Integer) root)));
+        return documents;
+    }
+
+    private Object view(int index) {
+        final long node = tape.nodes[index];
+        switch(YamlTape.kind(node)) {
+            case YamlTape.VALUE:  return tape.values[YamlTape.a(node)];
+            case YamlTape.MAP:    return new LazyMap(index);
+            case YamlTape.LIST:   return new LazyList(index);
+            case YamlTape.ALIAS:  return view(YamlTape.b(node));
+            case YamlTape.ANCHOR: // same view for all aliases, like the same object is used when not lazy
+                if(!anchorViews.containsKey(index)) anchorViews.put(index, view(index - 1));
+                return anchorViews.get(index);
+            default: return null;
+        }
+    }
+    private Object materializeNode(int index) {
+        final long node = tape.nodes[index];
+        switch(YamlTape.kind(node)) {
+            case YamlTape.VALUE: return tape.values[YamlTape.a(node)];
+            case YamlTape.MAP: {
+                final int[] ends = tape.childEnds(index);
+                final Map<Object, Object> map = config.createMap(ends.length / 2);
+                for(int i = 0; i < ends.length; i += 2) map.put(materializeNode(ends[i]), materializeNode(ends[i + 1]));
+                return map;
+            }
+            case YamlTape.LIST: {
+                final SequenceBuilder list = new SequenceBuilder(config, null);
+                for(final int end : tape.childEnds(index)) list.add(materializeNode(end));
+                return list.build();
+            }
+            case YamlTape.ALIAS: return materializeNode(YamlTape.b(node));
+            case YamlTape.ANCHOR:
+                if(!anchorObjects.containsKey(index)) anchorObjects.put(index, materializeNode(index - 1));
+                return anchorObjects.get(index);
+            default: return null;
+        }
+    }
+
+    /** Read-only view on a map in the document. Its entries are indexed on first access and
+      * values are created when requested. Getters are the same as those of StringKeyMap.
+      */
+    public final class LazyMap extends AbstractMap<String, Object> {
+        private final int index;
+        private String[] keys;   // unique keys in order, created on first access
+        private int[]    valueEnds;
+        private Object[] views;
+        private Map<String, Integer> positions;
+
+        private LazyMap(int index) { this.index = index; }
+
+        private void indexEntries() {
+            if(keys != null) return;
+            final int[] ends = index < 0 ? new int[0] : tape.childEnds(index);
+            final int pairs = ends.length / 2;
+            keys      = new String[pairs];
+            valueEnds = new int[pairs];
+            positions = new HashMap<>(pairs * 2);
+            int count = 0;
+            for(int i = 0; i < pairs; i++) {
+                final String key = Objects.toString(keyOf(ends[i * 2]));
+                final Integer pos = positions.get(key);
+                if(pos != null) { valueEnds[pos] = ends[i * 2 + 1]; continue; } // last value wins, like Map.put()
+                positions.put(key, count);
+                keys[count] = key;
+                valueEnds[count++] = ends[i * 2 + 1];
+            }
+            keys = Arrays.copyOf(keys, count);
+            views = new Object[count];
+            Arrays.fill(views, UNRESOLVED);
+        }
+        private Object keyOf(int end) {
+            final long node = tape.nodes[end];
+            return YamlTape.kind(node) == YamlTape.VALUE ? tape.values[YamlTape.a(node)] : materializeNode(end);
+        }
+        private Object valueAt(int pos) {
+            if(views[pos] == UNRESOLVED) views[pos] = view(valueEnds[pos]);
+            return views[pos];
+        }
+
+        @Override public int size() { indexEntries(); return keys.length; }
+        @Override public boolean containsKey(Object key) { indexEntries(); return positions.containsKey(key); }
+        @Override public Object get(Object key) {
+            indexEntries();
+            final Integer pos = positions.get(key);
+            return pos == null ? null : valueAt(pos);
+        }
+        @Override public Set<Entry<String, Object>> entrySet() {
+            indexEntries();
+            return new AbstractSet<>() {
+                @Override public int size() { return keys.length; }
+                @Override public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int pos = 0;
+                        @Override public boolean hasNext() { return pos < keys.length; }
+                        @Override public Entry<String, Object> next() {
+                            if(!hasNext()) throw new NoSuchElementException();
+                            final int at = pos++;
+                            return new SimpleImmutableEntry<>(keys[at], valueAt(at));
+                        }
+                    };
+                }
+            };
+        }
+
+        public Object        get(String path)             { return get(KeyPath.cached(path)); }
+        public Value<Object> getValue(String path)        { return KeyPath.cached(path).getValueIn(this); }
+        public Object        get(KeyPath keyPath)         { return keyPath.getValueIn(this).orElse(null); }
+        public Value<Object> getValue(KeyPath keyPath)    { return keyPath.getValueIn(this); }
+        public int     getInt(KeyPath keyPath, int defaultValue)          { return get(keyPath) instanceof Number n ? n.intValue() : defaultValue; }
+        public long    getLong(KeyPath keyPath, long defaultValue)        { return get(keyPath) instanceof Number n ? n.longValue() : defaultValue; }
+        public double  getDouble(KeyPath keyPath, double defaultValue)    { return get(keyPath) instanceof Number n ? n.doubleValue() : defaultValue; }
+        public boolean getBoolean(KeyPath keyPath, boolean defaultValue)  { return get(keyPath) instanceof Boolean b ? b : defaultValue; }
+
+        /** Creates the map (and its children) as it would have been created by non-lazy parsing */
+        public Map<?, ?> materialize() { // NOSONAR wildcards are inevitable here
+            return index < 0 ? config.createMap(0) : (Map<?, ?>) materializeNode(index);
+        }
+        public StringKeyMap toStringKeyMap() { return StringKeyMap.from(materialize()); }
+    }
+
+    /** Read-only view on a list in the document. Items are created when requested. */
+    public final class LazyList extends AbstractList<Object> implements RandomAccess {
+        private final int index;
+        private final int[] ends;
+        private final Object[] views;
+
+        private LazyList(int index) {
+            this.index = index;
+            this.ends = tape.childEnds(index);
+            this.views = new Object[ends.length];
+            Arrays.fill(views, UNRESOLVED);
+        }
+
+        @Override public int size() { return ends.length; }
+        @Override public Object get(int i) {
+            if(views[i] == UNRESOLVED) views[i] = view(ends[i]);
+            return views[i];
+        }
+
+        /** Creates the list (and its children) as it would have been created by non-lazy parsing */
+        public List<?> materialize() { return (List<?>) materializeNode(index); }
+    }
+}
@@ -0,0 +1,78 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.collections.DoubleList;
+import nl.rutilo.yamler.collections.IntList;
+import nl.rutilo.yamler.collections.LongList;
+
+import java.util.List;
+
+/** Collects the items of a parsed sequence. When YamlerConfig.primitiveLists is set, items
+  * are kept in an IntList, LongList or DoubleList for as long as all items are of the same
+  * number type (so element types are the same as without this option). Otherwise, or as
+  * soon as another item type is added, items go into a list from the list generator.
+  * When parsing lazily, items are only counted on the tape.
+  */
+final class SequenceBuilder {
+    private final YamlerConfig config;
+    private final YamlTape     tape;
+    private IntList    ints;
+    private LongList   longs;
+    private DoubleList doubles;
+    private List<Object> list;
+    private int skipped; // items left out by a projection, which become null when a later item is added
+
+    SequenceBuilder(YamlerConfig config, YamlTape tape) {
+        this.config = config;
+        this.tape = tape;
+        if(tape != null) tape.begin(false);
+        else
+        if(!config.primitiveLists) list = config.defaultListGenerator.get();
+    }
+
+    void add(Object item) {
+        for(; skipped > 0; skipped--) append(null);
+        append(item);
+    }
+    /** Leaves out the next item (see YamlProjection) */
+    void skip() { skipped++; }
+
+    private void append(Object item) {
+        if(tape != null) tape.childAdded();
+        else
+        if(list != null) list.add(item);
+        else
+        if(ints != null) { if(item instanceof Integer i) ints.addInt(i); else toList().add(item); }
+        else
+        if(longs != null) { if(item instanceof Long l) longs.addLong(l); else toList().add(item); }
+        else
+        if(doubles != null) { if(item instanceof Double d) doubles.addDouble(d); else toList().add(item); }
+        else
+        if(item instanceof Integer i) { ints = new IntList(); ints.addInt(i); }
+        else
+        if(item instanceof Long l) { longs = new LongList(); longs.addLong(l); }
+        else
+        if(item instanceof Double d) { doubles = new DoubleList(); doubles.addDouble(d); }
+        else toList().add(item);
+    }
+
+    /** Returns the list, or YamlTape.WRITTEN when parsing lazily */
+    Object build() {
+        return tape    != null ? tape.end(YamlTape.LIST)
+             : ints    != null ? ints
+             : longs   != null ? longs
+             : doubles != null ? doubles
+             : list    != null ? list
+             : config.defaultListGenerator.get();
+    }
+
+    private List<Object> toList() {
+        list = config.defaultListGenerator.get();
+        if(ints    != null) list.addAll(ints);
+        if(longs   != null) list.addAll(longs);
+        if(doubles != null) list.addAll(doubles);
+        ints = null;
+        longs = null;
+        doubles = null;
+        return list;
+    }
+}
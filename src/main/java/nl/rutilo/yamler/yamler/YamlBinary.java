@@ -0,0 +1,353 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.utils.Value;
+import nl.rutilo.yamler.yamler.exceptions.YamlerException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/** Binary snapshot format for the trees of maps, lists and scalars that the parser creates.
+  * Reading a snapshot is much cheaper than parsing yaml: there is no tokenizing, no scalar
+  * interpretation and every string is decoded once, no matter how often it occurs.<br><br>
+  *
+  * Layout (varints are unsigned LEB128, signed numbers are zigzag encoded first):
+  * <pre>
+  *   header     'Y' 'B' 'I' 'N' version
+  *   strings    varint count, then per string: varint utf8 length, utf8 bytes
+  *   documents  varint count, then a node per document
+  *   node       tag byte, followed by:
+  *     NULL TRUE FALSE        -
+  *     INT LONG               signed varint
+  *     FLOAT DOUBLE           4 or 8 bytes IEEE 754, big endian
+  *     STRING                 varint index in strings
+  *     BIG_INTEGER BIG_DECIMAL varint index in strings of the number text
+  *     BYTES                  varint length, bytes
+  *     LIST                   varint item count, varint byte length of the items, items
+  *     MAP                    varint entry count, varint byte length of the entries, key and value nodes
+  * </pre>
+  * Containers are length-prefixed so a reader can skip them without looking at their contents,
+  * which is what BinaryDocument does when lazily reading a memory mapped file.<br><br>
+  *
+  * Byte and Short are read back as Integer, other Number types as Long. Objects that are
+  * referenced multiple times (like yaml aliases) are written for each reference.
+  */
+final class YamlBinary {
+    static final byte[] MAGIC   = { 'Y', 'B', 'I', 'N' };
+    static final int    VERSION = 1;
+
+    static final int NULL        = 0;
+    static final int TRUE        = 1;
+    static final int FALSE       = 2;
+    static final int INT         = 3;
+    static final int LONG        = 4;
+    static final int FLOAT       = 5;
+    static final int DOUBLE      = 6;
+    static final int STRING      = 7;
+    static final int BIG_INTEGER = 8;
+    static final int BIG_DECIMAL = 9;
+    static final int BYTES       = 10;
+    static final int LIST        = 11;
+    static final int MAP         = 12;
+
+    private YamlBinary() {}
+
+    /** Writes given documents (or single object) to the output. The output is not closed. */
+    static void write(Object data, OutputStream out) {
+        final List<Object> documents = data instanceof YamlDocuments docs ? docs : Arrays.asList(data);
+        new Writer(out).write(documents);
+    }
+
+    /** Reads all documents from the snapshot in given buffer */
+    static YamlDocuments read(YamlerConfig config, ByteBuffer buffer) {
+        final Reader reader = new Reader(buffer);
+        final YamlDocuments documents = new YamlDocuments();
+        for(int i = reader.varint(); i > 0; i--) documents.add(reader.node(config));
+        return documents;
+    }
+
+    /** Writes in two passes: the first collects the strings and calculates the byte lengths of
+      * all containers, the second streams the nodes to the output.
+      */
+    private static final class Writer {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[8192];
+        private int bufferSize;
+        private final Map<String, Integer> stringIndices = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final Map<Object, Object> converted = new IdentityHashMap<>(); // so both passes see the same objects
+        private int[] containerSizes = new int[64]; // byte lengths of container contents, in pre-order
+        private int containerCount;
+        private int containerIndex;
+
+        Writer(OutputStream out) { this.out = out; }
+
+        void write(List<Object> documents) {
+            for(final Object document : documents) measure(document);
+            writeBytes(MAGIC, 0, MAGIC.length);
+            writeByte(VERSION);
+            writeVarint(strings.size());
+            for(final String s : strings) {
+                final byte[] utf8 = s.getBytes(UTF_8);
+                writeVarint(utf8.length);
+                writeBytes(utf8, 0, utf8.length);
+            }
+            writeVarint(documents.size());
+            for(final Object document : documents) writeNode(document);
+            flush();
+        }
+
+        private Object normalized(Object obj) {
+            if(obj instanceof Optional<?> opt) return normalized(opt.orElse(null));
+            if(obj instanceof Value<?> value)  return normalized(value.orElse(null));
+            if(obj == null || obj instanceof String || obj instanceof Number || obj instanceof Boolean
+            || obj instanceof Map || obj instanceof Collection || obj.getClass().isArray()) return obj;
+            return converted.computeIfAbsent(obj, Yamler::toCollections);
+        }
+        private int stringIndex(String s) {
+            return stringIndices.computeIfAbsent(s, key -> { strings.add(key); return strings.size() - 1; });
+        }
+
+        /** Returns the number of bytes the node will take */
+        private int measure(Object value) { // NOSONAR -- multiple returns adds readability here
+            final Object obj = normalized(value);
+            if(obj == null || obj instanceof Boolean) return 1;
+            if(obj instanceof String s)      return 1 + varintSize(stringIndex(s));
+            if(obj instanceof BigInteger || obj instanceof BigDecimal) return 1 + varintSize(stringIndex(obj.toString()));
+            if(obj instanceof Double)        return 1 + 8;
+            if(obj instanceof Float)         return 1 + 4;
+            if(obj instanceof Number n)      return 1 + varintSize(zigzag(n.longValue()));
+            if(obj instanceof byte[] bytes)  return 1 + varintSize(bytes.length) + bytes.length;
+
+            final int slot = containerCount++;
+            if(slot == containerSizes.length) containerSizes = Arrays.copyOf(containerSizes, slot * 2);
+            int size = 0;
+            int count = 0;
+            if(obj instanceof Map<?,?> map) {
+                for(final Map.Entry<?,?> entry : map.entrySet()) {
+                    size += measure(entry.getKey()) + measure(entry.getValue());
+                    count++;
+                }
+            } else if(obj instanceof Collection<?> items) {
+                for(final Object item : items) { size += measure(item); count++; }
+            } else {
+                count = Array.getLength(obj);
+                for(int i = 0; i < count; i++) size += measure(Array.get(obj, i));
+            }
+            containerSizes[slot] = size;
+            return 1 + varintSize(count) + varintSize(size) + size;
+        }
+
+        private void writeNode(Object value) { // NOSONAR -- multiple returns adds readability here
+            final Object obj = normalized(value);
+            if(obj == null)                  { writeByte(NULL); return; }
+            if(obj instanceof Boolean b)     { writeByte(b ? TRUE : FALSE); return; }
+            if(obj instanceof String s)      { writeByte(STRING); writeVarint(stringIndices.get(s)); return; }
+            if(obj instanceof BigInteger)    { writeByte(BIG_INTEGER); writeVarint(stringIndices.get(obj.toString())); return; }
+            if(obj instanceof BigDecimal)    { writeByte(BIG_DECIMAL); writeVarint(stringIndices.get(obj.toString())); return; }
+            if(obj instanceof Double d)      { writeByte(DOUBLE); writeLong(Double.doubleToRawLongBits(d), 8); return; }
+            if(obj instanceof Float f)       { writeByte(FLOAT); writeLong(Float.floatToRawIntBits(f), 4); return; }
+            if(obj instanceof Long l)        { writeByte(LONG); writeVarint(zigzag(l)); return; }
+            if(obj instanceof Integer || obj instanceof Short || obj instanceof Byte) { writeByte(INT); writeVarint(zigzag(((Number) obj).longValue())); return; }
+            if(obj instanceof Number n)      { writeByte(LONG); writeVarint(zigzag(n.longValue())); return; }
+            if(obj instanceof byte[] bytes)  { writeByte(BYTES); writeVarint(bytes.length); writeBytes(bytes, 0, bytes.length); return; }
+
+            final int size = containerSizes[containerIndex++];
+            if(obj instanceof Map<?,?> map) {
+                writeByte(MAP);
+                writeVarint(map.size());
+                writeVarint(size);
+                for(final Map.Entry<?,?> entry : map.entrySet()) {
+                    writeNode(entry.getKey());
+                    writeNode(entry.getValue());
+                }
+            } else if(obj instanceof Collection<?> items) {
+                writeByte(LIST);
+                writeVarint(items.size());
+                writeVarint(size);
+                for(final Object item : items) writeNode(item);
+            } else {
+                final int length = Array.getLength(obj);
+                writeByte(LIST);
+                writeVarint(length);
+                writeVarint(size);
+                for(int i = 0; i < length; i++) writeNode(Array.get(obj, i));
+            }
+        }
+
+        private static long zigzag(long n) { return (n << 1) ^ (n >> 63); }
+        private static int varintSize(long n) {
+            int size = 1;
+            while((n >>>= 7) != 0) size++;
+            return size;
+        }
+
+        private void writeVarint(long n) {
+            while((n & ~0x7FL) != 0) {
+                writeByte((int) ((n & 0x7F) | 0x80));
+                n >>>= 7;
+            }
+            writeByte((int) n);
+        }
+        private void writeLong(long bits, int byteCount) {
+            for(int shift = (byteCount - 1) * 8; shift >= 0; shift -= 8) writeByte((int) (bits >>> shift));
+        }
+        private void writeByte(int b) {
+            if(bufferSize == buffer.length) flush();
+            buffer[bufferSize++] = (byte) b;
+        }
+        private void writeBytes(byte[] bytes, int offset, int length) {
+            if(length > buffer.length - bufferSize) {
+                flush();
+                if(length > buffer.length) { output(bytes, offset, length); return; }
+            }
+            System.arraycopy(bytes, offset, buffer, bufferSize, length);
+            bufferSize += length;
+        }
+        private void flush() {
+            output(buffer, 0, bufferSize);
+            bufferSize = 0;
+        }
+        private void output(byte[] bytes, int offset, int length) {
+            try {
+                out.write(bytes, offset, length);
+            } catch(final IOException e) {
+                throw new YamlerException("Unable to write binary: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /** Reads nodes from a buffer. The string table is indexed when created, but strings are only
+      * decoded when first requested. Reading moves the position (pos) forward.
+      */
+    static final class Reader {
+        final ByteBuffer buffer;
+        int pos;
+        private final int[] stringOffsets; // offset of the utf8 bytes of each string
+        private final int[] stringLengths;
+        private final String[] strings;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+            for(final byte b : MAGIC) if(byteAt(pos++) != b) throw new YamlerException("Not a yamler binary snapshot");
+            final int version = byteAt(pos++);
+            if(version != VERSION) throw new YamlerException("Unsupported yamler binary version: " + version);
+            final int count = varint();
+            stringOffsets = new int[count];
+            stringLengths = new int[count];
+            strings = new String[count];
+            for(int i = 0; i < count; i++) {
+                stringLengths[i] = varint();
+                stringOffsets[i] = pos;
+                pos += stringLengths[i];
+            }
+        }
+
+        private int byteAt(int at) {
+            if(at >= buffer.limit()) throw new YamlerException("Unexpected end of yamler binary at " + at);
+            return buffer.get(at);
+        }
+        int tag() { return byteAt(pos++); }
+
+        long longVarint() {
+            long result = 0;
+            for(int shift = 0; ; shift += 7) {
+                final int b = byteAt(pos++);
+                result |= (long) (b & 0x7F) << shift;
+                if((b & 0x80) == 0) return result;
+            }
+        }
+        int varint() { return (int) longVarint(); }
+        private long signedVarint() {
+            final long n = longVarint();
+            return (n >>> 1) ^ -(n & 1);
+        }
+
+        String string(int index) {
+            if(strings[index] == null) {
+                final byte[] utf8 = new byte[stringLengths[index]];
+                buffer.get(stringOffsets[index], utf8);
+                strings[index] = new String(utf8, UTF_8);
+            }
+            return strings[index];
+        }
+
+        /** Reads the value of a scalar of which the tag was just read */
+        Object scalar(int tag) {
+            switch(tag) {
+                case NULL:        return null;
+                case TRUE:        return Boolean.TRUE;
+                case FALSE:       return Boolean.FALSE;
+                case INT:         return (int) signedVarint();
+                case LONG:        return signedVarint();
+                case FLOAT:       pos += 4; return buffer.getFloat(pos - 4);
+                case DOUBLE:      pos += 8; return buffer.getDouble(pos - 8);
+                case STRING:      return string(varint());
+                case BIG_INTEGER: return new BigInteger(string(varint()));
+                case BIG_DECIMAL: return new BigDecimal(string(varint()));
+                case BYTES: {
+                    final byte[] bytes = new byte[varint()];
+                    buffer.get(pos, bytes);
+                    pos += bytes.length;
+                    return bytes;
+                }
+                default: throw new YamlerException("Unexpected tag in yamler binary at " + (pos - 1) + ": " + tag);
+            }
+        }
+
+        /** Reads the node at pos, creating maps and lists like the parser would */
+        Object node(YamlerConfig config) {
+            final int tag = tag();
+            if(tag == MAP) {
+                final int count = varint();
+                varint(); // byte length, only needed for skipping
+                final Map<Object, Object> map = config.createMap(count);
+                for(int i = 0; i < count; i++) {
+                    final Object key = node(config);
+                    map.put(key, node(config));
+                }
+                return map;
+            }
+            if(tag == LIST) {
+                final int count = varint();
+                varint();
+                final SequenceBuilder list = new SequenceBuilder(config, null);
+                for(int i = 0; i < count; i++) list.add(node(config));
+                return list.build();
+            }
+            return scalar(tag);
+        }
+
+        /** Moves pos past the node at pos */
+        void skip() {
+            final int tag = tag();
+            switch(tag) {
+                case NULL: case TRUE: case FALSE: break;
+                case FLOAT:  pos += 4; break;
+                case DOUBLE: pos += 8; break;
+                case BYTES:  skipBytes(varint()); break;
+                case MAP: case LIST:
+                    varint();
+                    skipBytes(varint());
+                    break;
+                default: longVarint(); // INT, LONG, STRING, BIG_INTEGER, BIG_DECIMAL
+            }
+        }
+        private void skipBytes(int length) { // not 'pos += varint()', which would add to pos before the varint was read
+            pos += length;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package nl.rutilo.yamler.yamler;
+
+import lombok.Builder;
+import nl.rutilo.yamler.collections.DoubleList;
+import nl.rutilo.yamler.collections.IntList;
+import nl.rutilo.yamler.collections.LongList;
+import nl.rutilo.yamler.yamler.exceptions.YamlerException;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/** Cache of parsed documents, used by Yamler when set in YamlerConfig.cache. Files are keyed by
+  * path and reparsed when their size or modification time changed. When cacheStrings is set,
+  * parsed yaml text is cached as well, keyed by the SHA-256 of the text.<br><br>
+  *
+  * Cached maps and lists are made unmodifiable once (without copying, except for collections
+  * that can't be changed in place, like those of the !!seq and !!map handlers), so callers that get the
+  * same documents can't change them for each other. Least recently used entries are evicted
+  * when there are more than maxEntries or when the total weight (text length) gets above
+  * maxWeight (0 means no limit). With softValues the garbage collector may clear documents
+  * when memory runs low.<br><br>
+  *
+  * Thread safe. Parsing is done outside the lock, so concurrent misses of the same key may
+  * both parse.
+  */
+public final class YamlCache {
+    /** Statistics since creation or last clear() */
+    public record Stats(long hits, long misses, long evictions, int size, long weight) {}
+
+    private final int     maxEntries;
+    private final long    maxWeight;
+    private final boolean softValues;
+    public  final boolean cacheStrings;
+
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // in access order
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private final class Entry {
+        final long size;
+        final long modified;
+        final long weight;
+        final Object documents; // YamlDocuments or SoftReference to it
+
+        Entry(long size, long modified, long weight, YamlDocuments documents) {
+            this.size = size;
+            this.modified = modified;
+            this.weight = weight;
+            this.documents = softValues ? new SoftReference<>(documents) : documents;
+        }
+        YamlDocuments documents() {
+            return documents instanceof SoftReference<?> ref ? (YamlDocuments) ref.get() : (YamlDocuments) documents;
+        }
+    }
+
+    @Builder
+    private YamlCache(int maxEntries, long maxWeight, boolean softValues, boolean cacheStrings) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.softValues = softValues;
+        this.cacheStrings = cacheStrings;
+    }
+
+    /** Parsed documents of given file, from cache when the file did not change */
+    YamlDocuments get(Path file, Function<String, YamlDocuments> parser) {
+        final Path key = file.toAbsolutePath().normalize();
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+            final long modified = attributes.lastModifiedTime().toMillis();
+            final YamlDocuments cached = lookup(key, attributes.size(), modified);
+            if(cached != null) return cached;
+            final String text = Files.readString(key, UTF_8);
+            final YamlDocuments documents = parsed(parser, text);
+            return store(key, new Entry(attributes.size(), modified, text.length(), documents), documents);
+        } catch (final IOException e) {
+            throw new YamlerException("Unable to read " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** Parsed documents of given text, from cache when the same text was parsed before */
+    YamlDocuments get(String text, Function<String, YamlDocuments> parser) {
+        final String key = sha256(text);
+        final YamlDocuments cached = lookup(key, text.length(), 0);
+        if(cached != null) return cached;
+        final YamlDocuments documents = parsed(parser, text);
+        return store(key, new Entry(text.length(), 0, text.length(), documents), documents);
+    }
+
+    public synchronized Stats stats() { return new Stats(hits, misses, evictions, entries.size(), weight); }
+
+    public synchronized void invalidate(Path file) {
+        final Entry entry = entries.remove(file.toAbsolutePath().normalize());
+        if(entry != null) weight -= entry.weight;
+    }
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    private synchronized YamlDocuments lookup(Object key, long size, long modified) {
+        final Entry entry = entries.get(key);
+        final YamlDocuments documents = entry == null || entry.size != size || entry.modified != modified ? null : entry.documents();
+        final YamlerMetrics metrics = Yamler.metrics();
+        if(metrics.isEnabled()) metrics.cacheAccessed(YamlerMetrics.Cache.YAML, documents != null);
+        if(documents == null) {
+            misses++;
+            if(entry != null) { // changed file or collected by the gc
+                entries.remove(key);
+                weight -= entry.weight;
+            }
+            return null;
+        }
+        hits++;
+        return copyOf(documents);
+    }
+    private synchronized YamlDocuments store(Object key, Entry entry, YamlDocuments documents) {
+        final Entry old = entries.put(key, entry);
+        if(old != null) weight -= old.weight;
+        weight += entry.weight;
+        for(final Iterator<Entry> it = entries.values().iterator(); it.hasNext() && isOverLimit(); ) {
+            weight -= it.next().weight;
+            it.remove();
+            evictions++;
+        }
+        return copyOf(documents);
+    }
+    private boolean isOverLimit() {
+        return (maxEntries > 0 && entries.size() > maxEntries) || (maxWeight > 0 && weight > maxWeight);
+    }
+
+    private static YamlDocuments parsed(Function<String, YamlDocuments> parser, String text) {
+        return unmodifiable(parser.apply(text));
+    }
+    /** Makes the maps and lists in given documents unmodifiable, copying only those that can't be changed */
+    static YamlDocuments unmodifiable(YamlDocuments parsed) {
+        final Map<Object, Object> done = new IdentityHashMap<>(); // aliases share maps and lists
+        final YamlDocuments documents = new YamlDocuments();
+        for(final Object document : parsed) documents.add(unmodifiable(document, done));
+        return documents;
+    }
+    /** The documents list itself is not shared, so callers can't replace documents */
+    private static YamlDocuments copyOf(YamlDocuments documents) {
+        final YamlDocuments copy = new YamlDocuments();
+        copy.addAll(documents);
+        return copy;
+    }
+    private static Object unmodifiable(Object obj, Map<Object, Object> done) {
+        if(!(obj instanceof Map || obj instanceof List)) return obj;
+        final Object existing = done.get(obj);
+        if(existing != null) return existing;
+        if(obj instanceof Map<?,?> map) {
+            final Map<Object, Object> values = (Map<Object, Object>) map;
+            done.put(obj, Collections.unmodifiableMap(values));
+            try {
+                values.replaceAll((key, value) -> unmodifiable(value, done));
+            } catch(final UnsupportedOperationException immutable) { // like the result of the !!map handler
+                final Map<Object, Object> copy = new LinkedHashMap<>(values);
+                done.put(obj, Collections.unmodifiableMap(copy));
+                copy.replaceAll((key, value) -> unmodifiable(value, done));
+            }
+        } else {
+            final List<Object> values = (List<Object>) obj;
+            done.put(obj, Collections.unmodifiableList(values));
+            if(!(obj instanceof IntList || obj instanceof LongList || obj instanceof DoubleList)) {
+                try {
+                    values.replaceAll(value -> unmodifiable(value, done));
+                } catch(final UnsupportedOperationException immutable) { // like the result of the !!seq handler
+                    final List<Object> copy = new ArrayList<>(values);
+                    done.put(obj, Collections.unmodifiableList(copy));
+                    copy.replaceAll(value -> unmodifiable(value, done));
+                }
+            }
+        }
+        return done.get(obj);
+    }
+
+    private static String sha256(String text) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 should be supported by every JVM", e);
+        }
+    }
+}
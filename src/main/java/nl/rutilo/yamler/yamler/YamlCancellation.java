@@ -0,0 +1,78 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.yamler.exceptions.YamlerCancelledException;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/** Deadline and/or cancel flag for a parse or mapping, so a server can give up on a large input
+  * when its time budget is spent or when it is overloaded. Pass it to Yamler.parseYaml or
+  * Yamler.mapYamlToClass: the tokenizer checks it every CHECK_INTERVAL tokens and the object
+  * mapper every CHECK_INTERVAL values, which then throw a YamlerCancelledException.<br><br>
+  *
+  * cancel() can be called from any thread. Checking is meant for one call at a time: the
+  * countdown to the next check is not synchronized (sharing a cancellation between concurrent
+  * calls only makes the checks less regular).
+  */
+public final class YamlCancellation {
+    static final int CHECK_INTERVAL = 1024;
+    private static final ThreadLocal<YamlCancellation> current = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private volatile boolean cancelled;
+    private int countdown = CHECK_INTERVAL;
+
+    private YamlCancellation(long deadlineNanos) { this.deadlineNanos = deadlineNanos; }
+
+    /** Cancellation without deadline that only stops when cancel() is called */
+    public static YamlCancellation create() { return new YamlCancellation(Long.MAX_VALUE); }
+
+    /** Cancellation that stops when given time has passed (or when cancel() is called) */
+    public static YamlCancellation deadline(Duration timeout) {
+        final long nanos;
+        try {
+            nanos = timeout.toNanos();
+        } catch(final ArithmeticException tooLong) {
+            return create();
+        }
+        return new YamlCancellation(System.nanoTime() + Math.min(nanos, Long.MAX_VALUE / 2));
+    }
+
+    public void cancel() { cancelled = true; }
+
+    public boolean isCancelled() {
+        return cancelled || (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos >= 0);
+    }
+
+    /** Reason to put in the exception when cancelled, or null when not cancelled */
+    String reason() {
+        if(cancelled) return "Cancelled";
+        return isCancelled() ? "Deadline passed" : null;
+    }
+
+    /** Cheap enough to call per value: only checks every CHECK_INTERVAL calls */
+    public void tick() {
+        if(--countdown > 0) return;
+        countdown = CHECK_INTERVAL;
+        check();
+    }
+    public void check() {
+        final String reason = reason();
+        if(reason != null) throw new YamlerCancelledException(reason);
+    }
+
+    /** Calls given supplier with this as current cancellation of this thread */
+    <T> T call(Supplier<T> supplier) {
+        check();
+        final YamlCancellation previous = current.get();
+        current.set(this);
+        try {
+            return supplier.get();
+        } finally {
+            if(previous == null) current.remove(); else current.set(previous);
+        }
+    }
+
+    /** The cancellation of the parse or mapping running on this thread, or null if there is none */
+    public static YamlCancellation current() { return current.get(); }
+}
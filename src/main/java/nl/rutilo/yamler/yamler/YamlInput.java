@@ -10,8 +10,8 @@ import java.util.stream.Collectors;
 import static java.lang.Character.isWhitespace;
 
 public class YamlInput {
-    final YamlerConfig config;
-    final char[] input;
+    YamlerConfig config; // can change when reused, see reset(YamlerConfig, char[])
+    char[] input;
     int offset;
     int indent;
     int posInLine;
@@ -50,6 +50,21 @@ public class YamlInput {
         this.lineNo = 0;
     }
 
+    /** Same as reset(newInput), reading with given config from now on */
+    protected void reset(YamlerConfig newConfig, char[] newInput) {
+        this.config = newConfig;
+        reset(newInput);
+    }
+    /** Starts reading given input from the start, so an instance can be reused for another text */
+    protected void reset(char[] newInput) {
+        this.input = newInput;
+        this.offset = 0;
+        this.indent = 0;
+        this.posInLine = 0;
+        this.lineNo = 0;
+        stateWasReset();
+    }
+
     //<editor-fold desc="Getting and setting state">
     public State getState() { return new State(this); }
     public void setState(State state) { state.copyInto(this); stateWasReset(); }
@@ -63,8 +78,9 @@ public class YamlInput {
 
     //<editor-fold desc="Error handling">
     YamlerException error(String... error)  {
-        return new YamlerException(String.join(" ", error) + " on line " + lineNumber() + ":\n" + posText());
+        return new YamlerException(positioned(String.join(" ", error)));
     }
+    String positioned(String message) { return message + " on line " + lineNumber() + ":\n" + posText(); }
     int lineStartPos()        { int pos = Math.min(offset, input.length-1); while(pos>=0 && input[pos]!='\n') pos--; return pos+1; } // NOSONAR
     int lineNumber()          { int n=1; int pos = Math.min(offset, input.length-1); while(pos>0) if(input[pos--]=='\n') n++; return n; } // NOSONAR
     String posText()          {
@@ -1,10 +1,16 @@
 package nl.rutilo.yamler.yamler;
 
 import nl.rutilo.yamler.utils.Value;
+import nl.rutilo.yamler.yamler.events.YamlParseEvent;
 import nl.rutilo.yamler.yamler.exceptions.YamlerException;
 
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import static nl.rutilo.yamler.yamler.YamlTokenizer.TokenType.END;
 import static nl.rutilo.yamler.yamler.YamlTokenizer.TokenType.END_DOC;
@@ -21,6 +27,20 @@ import static nl.rutilo.yamler.yamler.YamlTokenizer.TokenType.SEPARATOR_KV;
 })
 public class YamlParser extends YamlTokenizer {
     final YamlContext context;
+    private int[] mapSizeHints = new int[16]; // size of the last map per map nesting level
+    private int mapNesting;
+    private YamlTape tape; // only set while parsing lazily
+    private YamlProjection projection; // of the next parse (defaults to config.projection)
+    private YamlProjection.Node projected; // projection of the current value, null when all is kept
+    private int skipping; // larger than 0 while parsing a value that is not projected
+    private int tagging; // larger than 0 while a tag handler reads its value, which needs its scalars
+    private String source; // for YamlParseEvent
+    private Map<String, Integer> lastAliasOffsets; // for projection, found when first needed
+    // Limits (see YamlerConfig.maxDepth etc.)
+    private int nesting;
+    private long nodes; // where an alias counts as the number of nodes of its anchored value
+    private long aliasExpansion;
+    private final Map<String, Long> anchorSizes = new HashMap<>();
 
     public YamlParser(String yamlText) {
         this(YamlerConfig.DEFAULT, yamlText);
@@ -29,6 +49,47 @@ public class YamlParser extends YamlTokenizer {
         super(config, yamlText);
         this.context = new YamlContext();
     }
+
+    /** Prepares this parser for parsing another text with the same config. The buffers, the
+      * context and the map size hints of the previous parse are reused, which is why Yamler keeps
+      * a parser per thread.
+      */
+    public YamlParser reset(String yamlText) {
+        reset(yamlText.toCharArray());
+        return this;
+    }
+    /** Same as reset(yamlText), parsing with given config from now on */
+    public YamlParser reset(YamlerConfig newConfig, String yamlText) {
+        reset(newConfig, yamlText.toCharArray());
+        return this;
+    }
+    @Override protected void reset(char[] newInput) {
+        super.reset(newInput);
+        context.reset();
+        mapNesting = 0;
+        tape = null;
+        projection = null;
+        projected = null;
+        skipping = 0;
+        tagging = 0;
+        source = null;
+        lastAliasOffsets = null;
+        nesting = 0;
+        nodes = 0;
+        aliasExpansion = 0;
+        anchorSizes.clear();
+    }
+
+    /** Sets the projection for the next parse, instead of YamlerConfig.projection */
+    YamlParser projection(YamlProjection projection) {
+        this.projection = projection;
+        return this;
+    }
+    /** Sets where the text comes from, like a file name (only used to describe parses) */
+    YamlParser source(String source) {
+        this.source = source;
+        return this;
+    }
     private YamlerConfig.ParseInfo createParseInfoFor(final int depth) {
         return new YamlerConfig.ParseInfo() {
             @Override public Object nextObject(boolean deep) {
@@ -52,6 +113,13 @@ public class YamlParser extends YamlTokenizer {
         Value<Object>        result    = Value.empty();
         Value<YamlDocuments> documents = Value.empty();
 
+        final YamlParseEvent event = new YamlParseEvent();
+        event.begin();
+        final YamlerMetrics metrics = config.metrics != null ? config.metrics : Yamler.metrics();
+        final long startNanos = metrics.isEnabled() ? System.nanoTime() : 0;
+        int documentCount = 0;
+        final YamlProjection projection = this.projection != null ? this.projection : config.projection;
+        projected = tape == null && projection != null && !projection.root.keepsAll() ? projection.root : null;
         try {
             while (!ended()) {
                 if(peekToken().type == END_DOC) {
@@ -62,8 +130,10 @@ public class YamlParser extends YamlTokenizer {
                     result.ifBothPresent(documents, (res, doc) -> doc.add(res));
                     result = Value.empty();
                     context.reset();
+                    anchorSizes.clear();
                 }
-                final Object parseResult = nextObject(-1);
+                if(++documentCount > config.maxDocuments && config.maxDocuments > 0) throw error("More than " + config.maxDocuments + " documents");
+                final Object parseResult = tape == null ? nextObject(-1) : tape.root(nextObject(-1));
                 if(!peekToken().isType(END, END_DOC)) throw error("Illegal token: " + peekToken().type);
                 if(flowListDepth > 0) throw error("Unterminated list");
                 if(flowMapDepth > 0) throw error("Unterminated map");
@@ -83,14 +153,40 @@ public class YamlParser extends YamlTokenizer {
             result = Value.ofNullable(documents.map(d->d.get(0)).or(Value.ofNullable(null)));
         }
 
-        return documents.map(List::size).orElse(0) > 0
+        final YamlDocuments parsed = documents.map(List::size).orElse(0) > 0
             ? documents.get()
             : result.map(YamlDocuments::of)
                     .orElseGet(() -> YamlDocuments.of((Object)null));
+        if(metrics.isEnabled()) metrics.parsed(input.length, parsed.size(), tokenCount, System.nanoTime() - startNanos);
+        if(event.shouldCommit()) {
+            event.chars = input.length;
+            event.documents = parsed.size();
+            event.source = source;
+            event.commit();
+        }
+        return parsed;
+    }
+
+    /** Same as parse() but instead of creating maps and lists, the structure is recorded on a
+      * tape of longs. Maps and lists are only created when accessed via the LazyDocument.
+      */
+    public LazyDocument parseLazy() {
+        tape = new YamlTape();
+        try {
+            return new LazyDocument(config, tape, parse());
+        } finally {
+            tape = null;
+        }
     }
 
+    // When parsing lazily, each parsed object is written to the tape and a non-null marker
+    // is returned instead, so the code below can be the same for both eager and lazy parsing.
+    private Object nullNode() { return tape == null ? null : tape.value(null, offset); }
+    private Object valueNode(Token token) { return tape == null ? token.value : tape.value(token.value, token.offset); }
+
     private Object nextObject(int currentMapDepth) { return nextObject(currentMapDepth, true); }
     private Object nextObject(int currentMapDepth, boolean checkIfFollowedByColon) {
+        if(++nodes > config.maxNodes && config.maxNodes > 0) throw error("More than " + config.maxNodes + " nodes");
         final Token token = peekToken();
         final int depth = token.posInLine;
         final Object result;
@@ -108,7 +204,7 @@ public class YamlParser extends YamlTokenizer {
             case MAP_KEY_FOLLOWS:
                 nextToken();
                 final Object keyVal = peekToken().isType(SEPARATOR, SEPARATOR_KV, MAP_END, LIST_END)
-                    ? null : nextObject(depth, /*checkColon=*/false);
+                    ? nullNode() : nextObject(depth, /*checkColon=*/false);
                 if(depth > currentMapDepth) {
                     result = parseBlockMap(depth, /*firstKey=*/keyVal);
                 } else {
@@ -124,24 +220,30 @@ public class YamlParser extends YamlTokenizer {
             case SEPARATOR:
                 throw error("Unexpected separator");
             case SEPARATOR_KV: // empty key for map
-                if(depth == currentMapDepth) { result = null; nextToken(); }
-                else result = parseBlockMap(depth, null);
+                if(depth == currentMapDepth) { result = nullNode(); nextToken(); }
+                else result = parseBlockMap(depth, nullNode());
                 break;
             case SCALAR:
             case EMPTY:
             case END:
             case END_DOC:
                 nextToken();
-                result = token.value;
+                result = valueNode(token);
                 break;
             case REF:
                 nextToken();
-                result = nextObject(currentMapDepth, checkIfFollowedByColon);
-                context.storeRef(token.value.toString(), result);
+                final long nodesBeforeAnchor = nodes;
+                result = (skipping > 0 || projected != null) && isAliasedLater(token.value.toString())
+                    ? nextObjectKeepingAll(currentMapDepth, checkIfFollowedByColon)
+                    : nextObject(currentMapDepth, checkIfFollowedByColon);
+                context.storeRef(token.value.toString(), tape == null ? result : tape.anchor());
+                anchorSizes.put(token.value.toString(), nodes - nodesBeforeAnchor);
                 break;
             case USE_REF:
-                result = context.getRef(token.value.toString())
+                final Object ref = context.getRef(token.value.toString())
                     .orElseThrow(() -> error("Unknown ref: \"" + token.value + "\""));
+                expandAlias(token.value.toString());
+                result = tape == null ? ref : tape.alias(ref, token.offset);
                 nextToken();
                 break;
             case TAG:
@@ -149,7 +251,12 @@ public class YamlParser extends YamlTokenizer {
                 int tdepth =
                     inFlowList ? flowListDepth + 1 :
                     inFlowMap  ? flowMapDepth + 1 : 0;
-                result = config.handleTag(token.value.toString(), createParseInfoFor(tdepth));
+                tagging++;
+                try {
+                    result = handleTag(token, createParseInfoFor(tdepth));
+                } finally {
+                    tagging--;
+                }
                 break;
             default:
                 throw error("Unhandled token:" + token);
@@ -165,18 +272,124 @@ public class YamlParser extends YamlTokenizer {
         return result;
     }
 
+    /** Limits: an alias counts as its anchored value (which may contain aliases itself) */
+    private void expandAlias(String anchor) {
+        final long size = anchorSizes.getOrDefault(anchor, 1L);
+        nodes += size - 1; // the alias itself was already counted
+        aliasExpansion += size;
+        if(aliasExpansion > config.maxAliasExpansion && config.maxAliasExpansion > 0) {
+            throw error("Aliases expand to more than " + config.maxAliasExpansion + " nodes");
+        }
+        if(nodes > config.maxNodes && config.maxNodes > 0) throw error("More than " + config.maxNodes + " nodes");
+    }
+    /** Limits: called when parsing of a map or list starts (and nesting-- when it ends) */
+    private void nest() {
+        if(++nesting > config.maxDepth && config.maxDepth > 0) throw error("Nesting deeper than " + config.maxDepth);
+    }
+
+    /** Projection: sets the projection for the value at given map key or list index. Returns
+      * false if that value is not projected, in which case it is skipped until exit().
+      */
+    private boolean enter(Object keyOrIndex) {
+        if(projected == null || skipping > 0) return true;
+        final YamlProjection.Node child = projected.child(Objects.toString(keyOrIndex));
+        if(child == null) { skipping++; return false; }
+        projected = child.keepsAll() ? null : child;
+        return true;
+    }
+    /** Projection: same as enter(key), for the item at given list index */
+    private boolean enter(int index) {
+        if(projected == null || skipping > 0) return true;
+        final YamlProjection.Node child = projected.item(index);
+        if(child == null) { skipping++; return false; }
+        projected = child.keepsAll() ? null : child;
+        return true;
+    }
+    /** Scalars of skipped values are only scanned: their text and numbers are never created */
+    @Override protected boolean isScanningScalars() { return skipping > 0 && tagging == 0; }
+
+    /** Restores the projection of the parent. Returns true if given value should be kept, which
+      * is when it is projected and, if only paths below it are projected, a map or a list
+      * (or a scalar when the projection is of a class).
+      */
+    private boolean exit(YamlProjection.Node parent, boolean entered, Object value) {
+        if(!entered) skipping--;
+        final boolean keep = entered && (projected == null || skipping > 0 || value instanceof Map<?,?> || value instanceof List<?> || projected.keepsScalars());
+        projected = parent;
+        return keep;
+    }
+    private boolean isProjected(Object key) {
+        if(projected == null || skipping > 0) return true;
+        final YamlProjection.Node child = projected.child(Objects.toString(key));
+        return child != null && (child.keepsAll() || child.keepsScalars()); // a null value is kept only when fully projected or bound to a class
+    }
+    /** Anchored values that are skipped or projected are parsed completely when aliased later */
+    private Object nextObjectKeepingAll(int currentMapDepth, boolean checkIfFollowedByColon) {
+        final YamlProjection.Node oldProjected = projected;
+        final int oldSkipping = skipping;
+        projected = null;
+        skipping = 0;
+        try {
+            return nextObject(currentMapDepth, checkIfFollowedByColon);
+        } finally {
+            projected = oldProjected;
+            skipping = oldSkipping;
+        }
+    }
+    private boolean isAliasedLater(String anchor) {
+        if(lastAliasOffsets == null) lastAliasOffsets = findLastAliasOffsets();
+        return lastAliasOffsets.getOrDefault(anchor, -1) > offset;
+    }
+    /** Offset of the last '*name' of each name in the input, read once per parse. Also '*'s that
+      * are not aliases (like in quoted text) are included, which only means some anchored values
+      * are kept unnecessarily. A name is added both up to a following whitespace (block) and up
+      * to a following ',', ']' or '}' (flow), like the tokenizer reads aliases.
+      */
+    private Map<String, Integer> findLastAliasOffsets() {
+        final Map<String, Integer> offsets = new HashMap<>();
+        for(int i = 0; i < input.length; i++) {
+            if(input[i] != '*') continue;
+            int end = i + 1;
+            int flowEnd = -1;
+            while(end < input.length && !Character.isWhitespace(input[end])) {
+                if(flowEnd < 0 && (input[end] == ',' || input[end] == ']' || input[end] == '}')) flowEnd = end;
+                end++;
+            }
+            if(end > i + 1) offsets.put(new String(input, i + 1, end - i - 1), i);
+            if(flowEnd > i + 1) offsets.put(new String(input, i + 1, flowEnd - i - 1), i);
+            i = end - 1;
+        }
+        return offsets;
+    }
+
+    private Object handleTag(Token token, YamlerConfig.ParseInfo parseInfo) {
+        if(tape == null) return config.handleTag(token.value.toString(), parseInfo);
+        final YamlTape lazyTape = tape;
+        tape = null; // tag handlers work with actual objects
+        try {
+            return lazyTape.value(config.handleTag(token.value.toString(), parseInfo), token.offset);
+        } finally {
+            tape = lazyTape;
+        }
+    }
+
     private boolean isEnd() {
         return peekToken().isType(END, END_DOC);
     }
 
-    private List<?> parseFlowList(int currentMapDepth) {
-        final List<Object> list = config.defaultListGenerator.get();
+    private Object parseFlowList(int currentMapDepth) {
+        nest();
+        final SequenceBuilder list = new SequenceBuilder(config, tape);
         final boolean oldInFlowList = inFlowList;
         inFlowList = true; // TODO: reset peek token needed?
 
-        while(peekToken().type != LIST_END) {
+        for(int index = 0; ; index++) {
+            final YamlProjection.Node parentProjection = projected;
+            final boolean entered = enter(index); // before peeking, so the item is only scanned when skipped
+            if(peekToken().type == LIST_END) { exit(parentProjection, entered, null); break; }
             // a comma means an empty value
-            list.add(peekToken().type == SEPARATOR ? null : nextObject(currentMapDepth));
+            final Object item = peekToken().type == SEPARATOR ? nullNode() : nextObject(currentMapDepth);
+            if(exit(parentProjection, entered, item)) list.add(item); else list.skip();
             if(peekToken().type == LIST_END) break;
             if(peekToken().type != SEPARATOR) throw error("Unexpected token in list: " + peekToken().type);
             nextToken();
@@ -184,30 +397,59 @@ public class YamlParser extends YamlTokenizer {
         if(peekToken().type == LIST_END) nextToken();
 
         inFlowList = oldInFlowList;
-        return list;
+        nesting--;
+        return list.build();
     }
-    private List<Object> parseBlockList(int currentMapDepth) {
-        final List<Object> list = config.defaultListGenerator.get();
+    private Object parseBlockList(int currentMapDepth) {
+        nest();
+        final SequenceBuilder list = new SequenceBuilder(config, tape);
         final boolean oldInFlowList = inFlowList;
         final boolean oldInFlowMap  = inFlowMap;
         inFlowList = false;
         inFlowMap = false;
         final int depth = peekToken().posInLine;
 
-        while(peekToken().type == LIST_ITEM && peekToken().posInLine == depth) {
+        for(int index = 0; peekToken().type == LIST_ITEM && peekToken().posInLine == depth; index++) {
             nextToken();
-            list.add(peekToken().type == LIST_ITEM && peekToken().posInLine == depth ? null : nextObject(currentMapDepth));
+            final YamlProjection.Node parentProjection = projected;
+            final boolean entered = enter(index);
+            final Object item = peekToken().type == LIST_ITEM && peekToken().posInLine == depth ? nullNode() : nextObject(currentMapDepth);
+            if(exit(parentProjection, entered, item)) list.add(item); else list.skip();
         }
         if(peekToken().type == LIST_ITEM && peekToken().posInLine > depth) {
             throw error("Illegal list indent (" + peekToken().posInLine + " > " + currentMapDepth + ")");
         }
         inFlowList = oldInFlowList;
         inFlowMap = oldInFlowMap;
-        return list;
+        nesting--;
+        return list.build();
+    }
+
+    /** Sibling maps (like records in a list) often have the same keys, so the size
+      * of the previous map at the same nesting is used as size hint for the next.
+      */
+    private Map<Object,Object> createMap(boolean firstKeyParsed) {
+        if(skipping > 0) return SKIPPED_MAP;
+        if(tape != null) { tape.begin(firstKeyParsed); return tape.mapMarker; }
+        if(mapNesting == mapSizeHints.length) mapSizeHints = Arrays.copyOf(mapSizeHints, mapNesting * 2);
+        return config.createMap(mapSizeHints[mapNesting++]);
+    }
+    private Object mapCreated(Map<?,?> map) {
+        if(map == SKIPPED_MAP) return null;
+        if(tape != null) return tape.end(YamlTape.MAP);
+        mapSizeHints[--mapNesting] = map.size();
+        return map;
     }
 
-    private Map<?,?> parseFlowMap(int currentMapDepth) {
-        final Map<Object, Object> map = config.defaultMapGenerator.get();
+    /** Map that ignores the entries of maps that are skipped by a projection */
+    private static final Map<Object,Object> SKIPPED_MAP = new AbstractMap<>() {
+        @Override public Object put(Object key, Object value) { return null; }
+        @Override public Set<Entry<Object, Object>> entrySet() { return Set.of(); }
+    };
+
+    private Object parseFlowMap(int currentMapDepth) {
+        nest();
+        final Map<Object, Object> map = createMap(false);
         final boolean oldInFlowMap = inFlowMap;
         inFlowMap = true;
 
@@ -217,33 +459,34 @@ public class YamlParser extends YamlTokenizer {
             final Object key;
             if(peekToken().type == MAP_KEY_FOLLOWS) {
                 nextToken();
-                key = peekToken().type == MAP_END ? null : nextObject(currentMapDepth, false);
+                key = peekToken().type == MAP_END ? nullNode() : nextObject(currentMapDepth, false);
             } else
             if(peekToken().type == SEPARATOR_KV) {
-                key = null;
+                key = nullNode();
             } else {
                 key = nextObject(currentMapDepth, false);
             }
 
             if(isEnd()) break;
-            final Object value;
-            if(!peekToken().isType(SEPARATOR_KV, MAP_KEY_FOLLOWS)) {
-                value = null;
-            } else {
-                nextToken(); // skip colon
-                value = peekToken().isType(SEPARATOR, MAP_END, MAP_KEY_FOLLOWS) ? null : nextObject(currentMapDepth);
-                if(isEnd()) break; // TODO: add test case for this
-            }
-            map.put(key, value);
+            final YamlProjection.Node parentProjection = projected;
+            final boolean entered = enter(key);
+            final boolean hasValue = peekToken().isType(SEPARATOR_KV, MAP_KEY_FOLLOWS);
+            if(hasValue) nextToken(); // skip colon
+            final Object value = !hasValue || peekToken().isType(SEPARATOR, MAP_END, MAP_KEY_FOLLOWS) ? nullNode() : nextObject(currentMapDepth);
+            final boolean keep = exit(parentProjection, entered, value);
+            if(hasValue && isEnd()) break; // TODO: add test case for this
+            if(keep) map.put(key, value);
             skipIfToken(SEPARATOR);
         }
         if(peekToken().type == MAP_END) nextToken();
 
         inFlowMap = oldInFlowMap;
-        return map;
+        nesting--;
+        return mapCreated(map);
     }
-    private Map<Object,Object> parseBlockMap(int currentMapDepth, Object firstKey) {
-        final Map<Object, Object> map = config.defaultMapGenerator.get();
+    private Object parseBlockMap(int currentMapDepth, Object firstKey) {
+        nest();
+        final Map<Object, Object> map = createMap(firstKey != null);
         final boolean oldInFlowList = inFlowList;
         final boolean oldInFlowMap  = inFlowMap;
         inFlowList = false;
@@ -252,16 +495,18 @@ public class YamlParser extends YamlTokenizer {
 
         while(peekToken().posInLine >= currentMapDepth) {
             final Token colonToken = peekToken();
+            final YamlProjection.Node parentProjection = projected;
+            final boolean entered = enter(nextKey);
             final Object value;
 
             // If next is a key, the current key has no value
             if(colonToken.type == MAP_KEY_FOLLOWS) {
-                value = null;
+                value = nullNode();
             } else
 
             // If current key is NOT followed by a separator, the current key has no value
             if(colonToken.type != SEPARATOR_KV || colonToken.posInLine < currentMapDepth) {
-                value = null;
+                value = nullNode();
             } else {
                 nextToken();
 
@@ -269,7 +514,7 @@ public class YamlParser extends YamlTokenizer {
                 final boolean nextIsSeparator = peekToken().isType(SEPARATOR_KV);
 
                 if(nextIsSeparator) {
-                    value = null;
+                    value = nullNode();
                 } else
                 if(peekToken().posInLine > currentMapDepth) {
                     value = nextObject(currentMapDepth);
@@ -277,11 +522,11 @@ public class YamlParser extends YamlTokenizer {
                     final boolean hasNoValue = peekToken().posInLine <= currentMapDepth
                                           && !(peekToken().posInLine == currentMapDepth && peekToken().type == LIST_ITEM);
 
-                    value = isEnd() || hasNoValue ? null : nextObject(currentMapDepth);
+                    value = isEnd() || hasNoValue ? nullNode() : nextObject(currentMapDepth);
                 }
             }
 
-            map.put(nextKey, value);
+            if(exit(parentProjection, entered, value)) map.put(nextKey, value);
 
             nextKey = null;
 
@@ -289,7 +534,7 @@ public class YamlParser extends YamlTokenizer {
             else
             if(peekToken().type == SEPARATOR_KV && peekToken().posInLine >= currentMapDepth
                                                 && peekToken().posInLine <= colonToken.posInLine) {
-                // empty key
+                nextKey = nullNode(); // empty key
             } else {
                 if(peekToken().type == LIST_END) {
                     if(flowListDepth == 0) throw error("LIST_END (]) while not in flow list");
@@ -305,12 +550,13 @@ public class YamlParser extends YamlTokenizer {
                 nextKey = nextObject(currentMapDepth, /*checkColon=*/false);
             }
         }
-        if(nextKey != null) {
-            map.put(nextKey, null);
+        if(nextKey != null && nextKey != YamlTape.NULL_WRITTEN && isProjected(nextKey)) {
+            map.put(nextKey, nullNode());
         }
 
         inFlowList = oldInFlowList;
         inFlowMap = oldInFlowMap;
-        return map;
+        nesting--;
+        return mapCreated(map);
     }
 }
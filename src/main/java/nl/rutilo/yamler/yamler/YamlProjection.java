@@ -0,0 +1,199 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.collections.KeyPath;
+import nl.rutilo.yamler.objectmapper.RSObjectMapper;
+import nl.rutilo.yamler.objectmapper.ReflectionStrategy.BoundKey;
+import nl.rutilo.yamler.utils.StringUtils;
+import nl.rutilo.yamler.utils.Value;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Paths of which the values should be kept when parsing (see YamlerConfig.projection), like
+  * "metadata.name", "spec.containers[*].image" or "items.*.sku". Paths are KeyPaths where a '*'
+  * key matches any map key or list index. The parser skips everything else: it still reads the
+  * tokens to keep track of the structure, but creates no maps or lists for skipped values and
+  * only scans their scalars to find where they end, so no text or numbers are created for them
+  * (except for values read by tag handlers). The result is a sparse tree that only contains the projected
+  * paths, where lists keep the indices of their kept items (skipped items before a kept item
+  * become null). A value on a path of which only deeper paths are projected is only kept when
+  * it is a map or a list.<br><br>
+  *
+  * An anchored value in a skipped part is parsed completely when an alias to it follows it in
+  * the text, so aliases in kept parts still get their value. For the same reason anchored
+  * values that are used later are kept completely, even if only some of their paths are
+  * projected.<br><br>
+  *
+  * A projection can also be derived from a class (see forClass), which Yamler.mapYamlToClass
+  * uses so that values of keys the class does not know are not decoded.
+  */
+public final class YamlProjection {
+    private static final String ANY = "*";
+    private static final int MAX_VALUE_NESTING = 16; // classes of which the value is a class (mapping such cycles fails)
+    private static final Map<Class<?>, YamlProjection> classProjections = new ConcurrentHashMap<>();
+
+    final Node root;
+    private final List<String> paths;
+
+    private YamlProjection(List<String> paths) {
+        this.paths = paths;
+        final Node node = new Node();
+        for(final String path : paths) node.add(KeyPath.compile(path), 0);
+        node.resolveWildcards();
+        this.root = node;
+    }
+    private YamlProjection(List<String> paths, Node root) {
+        this.paths = paths;
+        this.root = root;
+    }
+
+    /** Projection that keeps the values at given paths (and everything below them) */
+    public static YamlProjection of(String... paths) {
+        return new YamlProjection(List.of(paths));
+    }
+
+    /** Projection that keeps the keys that are read when mapping to given class (see
+      * Yamler.mapYamlToClass): the YamlName of each value that is not ignored, matched ignoring
+      * case when it has YamlIgnoreCase. The types of the values are followed into nested classes,
+      * lists, sets, arrays and maps. Everything is kept for values of type Object, for classes
+      * with a CustomMapper or deserializer and for classes that cannot be mapped, so mapping
+      * gives the same result as without projection.
+      */
+    public static YamlProjection forClass(Class<?> clazz) {
+        final YamlProjection known = classProjections.get(clazz);
+        final YamlerMetrics metrics = Yamler.metrics();
+        if(metrics.isEnabled()) metrics.cacheAccessed(YamlerMetrics.Cache.CLASS_PROJECTIONS, known != null);
+        if(known != null) return known;
+        return classProjections.computeIfAbsent(clazz, c -> new YamlProjection(List.of(c.getName()), new ClassNodes().of(c, c)));
+    }
+    /** Called when a deserializer is added, as that changes what a class reads */
+    static void clearClassProjections() { classProjections.clear(); }
+
+    @Override public String toString() { return "YamlProjection" + Arrays.toString(paths.toArray()); }
+
+    /** Trie of keys. A node that is 'all' keeps everything below it. */
+    static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private Map<String, Node> childrenIgnoringCase; // by lower case key
+        private Node any;
+        private boolean all;
+        private boolean scalars;
+
+        /** Node for the value at given map key or list index, or null if that value should be skipped */
+        Node child(String key) {
+            Node child = children.get(key);
+            if(child == null && childrenIgnoringCase != null) child = childrenIgnoringCase.get(StringUtils.lc(key));
+            return child != null ? child : any;
+        }
+        /** Node for the item at given list index, or null if that item should be skipped */
+        Node item(int index) {
+            Node node = this;
+            for(int classes = 0; node.scalars; classes++) { // a list is mapped to a class as { value: list }
+                node = node.child("value");
+                if(node == null || node.all || classes > MAX_VALUE_NESTING) return node;
+            }
+            return node.child(Integer.toString(index));
+        }
+        boolean keepsAll() { return all; }
+        /** Scalars are kept as well, even though only paths below this node are projected (true for classes) */
+        boolean keepsScalars() { return scalars; }
+
+        private void add(KeyPath path, int index) {
+            if(index == path.size()) { all = true; return; }
+            final String key = path.key(index);
+            final Node child;
+            if(ANY.equals(key)) {
+                if(any == null) any = new Node();
+                child = any;
+            } else {
+                child = children.computeIfAbsent(key, k -> new Node());
+            }
+            child.add(path, index + 1);
+        }
+
+        /** Paths after a wildcard apply to the named children as well, so merge them in */
+        private void resolveWildcards() {
+            if(any != null) children.replaceAll((key, child) -> union(child, any));
+            children.values().forEach(Node::resolveWildcards);
+            if(any != null) any.resolveWildcards();
+        }
+        private static Node union(Node a, Node b) {
+            if(a == null) return b;
+            if(b == null) return a;
+            final Node node = new Node();
+            node.all = a.all || b.all;
+            if(node.all) return node;
+            node.children.putAll(a.children);
+            b.children.forEach((key, child) -> node.children.merge(key, child, Node::union));
+            node.any = union(a.any, b.any);
+            return node;
+        }
+    }
+
+    /** Nodes for the keys a class reads. Nodes of classes are shared, so a recursive class leads
+      * to a cyclic trie.
+      */
+    private static final class ClassNodes {
+        private final Node all = new Node();
+        private final Map<Class<?>, Node> classes = new HashMap<>();
+
+        ClassNodes() { all.all = true; }
+
+        /** Follows the conversions of RSObjectMapper.toTargetObject */
+        Node of(Class<?> type, Type genericType) {
+            if(type.isPrimitive() || type == Object.class || type == String.class || type == Optional.class || type == Value.class
+               || Number.class.isAssignableFrom(type) || type == Boolean.class) return all;
+            if(type.isArray()) return type.getComponentType().isPrimitive() ? all : anyOf(of(type.getComponentType(), null));
+            if(Set.class.isAssignableFrom(type) || List.class.isAssignableFrom(type)) {
+                return typeArgument(genericType, 0).map(itemType -> anyOf(of(itemType, itemType))).orElse(all);
+            }
+            if(Map.class.isAssignableFrom(type)) {
+                return typeArgument(genericType, 1).map(valueType -> anyOf(of(valueType, null))).orElse(all);
+            }
+            final Node known = classes.get(type);
+            return known != null ? known : ofClass(type);
+        }
+        private Node ofClass(Class<?> type) {
+            final List<BoundKey> keys;
+            try {
+                keys = Yamler.hasDeserializer(type) ? null : RSObjectMapper.getStrategy(type).boundKeys().orElse(null);
+            } catch(final RuntimeException cannotBeMapped) {
+                return all; // mapping will fail the same way with everything kept
+            }
+            if(keys == null || keys.stream().anyMatch(key -> KeyPath.cached(key.name()).size() != 1)) return all;
+
+            final Node node = new Node();
+            node.scalars = true; // a scalar is mapped as { value: scalar } (and a list as well, see item())
+            classes.put(type, node);
+            for(final BoundKey key : keys) {
+                final Node child = of(key.valueType(), key.genericType());
+                final Map<String, Node> target;
+                if(key.ignoreCase()) {
+                    if(node.childrenIgnoringCase == null) node.childrenIgnoringCase = new HashMap<>();
+                    target = node.childrenIgnoringCase;
+                } else {
+                    target = node.children;
+                }
+                target.merge(key.ignoreCase() ? StringUtils.lc(key.name()) : key.name(), child, (a, b) -> a == b ? a : all);
+            }
+            return node;
+        }
+        private static Node anyOf(Node child) {
+            final Node node = new Node();
+            node.any = child;
+            return node;
+        }
+        private static Optional<Class<?>> typeArgument(Type genericType, int index) {
+            if(!(genericType instanceof ParameterizedType parameterized)) return Optional.empty();
+            final Type[] args = parameterized.getActualTypeArguments();
+            return index < args.length && args[index] instanceof Class<?> arg ? Optional.of(arg) : Optional.empty();
+        }
+    }
+}
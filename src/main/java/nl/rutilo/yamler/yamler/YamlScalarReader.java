@@ -4,9 +4,9 @@ import nl.rutilo.yamler.collections.StringKeyMap;
 import nl.rutilo.yamler.utils.StringUtils;
 import nl.rutilo.yamler.utils.Value;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import static java.lang.Character.isWhitespace;
@@ -31,6 +31,8 @@ public class YamlScalarReader extends YamlInput {
     private State lastNewlineState = null;
     private boolean isMapKey = false;
     private final StringBuilder indentText = new StringBuilder();
+    private boolean scanOnly; // only find the end of the scalar, see scanScalar()
+    private int scannedLength; // length of the scalar when scanning, as sb is not filled then
 
     int flowMapDepth = 0;       // In any child of flow map   -- Set in Tokenizer
     int flowListDepth = 0;      // In any child of flow list  -- Set in Tokenizer
@@ -38,20 +40,46 @@ public class YamlScalarReader extends YamlInput {
     boolean inFlowList = false; // Current depth is flow list -- Set in Tokenizer
 
     Pattern varPattern = null;
-    private static final Map<String,Pattern> varPatternCache = new HashMap<>();
+    private static final Map<String,Pattern> varPatternCache = new ConcurrentHashMap<>();
+    private static final int MAX_KEPT_CAPACITY = 64 * 1024; // a reset drops larger buffers
+    private static final int MAX_CONSTANT_LENGTH = 9; // "undefined", longest of SCALAR_CONSTANTS
+
+    /** Value of scalars that were only scanned (see scanScalar()) */
+    static final Object SCANNED = new Object() {
+        @Override public String toString() { return "<scanned>"; }
+    };
 
     public YamlScalarReader(char[] input) {
         this(YamlerConfig.DEFAULT, input);
     }
     public YamlScalarReader(YamlerConfig config, char[] input) {
         super(config, input);
+        varPattern = varPatternOf(config);
+    }
+    private static Pattern varPatternOf(YamlerConfig config) {
         //noinspection ConstantConditions <-- false positive
-        if(config.variableSyntax != null) { // this value *can* be non-null
-            varPattern = varPatternCache.computeIfAbsent(config.variableSyntax, varSyntax -> {
-                final String[] parts = varSyntax.split("var", 2);
-                return Pattern.compile("\\\\?" + Pattern.quote(parts[0]) + "([\\w._]+)" + (parts.length>1 ? Pattern.quote(parts[1]) : ""));
-            });
-        }
+        if(config.variableSyntax == null) return null; // this value *can* be null
+        return varPatternCache.computeIfAbsent(config.variableSyntax, varSyntax -> {
+            final String[] parts = varSyntax.split("var", 2);
+            return Pattern.compile("\\\\?" + Pattern.quote(parts[0]) + "([\\w._]+)" + (parts.length>1 ? Pattern.quote(parts[1]) : ""));
+        });
+    }
+
+    @Override protected void reset(char[] newInput) {
+        super.reset(newInput);
+        varPattern = varPatternOf(config); // the config may have changed
+        sb.setLength(0);
+        if(sb.capacity() > MAX_KEPT_CAPACITY) sb.trimToSize();
+        indentText.setLength(0);
+        stop = false;
+        radix = 10;
+        lastNewlineState = null;
+        isMapKey = false;
+        scanOnly = false;
+        flowMapDepth = 0;
+        flowListDepth = 0;
+        inFlowMap = false;
+        inFlowList = false;
     }
 
     enum ChompType {
@@ -101,9 +129,14 @@ public class YamlScalarReader extends YamlInput {
     /** Scalar type can be any one of: null, boolean, Number, String */
     Value<?> readScalar() {
         sb.setLength(0);
+        scannedLength = 0;
         stop = false;
         radix = 10;
         init();
+        if(scanOnly) {
+            if(quote != 0) getQuoted(); else if(blockType == TextBlockType.BASIC) getBasic(); else if(blockType == TextBlockType.LITERAL) getLiteral(); else getFolded();
+            return Value.of(SCANNED);
+        }
         return quote != 0           ? getQuoted() .map(this::replaceVars) :
                blockType == TextBlockType.BASIC   ? getBasic()  .map(this::replaceVars) :
                blockType == TextBlockType.LITERAL ? getLiteral().map(this::replaceVars) :
@@ -122,6 +155,21 @@ public class YamlScalarReader extends YamlInput {
             });
     }
 
+    /** Same as readScalar() (or readScalarMapKey()) but only finds where the scalar ends, for
+      * scalars of which the value is not needed (like when skipped by a projection). No text
+      * or number is created: the value is SCANNED.
+      */
+    Value<?> scanScalar(boolean mapKey) {
+        scanOnly = true;
+        isMapKey = mapKey;
+        try {
+            return readScalar();
+        } finally {
+            scanOnly = false;
+            isMapKey = false;
+        }
+    }
+
     Value<?> readScalarMapKey() {
         isMapKey = true;
         final Value<?> result = readScalar();
@@ -193,7 +241,7 @@ public class YamlScalarReader extends YamlInput {
                 final char c = (char)c();
                 if(radix == 10 && c == '.') hasDot = true;
                 if(radix == 10 && c == 'E') hasExp = true;
-                sb.append(c);
+                append(c);
                 next();
             }
             skipSpaces();
@@ -206,6 +254,7 @@ public class YamlScalarReader extends YamlInput {
             // reset state if not a number
             if(!stop) {
                 sb.setLength(0);
+                scannedLength = 0;
                 setState(stateBeforeRead);
             }
         } else {
@@ -239,7 +288,7 @@ public class YamlScalarReader extends YamlInput {
                 if(c == '\n') { next(); continue; }
 
                 final int cEscaped = escapeOf(c);
-                if(cEscaped >= 0) c = cEscaped; else sb.append("\\");
+                if(cEscaped >= 0) c = cEscaped; else append('\\');
             } else
 
             if(c == '\n') {
@@ -249,7 +298,7 @@ public class YamlScalarReader extends YamlInput {
                 c = c();
                 if( c == '\n' ) skipWhitespaces();
                 else if(quote == '"' && c == '\\' && c(1) == 'n') continue; else c = ' ' ;
-                sb.append((char)c);
+                append((char)c);
                 continue;
             } else
 
@@ -259,18 +308,20 @@ public class YamlScalarReader extends YamlInput {
             }
 
             //
-            sb.append((char)c);
+            append((char)c);
             nextDontSkipIndent();
         }
+        if(scanOnly) return Value.empty();
         return Value.of(sb.toString())
                     .filter(s -> !(s.isEmpty() && ended()));
     }
     private Value<?> getBasic() {
         int sbLenAtNewline = 0;
+        int scannedLengthAtNewline = 0;
 
         while( !stop && !ended()) {
             int c = c();
-            if(c == '\n') sbLenAtNewline = sb.length();
+            if(c == '\n') { sbLenAtNewline = sb.length(); scannedLengthAtNewline = scannedLength; }
 
             // stop at line remark
             if(c() == '#' && (isSpace(c(-1)) || offset == 0) && (isSpace(c(1)) || ended(1))) break;
@@ -292,6 +343,7 @@ public class YamlScalarReader extends YamlInput {
                 if(lastNewlineState != null && !isMapKey && !inFlowMap) {
                     setState(lastNewlineState);
                     sb.setLength(sbLenAtNewline);
+                    scannedLength = scannedLengthAtNewline;
                     stateWasReset();
                 }
                 break;
@@ -311,7 +363,7 @@ public class YamlScalarReader extends YamlInput {
                 if( isOwnIndent && posInLine < startIndent  && !inFlowMap) break;
                 if(!isOwnIndent && posInLine <= startIndent && !inFlowMap) break;
 
-                sb.append(skippedLines > 1 ? "\n".repeat(skippedLines-1) : " ");
+                if(scanOnly) append(' '); else sb.append(skippedLines > 1 ? "\n".repeat(skippedLines-1) : " ");
 
                 if(c(0)=='{' || c(0)=='[') break;
                 if(c(0)=='-' && c(1)=='-' && c(2)=='-' && (isWhitespace(c(3)) || ended(3))) break;
@@ -321,9 +373,10 @@ public class YamlScalarReader extends YamlInput {
                 continue;
             }
 
-            sb.append((char)c);
+            append((char)c);
             nextDontSkipIndent();
         }
+        if(scanOnly) return Value.empty();
 
         final Value<?> knownType = stringToKnownType(sb.toString().trim());
         if (knownType.isPresent()) return knownType;
@@ -350,14 +403,15 @@ public class YamlScalarReader extends YamlInput {
 
                 final int extraIndent = c() == '\n' ? Math.max(0, indent - startIndent) : indent - startIndent;
                 if(extraIndent < 0) stop = true;
-                else { sb.append("\n"); sb.append(" ".repeat(extraIndent)); }
+                else if(!scanOnly) { sb.append("\n"); sb.append(" ".repeat(extraIndent)); }
             } else {
                 if(!isSpace(c) && blockIndent < 0) blockIndent = indent;
 
-                sb.append((char)c);
+                append((char)c);
                 nextDontSkipIndent();
             }
         }
+        if(scanOnly) return Value.empty();
         if(sb.length() > startLen) sb.append("\n");
 
         chomp();
@@ -376,19 +430,21 @@ public class YamlScalarReader extends YamlInput {
                 nextStoreIndent(); // skips and stores indentText
 
                 while(c() == '\n') {
-                    sb.append("\n");
+                    append('\n');
                     nextStoreIndent();
                 }
                 if(indent < startIndent) break;
+                if(scanOnly) continue;
 
                 if(indent == startIndent && sbLast() != '\n') sb.append(" ");
                 if(indent == startIndent && oldIndent > startIndent) sb.append("\n");
                 if(indent > startIndent) { sb.append("\n"); sb.append(indentText.substring(startIndent)); }
             } else {
-                sb.append((char)c());
+                append((char)c());
                 nextDontSkipIndent();
             }
         }
+        if(scanOnly) return Value.empty();
         sb.append("\n");
 
         chomp();
@@ -437,6 +493,15 @@ public class YamlScalarReader extends YamlInput {
         return c();
     }
 
+    /** Adds a character of the scalar. When only scanning, just enough is kept to recognize
+      * constants. Fails as soon as the scalar gets longer than YamlerConfig.maxScalarLength.
+      */
+    private void append(char c) {
+        if(!scanOnly || sb.length() <= MAX_CONSTANT_LENGTH) sb.append(c);
+        if(config.maxScalarLength > 0 && (scanOnly ? ++scannedLength : sb.length()) > config.maxScalarLength) {
+            throw error("Scalar longer than " + config.maxScalarLength + " characters");
+        }
+    }
     private char sbLast() { return sb.length() == 0 ? 0 : sb.charAt(sb.length()-1); }
 
     private int findBlockIndent() {
@@ -0,0 +1,128 @@
+package nl.rutilo.yamler.yamler;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+/** Structure of a parsed document as a flat array of longs, written by the YamlParser when
+  * parsing lazily (see YamlParser.parseLazy()). No maps or lists are created while parsing.<br><br>
+  *
+  * Nodes are written in post-order: first the children of a node, then the node itself. Each
+  * node is one long holding the kind (4 bits), a 28-bit 'a' field and a 32-bit 'b' field:
+  * <pre>
+  *   NULL    b=input offset
+  *   VALUE   a=index in values, b=input offset
+  *   MAP     a=number of key/value pairs, b=index of first node of the map
+  *   LIST    a=number of items, b=index of first node of the list
+  *   ANCHOR  b=index of first node of the anchored subtree, which ends just before the anchor
+  *   ALIAS   b=index of the anchor node
+  * </pre>
+  * Scalars are decoded by the tokenizer anyway (it needs to, to find where they end), so they
+  * are kept in a separate values array.
+  */
+final class YamlTape {
+    static final int NULL   = 1;
+    static final int VALUE  = 2;
+    static final int MAP    = 3;
+    static final int LIST   = 4;
+    static final int ANCHOR = 5;
+    static final int ALIAS  = 6;
+
+    /** Returned by the parser instead of objects when parsing lazily */
+    static final Object WRITTEN      = new Object();
+    static final Object NULL_WRITTEN = new Object();
+
+    private static final int MAX_A = (1 << 28) - 1;
+
+    long[]   nodes  = new long[256];
+    int      size;
+    Object[] values = new Object[64];
+    private int valueCount;
+
+    // Per open container: index of first node, number of children and end of the last added child.
+    // Nodes after the last added child were parsed but not added (like a key without a value at the
+    // end of a flow map) and are dropped when the container ends.
+    private int[] frames = new int[3 * 16];
+    private int   frameTop; // number of used ints in frames
+
+    /** Used by the parser as the map it puts entries in */
+    final Map<Object,Object> mapMarker = new AbstractMap<>() {
+        @Override public Object put(Object key, Object value) { childAdded(); return null; }
+        @Override public Set<Entry<Object, Object>> entrySet() { throw new UnsupportedOperationException(); }
+    };
+
+    static int kind(long node) { return (int) (node & 0xF); }
+    static int a   (long node) { return (int) ((node >>> 4) & MAX_A); }
+    static int b   (long node) { return (int) (node >>> 32); }
+
+    private Object append(int kind, int a, int b) {
+        if(a > MAX_A) throw new IllegalStateException("Document too large to parse lazily");
+        if(size == nodes.length) nodes = Arrays.copyOf(nodes, size * 2);
+        nodes[size++] = kind | ((long) a << 4) | ((long) b << 32);
+        return WRITTEN;
+    }
+
+    Object value(Object value, int offset) {
+        if(value == null) {
+            append(NULL, 0, offset);
+            return NULL_WRITTEN;
+        }
+        if(valueCount == values.length) values = Arrays.copyOf(values, valueCount * 2);
+        values[valueCount] = value;
+        return append(VALUE, valueCount++, offset);
+    }
+    /** Reference to an anchor node, stored in the YamlContext */
+    record Anchor(int index) {}
+
+    /** Anchors the last written subtree */
+    Anchor anchor() {
+        append(ANCHOR, 0, subtreeStart(size - 1));
+        return new Anchor(size - 1);
+    }
+    /** Refs stored while not parsing lazily (like in tag handlers) are objects instead of anchors */
+    Object alias(Object ref, int offset) {
+        return ref instanceof Anchor anchor ? append(ALIAS, 0, anchor.index()) : value(ref, offset);
+    }
+
+    /** Starts a map or list. A block map can start with a key that was already written. */
+    void begin(boolean includeLastWritten) {
+        final int start = includeLastWritten ? subtreeStart(size - 1) : size;
+        if(frameTop == frames.length) frames = Arrays.copyOf(frames, frameTop * 2);
+        frames[frameTop++] = start;
+        frames[frameTop++] = 0;
+        frames[frameTop++] = start;
+    }
+    void childAdded() {
+        frames[frameTop - 2]++;
+        frames[frameTop - 1] = size;
+    }
+    Object end(int kind) {
+        size = frames[--frameTop];
+        final int count = frames[--frameTop];
+        final int start = frames[--frameTop];
+        return append(kind, count, start);
+    }
+
+    /** Tape index of a document root, or null for an empty document */
+    Integer root(Object written) {
+        return written == NULL_WRITTEN ? null : size - 1;
+    }
+
+    int subtreeStart(int index) {
+        final long node = nodes[index];
+        final int kind = kind(node);
+        return kind == MAP || kind == LIST || kind == ANCHOR ? b(node) : index;
+    }
+    /** Indices of the last node of each child. Keys and values alternate for maps. */
+    int[] childEnds(int index) {
+        final long node = nodes[index];
+        final int[] ends = new int[kind(node) == MAP ? a(node) * 2 : a(node)];
+        int end = index - 1;
+        for(int i = ends.length - 1; i >= 0; i--) {
+            ends[i] = end;
+            end = subtreeStart(end) - 1;
+        }
+        return ends;
+    }
+}
@@ -3,6 +3,7 @@ package nl.rutilo.yamler.yamler;
 import lombok.Builder;
 import lombok.RequiredArgsConstructor;
 import nl.rutilo.yamler.utils.Value;
+import nl.rutilo.yamler.yamler.exceptions.YamlerCancelledException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -119,6 +120,7 @@ public class YamlTokenizer extends YamlScalarReader {
     // Note that with peeking:
     // - indent & posInLine will be updated
     public Token peekToken() {
+        if(nextToken != null && nextToken.value == SCANNED && !isScanningScalars()) rescan();
         if(nextToken != null) return nextToken;
         final Token token = nextToken(/*peeking=*/true);
         nextToken = token;
@@ -130,23 +132,67 @@ public class YamlTokenizer extends YamlScalarReader {
     }
 
     private boolean inMapKey = false; // how about recursion? (key consists of map that has keys)
+    private ScanStart scanStart; // of the peeked token, when it is a scanned scalar
     private Runnable onNextToken = null;
+    int tokenCount; // for YamlerMetrics
+    private YamlCancellation cancellation = YamlCancellation.current();
+
+    @Override protected void reset(char[] newInput) {
+        super.reset(newInput);
+        inMapKey = false;
+        onNextToken = null;
+        tokenCount = 0;
+        cancellation = YamlCancellation.current();
+        scanStart = null;
+    }
+
+    /** True when the values of scalars are not needed, so they are only scanned (see
+      * YamlScalarReader.scanScalar()). The parser returns true while skipping projected out values.
+      */
+    protected boolean isScanningScalars() { return false; }
+
+    /** Where a scanned scalar started: enough to read it again */
+    private record ScanStart(int offset, int indent, int posInLine, int lineNo, boolean inMapKey, boolean inFlowMap, boolean inFlowList) {}
+
+    /** The peeked token is a scanned scalar of which the value turns out to be needed (the
+      * parser peeks a token ahead, so it may be scanned before skipping ended): read it again.
+      */
+    private void rescan() {
+        final boolean oldInFlowMap = inFlowMap;
+        final boolean oldInFlowList = inFlowList;
+        offset = scanStart.offset;
+        indent = scanStart.indent;
+        posInLine = scanStart.posInLine;
+        lineNo = scanStart.lineNo;
+        stateWasReset(); // clears the peeked token
+        inMapKey = scanStart.inMapKey;
+        inFlowMap = scanStart.inFlowMap;
+        inFlowList = scanStart.inFlowList;
+        tokenCount--;
+        peekToken();
+        inFlowMap = oldInFlowMap;
+        inFlowList = oldInFlowList;
+    }
 
     public Token nextToken() { return nextToken(/*peeking=*/false); }
     private Token nextToken(boolean peeking) {
         if(onNextToken != null) { onNextToken.run(); onNextToken = null; }
+        if(nextToken != null && nextToken.value == SCANNED && !isScanningScalars()) rescan();
         if(nextToken != null) {
             final Token token = nextToken;
             nextToken = null;
             return token;
         }
         skipWhitespaces();
+        final int tokenStart = offset;
         final Token token;
         final boolean inFlowMap = flowMapDepth > 0;
         final boolean inFlowList = flowListDepth > 0;
         final int beforeIndent = indent;
         final int beforePosInLine = posInLine;
+        final boolean scan = isScanningScalars();
         Runnable changeState = null;
+        if(scan) scanStart = new ScanStart(offset, indent, posInLine, lineNo, inMapKey, this.inFlowMap, this.inFlowList);
 
         switch(c()) {
             case '?': token = tokenBuilder(TokenType.MAP_KEY_FOLLOWS).build(); next(); changeState = () -> inMapKey = true; break;
@@ -161,7 +207,7 @@ public class YamlTokenizer extends YamlScalarReader {
             case '"':
             case '\'': {
                 final Token.TokenBuilder builder = tokenBuilder(TokenType.SCALAR);
-                readString().ifPresentOrElse(builder::value, () -> builder.type(TokenType.EMPTY));
+                (scan ? scanScalar(false) : readString()).ifPresentOrElse(builder::value, () -> builder.type(TokenType.EMPTY));
                 token = builder.build();
                 break;
             }
@@ -243,7 +289,7 @@ public class YamlTokenizer extends YamlScalarReader {
                     token = wsToken;
                 } else {
                     final Token.TokenBuilder builder = tokenBuilder(TokenType.SCALAR);
-                    (inMapKey ? readScalarMapKey() : readScalar())
+                    (scan ? scanScalar(inMapKey) : inMapKey ? readScalarMapKey() : readScalar())
                         .ifPresentOrElse(builder::value, () -> builder.type(TokenType.EMPTY));
                     inMapKey = false;
                     token = builder.build();
@@ -254,6 +300,16 @@ public class YamlTokenizer extends YamlScalarReader {
             else changeState.run();
         }
 
+        tokenCount++;
+        if(cancellation != null && tokenCount % YamlCancellation.CHECK_INTERVAL == 0) {
+            final String reason = cancellation.reason();
+            if(reason != null) throw new YamlerCancelledException(positioned(reason));
+        }
+        // the scalar reader checks the length while reading, this also counts the line breaks and indents it adds
+        if(token.type == TokenType.SCALAR && config.maxScalarLength > 0 && token.value instanceof CharSequence text && text.length() > config.maxScalarLength) {
+            offset = tokenStart;
+            throw error("Scalar longer than " + config.maxScalarLength + " characters");
+        }
         return (skipRemarks && token.type == TokenType.REMARK) ? nextToken() : token;
     }
 }
@@ -0,0 +1,214 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.collections.KeyPath;
+import nl.rutilo.yamler.utils.ThreadUtils;
+import nl.rutilo.yamler.utils.TimedRunner;
+import nl.rutilo.yamler.yamler.exceptions.YamlerException;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/** Keeps the parsed contents of yaml files up to date. Files (or all .yaml/.yml files in a
+  * directory) are watched using a WatchService. Bursts of change events are coalesced by
+  * ThreadUtils.debounce(), after which only the changed files are parsed again.<br><br>
+  *
+  * The contents are published as an unmodifiable snapshot (file to its first document) that
+  * is replaced as a whole, so readers never lock and always see a consistent set of files.
+  * Subscribers are called only when the value at their key path actually changed.<br><br>
+  *
+  * When a file can't be parsed its previous contents are kept and the error handler is called.
+  */
+public final class YamlWatcher implements AutoCloseable {
+    private static final Set<String> YAML_EXTENSIONS = Set.of(".yaml", ".yml");
+
+    private final Yamler yamler;
+    private final Duration debounceTime;
+    private final String debounceId = "YamlWatcher@" + System.identityHashCode(this);
+    private final WatchService watchService;
+    private final Set<Path> files = ConcurrentHashMap.newKeySet();  // watched files
+    private final Set<Path> directories = ConcurrentHashMap.newKeySet(); // directories of which all yaml files are watched
+    private final Map<Path, WatchKey> watchKeys = new HashMap<>();
+    private final Set<Path> changed = new HashSet<>();        // guarded by itself
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile Map<Path, Object> snapshot = Map.of();   // NOSONAR -- replaced as a whole, never changed
+    private volatile Consumer<RuntimeException> errorHandler = e -> {};
+
+    private record Subscription(Path file, KeyPath keyPath, Consumer<Object> listener) {
+        Object valueIn(Map<Path, Object> snapshot) {
+            final Object root = snapshot.get(file);
+            return keyPath == null ? root : keyPath.getValueIn(root).orElse(null);
+        }
+    }
+
+    /** Watcher that parses with given yamler, after no changes happened for 100ms */
+    public YamlWatcher(Yamler yamler) { this(yamler, Duration.ofMillis(100)); }
+    /** Watcher that parses with given yamler, after no changes happened for debounceTime */
+    public YamlWatcher(Yamler yamler, Duration debounceTime) {
+        this.yamler = yamler;
+        this.debounceTime = debounceTime;
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+        } catch (final IOException e) {
+            throw new YamlerException("Unable to watch files: " + e.getMessage(), e);
+        }
+        final Thread watchThread = new Thread(this::handleEvents, "YamlWatcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /** Watches given yaml file or all yaml files in given directory. Returns after the files are parsed. */
+    public YamlWatcher watch(Path fileOrDirectory) {
+        final Path path = fileOrDirectory.toAbsolutePath().normalize();
+        final boolean isDirectory = Files.isDirectory(path);
+        register(isDirectory ? path : path.getParent());
+        final List<Path> added = new ArrayList<>();
+        if(isDirectory) {
+            directories.add(path);
+            try(final Stream<Path> list = Files.list(path)) {
+                list.filter(file -> isYamlFile(file) && Files.isRegularFile(file) && files.add(file)).forEach(added::add);
+            } catch (final IOException e) {
+                throw new YamlerException("Unable to list " + path + ": " + e.getMessage(), e);
+            }
+        } else if(files.add(path)) {
+            added.add(path);
+        }
+        synchronized(changed) { changed.addAll(added); }
+        reload();
+        return this;
+    }
+
+    /** Called with exceptions of files that could not be read or parsed */
+    public YamlWatcher onError(Consumer<RuntimeException> handler) {
+        errorHandler = handler;
+        return this;
+    }
+
+    /** Unmodifiable map of each watched file to its first document. Does not lock. */
+    public Map<Path, Object> snapshot() { return snapshot; }
+
+    /** First document of given file, or null if not watched or empty */
+    public Object get(Path file) { return snapshot.get(file.toAbsolutePath().normalize()); }
+
+    /** Calls listener with the new value at keyPath in given file whenever it changes (null when
+      * removed). An empty keyPath is the whole document. Returns a runnable to unsubscribe.
+      */
+    public Runnable subscribe(Path file, String keyPath, Consumer<Object> listener) {
+        final Subscription subscription = new Subscription(file.toAbsolutePath().normalize(), keyPath.isEmpty() ? null : KeyPath.compile(keyPath), listener);
+        subscriptions.add(subscription);
+        return () -> subscriptions.remove(subscription);
+    }
+
+    @Override public void close() {
+        TimedRunner.cancel(debounceId);
+        try {
+            watchService.close();
+        } catch (final IOException e) {
+            throw new YamlerException("Unable to stop watching: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isYamlFile(Path path) {
+        final String name = path.getFileName().toString();
+        final int dot = name.lastIndexOf('.');
+        return dot > 0 && YAML_EXTENSIONS.contains(name.substring(dot).toLowerCase());
+    }
+
+    private void register(Path directory) {
+        synchronized(watchKeys) {
+            if(watchKeys.containsKey(directory)) return;
+            try {
+                watchKeys.put(directory, directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+            } catch (final IOException e) {
+                throw new YamlerException("Unable to watch " + directory + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void handleEvents() {
+        try {
+            while(true) { // NOSONAR -- ends when the watch service is closed
+                final WatchKey key = watchService.take();
+                final Path directory = (Path) key.watchable();
+                boolean hasChanges = false;
+                for(final WatchEvent<?> event : key.pollEvents()) {
+                    hasChanges |= event.kind() == OVERFLOW ? changedAllIn(directory) : changed(directory.resolve((Path) event.context()));
+                }
+                key.reset();
+                if(hasChanges) ThreadUtils.debounce(debounceId, debounceTime, this::reload);
+            }
+        } catch (final ClosedWatchServiceException e) { // NOSONAR -- closed, so stop
+            // done
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    private boolean changed(Path file) {
+        final boolean isWatched = files.contains(file) || (directories.contains(file.getParent()) && isYamlFile(file));
+        if(isWatched) synchronized(changed) { changed.add(file); }
+        return isWatched;
+    }
+    private boolean changedAllIn(Path directory) {
+        synchronized(changed) {
+            files.stream().filter(file -> directory.equals(file.getParent())).forEach(changed::add);
+        }
+        return true;
+    }
+
+    /** Parses changed files and publishes a new snapshot */
+    private synchronized void reload() {
+        final Set<Path> toParse;
+        synchronized(changed) {
+            toParse = new HashSet<>(changed);
+            changed.clear();
+        }
+        if(toParse.isEmpty()) return;
+
+        final Map<Path, Object> old = snapshot;
+        final Map<Path, Object> updated = new HashMap<>(old);
+        for(final Path file : toParse) {
+            if(!Files.exists(file)) {
+                updated.remove(file);
+                if(directories.contains(file.getParent())) files.remove(file); // explicitly watched files may come back
+                continue;
+            }
+            files.add(file);
+            try {
+                final YamlDocuments documents = yamler.parseYaml(file); // already unmodifiable when cached
+                updated.put(file, (yamler.config.cache == null ? YamlCache.unmodifiable(documents) : documents).first());
+            } catch (final RuntimeException e) {
+                errorHandler.accept(e);
+            }
+        }
+        updated.values().removeIf(Objects::isNull); // Map.copyOf() doesn't allow nulls (empty documents)
+        snapshot = Map.copyOf(updated);
+
+        for(final Subscription subscription : subscriptions) {
+            if(!toParse.contains(subscription.file)) continue;
+            final Object newValue = subscription.valueIn(snapshot);
+            if(!Objects.equals(subscription.valueIn(old), newValue)) subscription.listener.accept(newValue);
+        }
+    }
+}
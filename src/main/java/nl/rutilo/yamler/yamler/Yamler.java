@@ -3,9 +3,19 @@ package nl.rutilo.yamler.yamler;
 import lombok.RequiredArgsConstructor;
 import nl.rutilo.yamler.collections.StringKeyMap;
 import nl.rutilo.yamler.objectmapper.RSObjectMapper;
+import nl.rutilo.yamler.objectmapper.RSObjectMapperException;
 import nl.rutilo.yamler.utils.Value;
 import nl.rutilo.yamler.yamler.exceptions.YamlerException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -47,6 +57,7 @@ import java.util.function.Function;
  *
  * Classes with the CustomConverter annotation will be automatically (de)serialized by Yamler.
  * Lombok Builder and AllArgsConstructor (needs -params compiler flag) are supported.
+ * Records are supported via their canonical constructor (no -params compiler flag needed).
  * TODO: support converter on field level, class level, global level
  *
  * Examples:
@@ -57,6 +68,15 @@ import java.util.function.Function;
  * - Yamler.addSerializer(MyClass.class, myObj -> Map.of("field",myObj.value,...))
  * - Yamler.addDeserializer(MyClass.class, map -> new MyClass(map.get("field",0))
  *
+ * Thread safety:
+ * - A Yamler instance can be shared between threads. Its config is immutable and each thread
+ *   parses with a parser of its own. Each thread keeps a parser to reuse its buffers for any
+ *   config, which is only bound to it during a parse (so no config is kept by the thread).
+ * - The static caches (strategies, key paths, class projections, serializers) are concurrent
+ *   maps or synchronized, and YamlCache is synchronized.
+ * - Returned maps and lists are not synchronized: don't change them while other threads read
+ *   them (cached documents are unmodifiable).
+ *
  * Notes:
  * - Getting parameters from constructor only works if the -parameters compiler option is given
  * - Classes with a Builder (e.g. Lombok @Builder) when immutable or getters and setters works best
@@ -68,11 +88,26 @@ public class Yamler {
 
     public Yamler() { this(YamlerConfig.DEFAULT); }
 
+    private static volatile YamlerMetrics metrics = YamlerMetrics.NONE;
+    private static final ThreadLocal<YamlParser[]> pooledParser = ThreadLocal.withInitial(() -> new YamlParser[1]); // empty while in use
+
+    /** Sets the metrics that binding, serializing and the shared caches report to, as well as
+      * parsing when YamlerConfig.metrics is not set. Null disables metrics.
+      */
+    public static void setMetrics(YamlerMetrics newMetrics) {
+        metrics = newMetrics == null ? YamlerMetrics.NONE : newMetrics;
+    }
+    public static YamlerMetrics metrics() { return metrics; }
+
     public static <T> void addSerializer(Class<T> clazz, Function<T,Map<String,Object>> map) {
         Internal.customSerializers.put((Class<Object>)clazz, (Function<Object, Map<String,Object>>) map);
     }
     public static <T> void addDeserializer(Class<T> clazz, Function<StringKeyMap,T> map) {
         Internal.customDeserializers.put((Class<Object>)clazz, (Function<StringKeyMap,Object>) map);
+        YamlProjection.clearClassProjections();
+    }
+    static boolean hasDeserializer(Class<?> clazz) {
+        return Internal.customDeserializers.containsKey(clazz);
     }
 
     /* Parse given yaml text into Java objects (Map, List, String, Number, Boolean).
@@ -81,7 +116,72 @@ public class Yamler {
      * @see: YamlDocuments
      */
     public YamlDocuments parseYaml(String yamlText) {
-        return new YamlParser(config, yamlText).parse();
+        if(config.cache != null && config.cache.cacheStrings) return config.cache.get(yamlText, this::parseUncached);
+        return parseUncached(yamlText);
+    }
+    /* Same as parseYaml(yamlText), but throws a YamlerCancelledException when given cancellation is
+     * cancelled or its deadline passes before parsing is done.
+     *
+     * @see: YamlCancellation
+     */
+    public YamlDocuments parseYaml(String yamlText, YamlCancellation cancellation) {
+        return cancellation.call(() -> parseYaml(yamlText));
+    }
+    /* Parse the yaml in given file. When YamlerConfig.cache is set, the file is only parsed again when
+     * it changed.
+     *
+     * @see: YamlCache
+     */
+    public YamlDocuments parseYaml(Path yamlFile) {
+        if(config.cache != null) return config.cache.get(yamlFile, text -> parseUncached(text, yamlFile));
+        try {
+            return parseUncached(Files.readString(yamlFile, StandardCharsets.UTF_8), yamlFile);
+        } catch (final IOException e) {
+            throw new YamlerException("Unable to read " + yamlFile + ": " + e.getMessage(), e);
+        }
+    }
+    private YamlDocuments parseUncached(String yamlText) {
+        return parseReusingParser(yamlText, null, null);
+    }
+    private YamlDocuments parseUncached(String yamlText, Path source) {
+        return parseReusingParser(yamlText, source.toString(), null);
+    }
+    /** Parses with the parser of this thread bound to the config, so its buffers are reused. The
+      * parser is taken out of the pool while in use, so a nested parse on the same thread (like
+      * from a parse handler) creates one of its own.
+      */
+    private YamlDocuments parseReusingParser(String yamlText, String source, YamlProjection projection) {
+        final YamlParser[] pool = pooledParser.get();
+        final YamlParser parser = pool[0] == null ? new YamlParser(config, yamlText) : pool[0].reset(config, yamlText);
+        pool[0] = null;
+        try {
+            return parser.source(source).projection(projection).parse();
+        } finally {
+            parser.reset(YamlerConfig.DEFAULT, ""); // don't keep the config, the text and anchored values
+            pool[0] = parser;
+        }
+    }
+    /** Parser kept by this thread, or null (for tests) */
+    static YamlParser pooledParser() {
+        return pooledParser.get()[0];
+    }
+
+    /* Same as parseYaml() but only records the structure of the documents. Maps and lists are
+     * created when accessed, so this is cheaper when only a small part of the data is used.
+     *
+     * @see: LazyDocument
+     */
+    public LazyDocument parseYamlLazy(String yamlText) {
+        return new YamlParser(config, yamlText).parseLazy();
+    }
+
+    /* Same as parseYaml() but keeps the text and parsed entries, so that after an edit only the
+     * changed part needs to be parsed again.
+     *
+     * @see: IncrementalYamlDocument
+     */
+    public IncrementalYamlDocument parseYamlIncremental(String yamlText) {
+        return new IncrementalYamlDocument(config, yamlText);
     }
 
     public static String toJsonString(Object obj) { return toJsonString(obj, -1); }
@@ -93,8 +193,82 @@ public class Yamler {
         }
     }
 
+    /* JSON with keys in sorted order, no whitespace and normalized numbers, so equal data always
+     * leads to the same text. The given data is not changed.
+     *
+     * @see: CanonicalJsonWriter
+     */
+    public static String toCanonicalJsonString(Object obj) {
+        final StringBuilder sb = new StringBuilder();
+        writeCanonicalJson(obj, sb, false);
+        return sb.toString();
+    }
+    /* Writes canonical JSON to given output and returns the SHA-256 hash of what was written */
+    public static byte[] writeCanonicalJson(Object obj, Appendable out) {
+        return writeCanonicalJson(obj, out, true);
+    }
+    private static byte[] writeCanonicalJson(Object obj, Appendable out, boolean hash) {
+        try {
+            return new CanonicalJsonWriter(out, hash).write(obj);
+        } finally {
+            Internal.runState.remove();
+        }
+    }
+    /* SHA-256 hash of the canonical JSON of given data, calculated without creating the JSON text */
+    public static byte[] canonicalHash(Object obj) {
+        return writeCanonicalJson(obj, null);
+    }
+
+    /* Writes given data (or YamlDocuments) as a binary snapshot that is much faster to read than yaml.
+     * The output is not closed.
+     *
+     * @see: YamlBinary
+     */
+    public static void writeBinary(Object data, OutputStream out) {
+        try {
+            YamlBinary.write(data, out);
+        } finally {
+            Internal.runState.remove();
+        }
+    }
+    /* Reads the documents of a binary snapshot, creating maps and lists like parseYaml() would */
+    public YamlDocuments readBinary(InputStream in) {
+        try {
+            return YamlBinary.read(config, ByteBuffer.wrap(in.readAllBytes()));
+        } catch (final IOException e) {
+            throw new YamlerException("Unable to read binary: " + e.getMessage(), e);
+        }
+    }
+    /* Memory maps the binary snapshot in given file. Maps and lists are read when accessed.
+     *
+     * @see: BinaryDocument
+     */
+    public BinaryDocument readBinaryLazy(Path file) {
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) throw new YamlerException("Binary snapshot too large to map: " + file);
+            return new BinaryDocument(config, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (final IOException e) {
+            throw new YamlerException("Unable to read binary: " + e.getMessage(), e);
+        }
+    }
+
+    /* Parses given yaml and maps it to given class. Values of keys that the class (and the classes
+     * of its values) don't read are skipped while parsing, unless YamlerConfig.projection is set
+     * or yaml texts are cached (then the cached, complete, documents are mapped).
+     *
+     * @see: YamlProjection#forClass(Class)
+     */
     public <T> T mapYamlToClass(String yaml, Class<T> clazz) {
-        return mapCollectionsToClass(parseYaml(yaml).first(), clazz);
+        if(config.projection != null || (config.cache != null && config.cache.cacheStrings)) return mapCollectionsToClass(parseYaml(yaml).first(), clazz);
+        return mapCollectionsToClass(parseReusingParser(yaml, null, YamlProjection.forClass(clazz)).first(), clazz);
+    }
+    /* Same as mapYamlToClass(yaml, clazz), but throws a YamlerCancelledException when given
+     * cancellation is cancelled or its deadline passes before parsing and mapping are done.
+     *
+     * @see: YamlCancellation
+     */
+    public <T> T mapYamlToClass(String yaml, Class<T> clazz, YamlCancellation cancellation) {
+        return cancellation.call(() -> mapYamlToClass(yaml, clazz));
     }
     public static <T> T mapCollectionsToClass(Object data, Class<T> clazz) {
         if(data == null) data = new HashMap<>();
@@ -104,6 +278,10 @@ public class Yamler {
     public static <T> T mapCollectionsToClass(StringKeyMap map, Class<T> clazz) {
         try {
             return Internal.mapCollectionsToClass(map, clazz);
+        } catch(final RuntimeException failed) {
+            final YamlCancellation cancellation = YamlCancellation.current();
+            if(cancellation != null) cancellation.check(); // the mapping may have failed because it was cancelled
+            throw failed;
         } finally {
             Internal.runState.remove();
         }
@@ -129,15 +307,10 @@ public class Yamler {
         private static final ThreadLocal<RunState> runState = ThreadLocal.withInitial(RunState::new);
 
         private static <T> T mapCollectionsToClass(StringKeyMap map, Class<T> clazz) {
-            return Value.orSupplyValue(
-                // Custom serializer for class
-                () -> Value.of(clazz)
-                    .flatMap(c -> Value.of(customDeserializers.get(c)))
-                    .map(ser -> (T)ser.apply(map)),
-
-                // Supported conversions
-                () -> Value.of(RSObjectMapper.convert(clazz, map))
-            ).orElseThrow();
+            // Custom deserializer for class, else supported conversions (which throw when failing)
+            final Function<StringKeyMap, Object> deserializer = customDeserializers.get(clazz);
+            final Object deserialized = deserializer == null ? null : deserializer.apply(map);
+            return deserialized != null ? (T) deserialized : RSObjectMapper.convert(clazz, map);
         }
         private static Object toCollections(Object obj) {
             if(obj == null) return null;
@@ -151,13 +324,21 @@ public class Yamler {
                 return Value.orSupplyValue(
                     () -> Value.of(obj).filter(Internal::isJsonObject),
                     () -> Value.of(obj).filter(YamlDocuments.class::isInstance).map(doc -> toCollections(((YamlDocuments) doc).maps())),
-                    () -> Value.of(customSerializers.get(obj.getClass())).map(ser -> ser.apply(obj)),
-                    () -> Value.of(RSObjectMapper.getStrategy(obj.getClass()).createMapFrom(obj))
-                ).orElseThrow(() -> new YamlerException("Don't know how to create json from " + obj));
+                    () -> Value.of(customSerializers.get(obj.getClass())).map(ser -> ser.apply(obj))
+                ).orElseGet(() -> createMapFrom(obj));
             } finally {
                 runState.get().toJsonDepth--;
             }
         }
+        /** Map of the values of given object, throwing with the cause when that fails */
+        private static Object createMapFrom(Object obj) {
+            try {
+                return Value.of(RSObjectMapper.getStrategy(obj.getClass()).createMapFrom(obj))
+                    .orElseThrow(() -> new YamlerException("Don't know how to create json from " + obj));
+            } catch(final RSObjectMapperException e) {
+                throw new YamlerException("Don't know how to create json from " + obj, e);
+            }
+        }
         private static boolean isJsonObject(Object obj) {
             return obj == null
                 || obj instanceof String
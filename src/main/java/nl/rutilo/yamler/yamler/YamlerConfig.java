@@ -4,6 +4,7 @@ import lombok.Builder;
 import lombok.Builder.Default;
 import lombok.RequiredArgsConstructor;
 import nl.rutilo.yamler.collections.Collections2;
+import nl.rutilo.yamler.collections.CompactMap;
 import nl.rutilo.yamler.utils.Converters;
 import nl.rutilo.yamler.utils.Value;
 import nl.rutilo.yamler.yamler.exceptions.YamlerException;
@@ -14,6 +15,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
@@ -46,15 +48,47 @@ public class YamlerConfig {
     }
 
     @Default public final Supplier<Map<Object,Object>> defaultMapGenerator = DEFAULT_MAP_GENERATOR;
+             /** When set, used instead of defaultMapGenerator. Gets the expected number of keys. */
+             public final IntFunction<Map<Object,Object>> sizedMapGenerator;
     @Default public final Supplier<List<Object>>       defaultListGenerator = DEFAULT_LIST_GENERATOR;
     @Default public final Map<String, Function<ParseInfo, Object>> userParseHandlers = DEFAULT_PARSE_HANDLERS;
              public final boolean                      disallowColonsInUnquotedKeys;
+             /** Sequences of only ints, longs or doubles become IntList, LongList or DoubleList */
+             public final boolean                      primitiveLists;
     @Default public final String                       variableSyntax = "${var}";
              public final Map<String,?>                variables;
              public final UnaryOperator<String>        variableGetter;
+             /** When set, parsed files (and text when YamlCache.cacheStrings) are cached here and returned unmodifiable */
+             public final YamlCache                    cache;
+             /** When set, only the values at these paths are kept when parsing (see YamlProjection) */
+             public final YamlProjection               projection;
+             /** When set, parsing with this config reports here instead of to Yamler.metrics() */
+             public final YamlerMetrics                metrics;
+
+             // Limits for parsing untrusted input. Parsing fails with a YamlerException when one
+             // is exceeded. Zero means no limit.
+             /** Maximum nesting of maps and lists */
+    @Default public final int                          maxDepth = 1000;
+             /** Maximum number of values (maps, lists and scalars) in all documents, where an alias counts as the values it refers to */
+             public final long                         maxNodes;
+             /** Maximum length of a scalar, checked while reading it so a longer scalar fails as soon as
+               * the limit is passed (also when skipped by a projection). Numbers count their digits.
+               */
+             public final int                          maxScalarLength;
+             public final int                          maxDocuments;
+             /** Maximum number of values that aliases refer to in total, which protects consumers
+               * that walk the result (like toJsonString) against exponential expansion of aliases
+               * to values that contain aliases themselves ("billion laughs").
+               */
+    @Default public final long                         maxAliasExpansion = 10_000_000;
 
     public static class YamlerConfigBuilder {
-        public YamlerConfigBuilder orderedMaps() { return defaultMapGenerator(LinkedHashMap::new); }
+        public YamlerConfigBuilder orderedMaps() { return sizedMapGenerator(null).defaultMapGenerator(LinkedHashMap::new); }
+        /** Ordered maps that share their keys with other maps that have the same keys (see CompactMap) */
+        public YamlerConfigBuilder compactMaps() { return sizedMapGenerator(CompactMap::new).defaultMapGenerator(CompactMap::new); }
+        /** Only keep the values at given paths when parsing (see YamlProjection) */
+        public YamlerConfigBuilder projection(String... paths) { return projection(YamlProjection.of(paths)); }
+        public YamlerConfigBuilder projection(YamlProjection projection) { this.projection = projection; return this; } // Lombok skips it because of the above
     }
 
 //    public YamlerConfig() { this(null, null, false); }
@@ -78,6 +112,10 @@ public class YamlerConfig {
 //        return withUserParseHandlers(new ReadOnlyMap<>(newHandlers));
 //    }
 
+    Map<Object,Object> createMap(int expectedSize) {
+        return sizedMapGenerator == null ? defaultMapGenerator.get() : sizedMapGenerator.apply(expectedSize);
+    }
+
     Object handleTag(String name, ParseInfo pi) {
         return  Value.of(name).map(userParseHandlers::get)
                      .or(Value.of(name).map(DEFAULT_PARSE_HANDLERS::get))
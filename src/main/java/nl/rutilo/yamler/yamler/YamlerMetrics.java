@@ -0,0 +1,45 @@
+package nl.rutilo.yamler.yamler;
+
+/** Receives measurements of Yamler so they can be exported to a monitoring system. Parsing
+  * reports to YamlerConfig.metrics when set. Everything else (binding, serializing and the
+  * shared caches) is static and reports to the global metrics of Yamler.setMetrics().<br><br>
+  *
+  * All methods have an empty default so implementations only need to override what they use.
+  * They are called on the thread doing the work, so they should be fast and thread safe (see
+  * CountingYamlerMetrics). When isEnabled() returns false, no times are measured and nothing is
+  * called, which is the case for the default NONE.
+  */
+public interface YamlerMetrics {
+    /** The caches that report hits and misses */
+    enum Cache {
+        /** Reflection strategy per class (RSObjectMapper) */
+        STRATEGIES,
+        /** Compiled key paths (KeyPath.cached) */
+        KEY_PATHS,
+        /** Projections of classes that are bound (YamlProjection.forClass) */
+        CLASS_PROJECTIONS,
+        /** Parsed yaml files or texts (YamlCache) */
+        YAML
+    }
+
+    /** Metrics that measure nothing */
+    YamlerMetrics NONE = new YamlerMetrics() {
+        @Override public boolean isEnabled() { return false; }
+    };
+
+    default boolean isEnabled() { return true; }
+
+    /** A text of given length was parsed into given number of documents */
+    default void parsed(int chars, int documents, int tokens, long nanos) {}
+
+    /** An object of given type was created from a map (including the objects in its values) */
+    default void bound(Class<?> type, long nanos) {}
+
+    /** The reflection strategy for given type was determined (which happens once per type) */
+    default void strategyChosen(Class<?> type, Class<?> strategy) {}
+
+    /** Json of given length was generated */
+    default void serialized(int chars, long nanos) {}
+
+    default void cacheAccessed(Cache cache, boolean hit) {}
+}
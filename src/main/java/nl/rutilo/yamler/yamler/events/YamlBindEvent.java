@@ -0,0 +1,27 @@
+package nl.rutilo.yamler.yamler.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight recorder event for RSObjectMapper.convert(): an object created from a map. Objects in
+  * its values are bound first, so their events are nested in this one.
+  */
+@Name("nl.rutilo.yamler.Bind")
+@Label("Yaml Bind")
+@Category("Yamler")
+@Description("Object created from a map")
+@StackTrace(false)
+public final class YamlBindEvent extends Event {
+    @Label("Class")
+    public Class<?> type;
+
+    @Label("Strategy")
+    public String strategy;
+
+    @Label("Fields")
+    public int fields;
+}
@@ -0,0 +1,25 @@
+package nl.rutilo.yamler.yamler.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight recorder event for YamlParser.parse(): a yaml text parsed into documents */
+@Name("nl.rutilo.yamler.Parse")
+@Label("Yaml Parse")
+@Category("Yamler")
+@Description("Yaml text parsed into documents")
+@StackTrace(false)
+public final class YamlParseEvent extends Event {
+    @Label("Characters") @Description("Number of characters (not bytes)")
+    public int chars;
+
+    @Label("Documents")
+    public int documents;
+
+    @Label("Source") @Description("File that was parsed, if any")
+    public String source;
+}
@@ -0,0 +1,22 @@
+package nl.rutilo.yamler.yamler.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight recorder event for Yamler.toJsonString(): json generated from data or an object */
+@Name("nl.rutilo.yamler.Serialize")
+@Label("Yaml Serialize")
+@Category("Yamler")
+@Description("Json generated from data or an object")
+@StackTrace(false)
+public final class YamlSerializeEvent extends Event {
+    @Label("Class") @Description("Class of the serialized value")
+    public Class<?> type;
+
+    @Label("Characters") @Description("Number of characters (not bytes)")
+    public int chars;
+}
@@ -0,0 +1,22 @@
+package nl.rutilo.yamler.yamler.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Flight recorder event for RSObjectMapper.getStrategy() finding out how to map a class, which
+  * happens once per class. Has a stack trace to find where a class is first mapped.
+  */
+@Name("nl.rutilo.yamler.StrategyDiscovery")
+@Label("Yaml Strategy Discovery")
+@Category("Yamler")
+@Description("Reflection strategy determined for a class")
+public final class YamlStrategyDiscoveryEvent extends Event {
+    @Label("Class")
+    public Class<?> type;
+
+    @Label("Strategy") @Description("Chosen strategy, or null when the class cannot be mapped")
+    public String strategy;
+}
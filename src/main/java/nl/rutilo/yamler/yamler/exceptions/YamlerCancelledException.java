@@ -0,0 +1,8 @@
+package nl.rutilo.yamler.yamler.exceptions;
+
+/** Thrown when parsing or mapping was cancelled or passed its deadline (see YamlCancellation) */
+public class YamlerCancelledException extends YamlerException {
+    public YamlerCancelledException(String message) {
+        super(message);
+    }
+}
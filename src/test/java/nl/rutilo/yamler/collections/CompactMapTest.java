@@ -0,0 +1,133 @@
+package nl.rutilo.yamler.collections;
+
+import nl.rutilo.yamler.yamler.Yamler;
+import nl.rutilo.yamler.yamler.YamlerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompactMapTest {
+    private static CompactMap<Object, Object> mapOf(Object... kvs) {
+        final CompactMap<Object, Object> map = new CompactMap<>(kvs.length / 2);
+        for (int i = 0; i < kvs.length; i += 2) map.put(kvs[i], kvs[i + 1]);
+        return map;
+    }
+
+    @Test void behavesAsOrderedMap() {
+        final CompactMap<Object, Object> map = mapOf("b", 1, "a", 2, null, 3);
+        assertThat(map.size(), is(3));
+        assertThat(map.get("a"), is(2));
+        assertThat(map.get(null), is(3));
+        assertThat(map.get("x"), is(nullValue()));
+        assertThat(map.containsKey(null), is(true));
+        assertThat(map.put("a", 22), is(2));
+        assertThat(new ArrayList<>(map.keySet()), is(new ArrayList<>(Arrays.asList("b", "a", null))));
+        assertThat(map.equals(new LinkedHashMap<>(map)), is(true));
+        assertThat(map.hashCode(), is(new LinkedHashMap<>(map).hashCode()));
+        assertThat(map.isCompact(), is(true));
+    }
+    @Test void mapsWithSameKeysShareShape() {
+        final CompactMap<Object, Object> map1 = mapOf("name", "a", "age", 1);
+        final CompactMap<Object, Object> map2 = mapOf("name", "b", "age", 2);
+        final CompactMap<Object, Object> map3 = mapOf("age", 3, "name", "c");
+        assertThat(map1.sharesKeysWith(map2), is(true));
+        assertThat(map1.sharesKeysWith(map3), is(false));
+        assertThat(map2.get("name"), is("b"));
+    }
+    @Test void upgradesWhenOutOfShape() {
+        final CompactMap<Object, Object> removed = mapOf("a", 1, "b", 2, "c", 3);
+        assertThat(removed.remove("x"), is(nullValue()));
+        assertThat(removed.isCompact(), is(true));
+        assertThat(removed.remove("b"), is(2));
+        assertThat(removed.isCompact(), is(false));
+        assertThat(removed, is(Map.of("a", 1, "c", 3)));
+
+        final CompactMap<Object, Object> large = new CompactMap<>();
+        final Map<Object, Object> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) { large.put("key" + i, i); expected.put("key" + i, i); }
+        assertThat(large.isCompact(), is(false));
+        assertThat(large, is(expected));
+        assertThat(new ArrayList<>(large.keySet()), is(new ArrayList<>(expected.keySet())));
+
+        large.clear();
+        assertThat(large.isCompact(), is(true));
+        assertThat(large.isEmpty(), is(true));
+    }
+    @Test void unusedShapesAreReleased() throws InterruptedException {
+        final int before = CompactMap.shapeCount();
+        List<CompactMap<Object, Object>> maps = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) maps.add(mapOf("unused-" + i, i, "x", i));
+        assertThat(CompactMap.shapeCount() >= before + 2000, is(true));
+        assertThat(maps.get(0).sharesKeysWith(mapOf("unused-0", 1, "x", 2)), is(true));
+
+        maps = null; // NOSONAR -- makes the shapes collectable
+        for (int i = 0; i < 100 && CompactMap.shapeCount() >= before + 2000; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertThat(CompactMap.shapeCount() < before + 2000, is(true));
+    }
+    @Test void iteratorWritesThrough() {
+        final CompactMap<Object, Object> map = mapOf("a", 1, "b", 2, "c", 3);
+        map.entrySet().forEach(e -> e.setValue((Integer) e.getValue() * 10));
+        assertThat(map, is(Map.of("a", 10, "b", 20, "c", 30)));
+
+        final Iterator<Map.Entry<Object, Object>> it = map.entrySet().iterator();
+        final List<Object> keys = new ArrayList<>();
+        while (it.hasNext()) {
+            final Map.Entry<Object, Object> entry = it.next();
+            keys.add(entry.getKey());
+            if ("a".equals(entry.getKey())) it.remove();
+        }
+        assertThat(keys, is(List.of("a", "b", "c")));
+        assertThat(map, is(Map.of("b", 20, "c", 30)));
+    }
+    @Test void iteratorFailsWhenKeysChangeOutsideIt() {
+        final CompactMap<Object, Object> added = mapOf("a", 1, "b", 2);
+        final Iterator<Map.Entry<Object, Object>> addIt = added.entrySet().iterator();
+        addIt.next();
+        added.put("a", 11); // not a change of keys
+        addIt.next();
+        added.put("c", 3);
+        assertThrows(ConcurrentModificationException.class, addIt::next);
+
+        final CompactMap<Object, Object> removed = mapOf("a", 1, "b", 2, "c", 3);
+        final Iterator<Map.Entry<Object, Object>> removeIt = removed.entrySet().iterator();
+        removeIt.next();
+        removed.remove("b");
+        assertThrows(ConcurrentModificationException.class, removeIt::next);
+        assertThrows(ConcurrentModificationException.class, removeIt::remove);
+
+        final CompactMap<Object, Object> cleared = mapOf("a", 1, "b", 2);
+        final Iterator<Map.Entry<Object, Object>> clearIt = cleared.entrySet().iterator();
+        cleared.clear();
+        assertThrows(ConcurrentModificationException.class, clearIt::next);
+    }
+    @Test void parserCreatesCompactMaps() {
+        final YamlerConfig config = YamlerConfig.builder().compactMaps().build();
+        final Object result = new Yamler(config).parseYaml("""
+            - { name: a, age: 1 }
+            - name: b
+              age: 2
+            - name: c
+              age: 3
+              extra: true
+            """).first();
+        @SuppressWarnings("unchecked") final List<CompactMap<Object, Object>> list = (List<CompactMap<Object, Object>>) result;
+        assertThat(list.get(0).sharesKeysWith(list.get(1)), is(true));
+        assertThat(list.get(1).get("age"), is(2));
+        assertThat(list.get(2).get("extra"), is(true));
+        assertThat(new ArrayList<>(list.get(2).keySet()), is(List.of("name", "age", "extra")));
+    }
+}
@@ -0,0 +1,36 @@
+package nl.rutilo.yamler.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IntListTest {
+    @Test void behavesAsList() {
+        final IntList list = new IntList(1);
+        for (int i = 0; i < 100; i++) list.addInt(i);
+        assertThat(list.size(), is(100));
+        assertThat(list.getInt(99), is(99));
+        assertThat(list.get(50), is(50));
+
+        list.subList(3, 100).clear();
+        assertThat(list, is(List.of(0, 1, 2)));
+        list.add(1, 10);
+        list.set(0, -1);
+        assertThat(list.remove(2), is(1));
+        assertThat(list, is(List.of(-1, 10, 2)));
+        assertThat(list.hashCode(), is(List.of(-1, 10, 2).hashCode()));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.getInt(3));
+    }
+    @Test void toArrays() {
+        final IntList list = IntList.of(1, 2, 3);
+        assertThat(list.toIntArray(), is(new int[] { 1, 2, 3 }));
+        assertThat(list.toLongArray(), is(new long[] { 1, 2, 3 }));
+        assertThat(list.toDoubleArray(), is(new double[] { 1, 2, 3 }));
+        assertThat(LongList.of(4L, 5L).toDoubleArray(), is(new double[] { 4, 5 }));
+        assertThat(DoubleList.of(1.5).toDoubleArray(), is(new double[] { 1.5 }));
+    }
+}
@@ -0,0 +1,118 @@
+package nl.rutilo.yamler.collections;
+
+import nl.rutilo.yamler.yamler.Yamler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonPatchTest {
+    private static StringKeyMap yaml(String text) {
+        return StringKeyMap.convertFrom((Map<?,?>) new Yamler().parseYaml(text).first());
+    }
+
+    @Test void treeHashesFollowEquals() {
+        final TreeHashes hashes = new TreeHashes();
+        assertThat(hashes.equal(Map.of("a", List.of(1, 2), "b", "x"), yaml("{ b: x, a: [1, 2] }")), is(true));
+        assertThat(hashes.equal(IntList.of(1, 2), List.of(1, 2)), is(true));
+        assertThat(hashes.equal(List.of(1), List.of(1L)), is(false));
+        assertThat(hashes.equal(List.of("Aa"), List.of("BB")), is(false)); // same String.hashCode()
+        assertThat(hashes.equal(Map.of("a", 1), List.of(1)), is(false));
+        assertThat(hashes.equal(Map.of(), null), is(false));
+
+        final StringKeyMap shared = yaml("{ big: [1, 2, 3] }");
+        hashes.hashOf(Map.of("x", shared));
+        final int cached = hashes.size();
+        hashes.hashOf(Map.of("y", shared)); // only the new root is hashed
+        assertThat(hashes.size(), is(cached + 1));
+    }
+    @Test void diffGivesMinimalOperations() {
+        final StringKeyMap source = yaml("{ a: 1, b: { c: [1, 2, 3], d: x }, e: [{ f: 1 }, { g: 2 }], 'h/i~': 0 }");
+        final StringKeyMap target = yaml("{ a: 2, b: { c: [1, 9, 2, 3], d: x }, e: [{ f: 1 }, { g: 3 }], j: [] }");
+        final List<StringKeyMap> patch = source.diff(target);
+        assertThat(Yamler.toJsonString(patch), is("["
+            + "{\"op\":\"replace\",\"path\":\"/a\",\"value\":2},"
+            + "{\"op\":\"add\",\"path\":\"/b/c/1\",\"value\":9},"
+            + "{\"op\":\"replace\",\"path\":\"/e/1/g\",\"value\":3},"
+            + "{\"op\":\"remove\",\"path\":\"/h~1i~0\"},"
+            + "{\"op\":\"add\",\"path\":\"/j\",\"value\":[]}"
+            + "]"));
+        assertThat(source.applyPatch(patch), is(target));
+        assertThat(source.diff(yaml(source.toJsonString())).isEmpty(), is(true));
+        assertThat(JsonPatch.diff(List.of(1), "x").toString(), is("[{op=replace, path=, value=x}]"));
+    }
+    @Test void applyCopiesOnlyTouchedPaths() {
+        final StringKeyMap source = yaml("{ a: { b: 1 }, c: { d: [1, 2] }, e: [3] }");
+        final String before = source.toJsonString();
+        final StringKeyMap result = source.applyPatch(List.of(
+            Map.of("op", "replace", "path", "/c/d/0", "value", 5),
+            Map.of("op", "add", "path", "/c/d/-", "value", 6),
+            Map.of("op", "test", "path", "/c/d", "value", List.of(5, 2, 6)),
+            Map.of("op", "copy", "from", "/a", "path", "/f"),
+            Map.of("op", "move", "from", "/e/0", "path", "/a/x")
+        ));
+        assertThat(result.toJsonString(), is("{\"a\":{\"b\":1,\"x\":3},\"c\":{\"d\":[5,2,6]},\"e\":[],\"f\":{\"b\":1}}"));
+        assertThat(source.toJsonString(), is(before));
+        assertThat(result.get("f") == source.get("a"), is(true));
+        assertThat(result.get("c") == source.get("c"), is(false));
+    }
+    @Test void copiedValuesAreNotChangedTogether() {
+        final StringKeyMap source = yaml("{ c: { d: [1, 2] } }");
+        final StringKeyMap result = source.applyPatch(List.of(
+            Map.of("op", "replace", "path", "/c/d/0", "value", 5),
+            Map.of("op", "copy", "from", "/c", "path", "/f"),
+            Map.of("op", "replace", "path", "/f/d/0", "value", 9),
+            Map.of("op", "add", "path", "/c/d/-", "value", 3)
+        ));
+        assertThat(result.toJsonString(), is("{\"c\":{\"d\":[5,2,3]},\"f\":{\"d\":[9,2]}}"));
+        assertThat(source.toJsonString(), is("{\"c\":{\"d\":[1,2]}}"));
+    }
+    @Test void invalidPatchesThrow() {
+        final StringKeyMap source = yaml("{ a: [1], b: x }");
+        assertThrows(IllegalArgumentException.class, () -> source.applyPatch(List.of(Map.of("op", "remove", "path", "/x"))));
+        assertThrows(IllegalArgumentException.class, () -> source.applyPatch(List.of(Map.of("op", "add", "path", "/a/2", "value", 1))));
+        assertThrows(IllegalArgumentException.class, () -> source.applyPatch(List.of(Map.of("op", "add", "path", "/a/01", "value", 1))));
+        assertThrows(IllegalArgumentException.class, () -> source.applyPatch(List.of(Map.of("op", "add", "path", "/b/c", "value", 1))));
+        assertThrows(IllegalArgumentException.class, () -> source.applyPatch(List.of(Map.of("op", "test", "path", "/b", "value", "y"))));
+        assertThrows(IllegalArgumentException.class, () -> source.applyPatch(List.of(Map.of("op", "move", "from", "/a", "path", "/a/0"))));
+        assertThrows(IllegalArgumentException.class, () -> source.applyPatch(List.of(Map.of("op", "add", "path", "a", "value", 1))));
+        assertThrows(IllegalArgumentException.class, () -> source.applyPatch(List.of(Map.of("op", "x", "path", "/a"))));
+    }
+    @Test void randomChangesRoundTrip() {
+        final Random random = new Random(1);
+        final StringKeyMap source = yaml("{ a: [1, 2, { b: [3, 4] }], c: { d: 5, e: [6] }, f: 7 }");
+        for(int i = 0; i < 200; i++) {
+            final StringKeyMap target = yaml(source.toJsonString());
+            for(int change = 0; change < 3; change++) change(target, random);
+            final List<StringKeyMap> patch = JsonPatch.diff(source, target);
+            final List<StringKeyMap> wire = new ArrayList<>();
+            ((List<?>) new Yamler().parseYaml(Yamler.toJsonString(patch)).first()).forEach(op -> wire.add(StringKeyMap.convertFrom((Map<?,?>) op)));
+            assertThat(source.applyPatch(wire), is(target));
+        }
+    }
+    private static void change(Object node, Random random) {
+        if(node instanceof Map<?,?> map && !map.isEmpty()) {
+            final String key = new ArrayList<>(((Map<String, Object>) map).keySet()).get(random.nextInt(map.size()));
+            switch(random.nextInt(4)) {
+                case 0 -> ((Map<String, Object>) map).put(key, random.nextInt(10));
+                case 1 -> map.remove(key);
+                case 2 -> ((Map<String, Object>) map).put("k" + random.nextInt(5), new ArrayList<>(List.of(random.nextInt(3))));
+                default -> change(map.get(key), random);
+            }
+        } else if(node instanceof List<?> list) {
+            final List<Object> items = (List<Object>) list;
+            switch(random.nextInt(4)) {
+                case 0 -> items.add(random.nextInt(items.size() + 1), random.nextInt(10));
+                case 1 -> { if(!items.isEmpty()) items.remove(random.nextInt(items.size())); }
+                case 2 -> { if(!items.isEmpty()) items.set(random.nextInt(items.size()), new StringKeyMap("m", random.nextInt(3))); }
+                default -> { if(!items.isEmpty()) change(items.get(random.nextInt(items.size())), random); }
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package nl.rutilo.yamler.collections;
+
+import nl.rutilo.yamler.yamler.LazyDocument;
+import nl.rutilo.yamler.yamler.Yamler;
+import nl.rutilo.yamler.yamler.YamlerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonPathTest {
+    private static final StringKeyMap STORE = StringKeyMap.convertFrom((Map<?,?>) new Yamler(YamlerConfig.builder().orderedMaps().build()).parseYaml("""
+        store:
+          book:
+            - { title: A, price: 8.95, tags: [x] }
+            - { title: B, price: 12, isbn: 1-2 }
+            - { title: C, price: 8, isbn: 3-4, tags: [] }
+            - { title: D, price: 22.99 }
+          bicycle: { color: red, price: 19.95 }
+        items: [{ sku: s1, quantity: 1 }, { sku: s2, quantity: 5 }]
+        max: 10
+        'a.b': dotted
+        """).first());
+
+    private static String select(String query) {
+        return JsonPath.compile(query).select(STORE).stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    @Test void namesIndicesAndWildcards() {
+        assertThat(select("$.store.book[0].title"), is("A"));
+        assertThat(select("store.book[-1].title"), is("D"));
+        assertThat(select("$['store']['bicycle'].color"), is("red"));
+        assertThat(select("$['a.b']"), is("dotted"));
+        assertThat(select("items[*].sku"), is("s1,s2"));
+        assertThat(select("$.store.bicycle.*"), is("red,19.95"));
+        assertThat(select("$.store.book[9].title"), is(""));
+        assertThat(select("$.missing.x"), is(""));
+        assertThat(select("$.max"), is("10"));
+        assertThat(JsonPath.compile("$").select(STORE).get(0) == STORE, is(true));
+    }
+    @Test void recursiveDescent() {
+        assertThat(select("$..price"), is("8.95,12,8,22.99,19.95"));
+        assertThat(select("$..book[1].title"), is("B"));
+        assertThat(select("$.store..tags[0]"), is("x"));
+        assertThat(JsonPath.compile("$..*").select(STORE).size(), is(31));
+    }
+    @Test void slicesAndUnions() {
+        assertThat(select("$.store.book[1:3].title"), is("B,C"));
+        assertThat(select("$.store.book[::2].title"), is("A,C"));
+        assertThat(select("$.store.book[-2:].title"), is("C,D"));
+        assertThat(select("$.store.book[::-1].title"), is("D,C,B,A"));
+        assertThat(select("$.store.book[0, 3, 9].title"), is("A,D"));
+        assertThat(select("$.store.book[0]['title','price']"), is("A,8.95"));
+        assertThat(select("$.store.book[0:4:0].title"), is(""));
+    }
+    @Test void filters() {
+        assertThat(select("$.store.book[?(@.price < 10)].title"), is("A,C"));
+        assertThat(select("$.store.book[?(@.isbn)].title"), is("B,C"));
+        assertThat(select("$.store.book[?(!@.isbn)].title"), is("A,D"));
+        assertThat(select("$.store.book[?(@.price >= 8.95 && @.price <= 12 || @.title == 'D')].title"), is("A,B,D"));
+        assertThat(select("$.store.book[?(@.price > $.max)].title"), is("B,D"));
+        assertThat(select("$.store.book[?(@.price == 12.0)].title"), is("B"));
+        assertThat(select("$.store.book[?(@.title != \"A\" && (@.tags || @.price > 20))].title"), is("C,D"));
+        assertThat(select("$.store.book[?@.tags[0] == 'x'].title"), is("A"));
+        assertThat(select("items[?(@.quantity > 2)].sku"), is("s2"));
+        assertThat(select("$..[?(@.color)].price"), is("19.95"));
+        assertThat(STORE.select("$.store.book[?(@.price < 9)].price"), is(List.of(8.95, 8)));
+    }
+    @Test void evaluationStopsAtFirstMatch() {
+        final LazyDocument documents = new Yamler().parseYamlLazy("a: 1\n---\nb: { c: 2 }\n---\nb: { c: 3 }");
+        final JsonPath query = JsonPath.compile("$.b.c");
+        assertThat(documents.select(query).findFirst().orElse(null), is(2));
+        assertThat(query.first(Map.of("a", 1)).isPresent(), is(false));
+        assertThat(query.matches(Map.of("b", Map.of("c", 1))), is(true));
+        assertThat(query.stream(List.of(Map.of("b", Map.of("c", 4)), Map.of()).stream()).collect(Collectors.toList()), is(List.of(4)));
+    }
+    @Test void streamOnlyWalksDocumentsAsFarAsNeeded() {
+        final int[] visited = { 0 };
+        final List<Integer> items = new AbstractList<>() {
+            @Override public Integer get(int index) { visited[0]++; return index; }
+            @Override public int size() { return 1000; }
+        };
+        final JsonPath query = JsonPath.compile("$.items[*]");
+        final Map<String,Object> document = Map.of("items", items);
+
+        assertThat(query.stream(Stream.of(document)).limit(3).collect(Collectors.toList()), is(List.of(0, 1, 2)));
+        assertThat(visited[0] < 10, is(true));
+
+        visited[0] = 0;
+        assertThat(query.stream(Stream.of(document, document)).count(), is(2000L));
+        assertThat(visited[0], is(2000));
+
+        final List<Object> stepped = new ArrayList<>();
+        query.stream(Stream.of(document)).iterator().forEachRemaining(stepped::add);
+        assertThat(stepped, is(new ArrayList<>(items)));
+    }
+    @Test void invalidQueriesThrow() {
+        for(final String query : new String[] { "$.", "$[", "$[1", "$[?(@.a >)]", "$[a]", "$.a b]", "$[?(@.a < 1]", "$['a]" }) {
+            assertThrows(IllegalArgumentException.class, () -> JsonPath.compile(query), query);
+        }
+        assertThat(JsonPath.cached("$.a") == JsonPath.cached("$.a"), is(true));
+    }
+}
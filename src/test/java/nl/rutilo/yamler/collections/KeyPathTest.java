@@ -0,0 +1,35 @@
+package nl.rutilo.yamler.collections;
+
+import org.junit.jupiter.api.Test;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+
+class KeyPathTest {
+    @Test void compile() {
+        final KeyPath path = KeyPath.compile("a.b[3].c");
+        assertThat(path.size(), is(4));
+        assertThat(path.key(0), is("a"));
+        assertThat(path.key(1), is("b"));
+        assertThat(path.key(2), is("3"));
+        assertThat(path.key(3), is("c"));
+        assertThat(path.indices[2], is(3));
+        assertThat(path.indices[0], is(-1));
+        assertThat(path.toString(), is("a.b[3].c"));
+    }
+    @Test void compileEscaped() {
+        final KeyPath path = KeyPath.compile("map.key\\.\\[4\\]");
+        assertThat(path.size(), is(2));
+        assertThat(path.key(1), is("key.[4]"));
+        assertThat(path.indices[1], is(-1));
+    }
+    @Test void literal() {
+        final KeyPath path = KeyPath.literal("a.b[3]");
+        assertThat(path.size(), is(1));
+        assertThat(path.key(0), is("a.b[3]"));
+    }
+    @Test void cached() {
+        assertThat(KeyPath.cached("x.y") == KeyPath.cached("x.y"), is(true));
+        assertThat(KeyPath.cached("x.y"), is(KeyPath.compile("x.y")));
+    }
+}
@@ -0,0 +1,42 @@
+package nl.rutilo.yamler.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OverlayMapTest {
+    @Test void resolvesThroughLayers() {
+        final Map<String, Object> defaults = new StringKeyMap("a", Map.of("b", 1, "c", 2), "d", "D", "e", "E");
+        final Map<String, Object> override = new HashMap<>(Map.of("a", Map.of("c", 3), "e", Map.of("f", 4)));
+        final OverlayMap overlay = StringKeyMap.overlay(defaults, override);
+
+        assertThat(overlay.get("a.b"), is(1));
+        assertThat(overlay.get("a.c"), is(3));
+        assertThat(overlay.get("e.f"), is(4));
+        assertThat(overlay.get("d"), is("D"));
+        assertThat(overlay.get("x"), is(nullValue()));
+        assertThat(overlay.getValue("a.x").isPresent(), is(false));
+        assertThat(overlay.get("a") instanceof OverlayMap, is(true));
+        assertThat(List.copyOf(overlay.keySet()), is(List.of("a", "d", "e")));
+        assertThat(overlay, is(overlay.toStringKeyMap()));
+        assertThrows(UnsupportedOperationException.class, () -> overlay.put("x", 1));
+    }
+    @Test void isLive() {
+        final Map<String, Object> base = new HashMap<>(Map.of("a", 1));
+        final Map<String, Object> top = new HashMap<>();
+        final OverlayMap overlay = StringKeyMap.overlay(base, top);
+        assertThat(overlay.get("a"), is(1));
+        top.put("a", 2);
+        assertThat(overlay.get("a"), is(2));
+        top.put("a", null);
+        base.put("b", 3);
+        assertThat(overlay, is(Map.of("a", 1, "b", 3)));
+    }
+}
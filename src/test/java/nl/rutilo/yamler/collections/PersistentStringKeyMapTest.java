@@ -0,0 +1,94 @@
+package nl.rutilo.yamler.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PersistentStringKeyMapTest {
+    @Test void withAndWithoutKeepOldVersions() {
+        final PersistentStringKeyMap v1 = PersistentStringKeyMap.empty().with("a", 1).with("b", 2);
+        final PersistentStringKeyMap v2 = v1.with("c", 3);
+        final PersistentStringKeyMap v3 = v2.without("a");
+
+        assertThat(v1, is(Map.of("a", 1, "b", 2)));
+        assertThat(v2, is(Map.of("a", 1, "b", 2, "c", 3)));
+        assertThat(v3, is(Map.of("b", 2, "c", 3)));
+        assertThat(v3.without("nonexistent") == v3, is(true));
+        assertThat(v3.with("b", 2) == v3, is(true));
+        assertThat(PersistentStringKeyMap.empty().without("a").isEmpty(), is(true));
+    }
+    @Test void keepsInsertionOrder() {
+        PersistentStringKeyMap map = PersistentStringKeyMap.empty();
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) { map = map.with("key" + i, i); expected.add("key" + i); }
+        map = map.with("key5", "replaced");
+        assertThat(new ArrayList<>(map.keySet()), is(expected));
+        assertThat(map.get("key5"), is("replaced"));
+        assertThat(map.get("key1999"), is(1999));
+        assertThat(map.size(), is(2000));
+    }
+    @Test void removeManyCompacts() {
+        PersistentStringKeyMap map = PersistentStringKeyMap.empty();
+        final Map<String, Object> expected = new LinkedHashMap<>();
+        final Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            final String key = "k" + random.nextInt(500);
+            if (random.nextBoolean()) { map = map.with(key, i); expected.put(key, i); }
+            else { map = map.without(key); expected.remove(key); }
+        }
+        assertThat(map, is(expected));
+        assertThat(new ArrayList<>(map.keySet()), is(new ArrayList<>(expected.keySet())));
+    }
+    @Test void hashCollisions() {
+        // "Aa" and "BB" have the same hashCode
+        final PersistentStringKeyMap map = PersistentStringKeyMap.empty().with("Aa", 1).with("BB", 2).with("AaAa", 3).with("BBBB", 4);
+        assertThat(map.get("Aa"), is(1));
+        assertThat(map.get("BB"), is(2));
+        assertThat(map.without("Aa").get("BB"), is(2));
+        assertThat(map.without("Aa").get("Aa"), is(nullValue()));
+        assertThat(map.without("Aa").without("BB").size(), is(2));
+    }
+    @Test void pathsCopyOnlyWhatChanges() {
+        final PersistentStringKeyMap map = PersistentStringKeyMap.from(Map.of(
+            "a", Map.of("b", Map.of("c", 1), "unchanged", Map.of("x", 1)),
+            "list", List.of(Map.of("n", 1), Map.of("n", 2))
+        ));
+        final PersistentStringKeyMap map2 = map.with("a.b.c", 2);
+        assertThat(map2.getValue("a.b.c").orElse(null), is(2));
+        assertThat(map.getValue("a.b.c").orElse(null), is(1));
+        assertThat(map2.getValue("a.unchanged").get() == map.getValue("a.unchanged").get(), is(true));
+        assertThat(map2.get("list") == map.get("list"), is(true));
+
+        final PersistentStringKeyMap map3 = map2.with("list[1].n", 22).with("new.path", "p");
+        assertThat(map3.getValue("list[1].n").orElse(null), is(22));
+        assertThat(map3.getValue("new.path").orElse(null), is("p"));
+        assertThat(map2.getValue("list[1].n").orElse(null), is(2));
+
+        final PersistentStringKeyMap map4 = map3.without("a.b").without("list[0]");
+        assertThat(map4.getValue("a.b").isPresent(), is(false));
+        assertThat(map4.getValue("list[0].n").orElse(null), is(22));
+        assertThat(map3.without("a.nonexistent.deeper") == map3, is(true));
+    }
+    @Test void isImmutable() {
+        final PersistentStringKeyMap map = PersistentStringKeyMap.empty().with("a", new ArrayList<>(List.of(1)));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("b", 2));
+        assertThrows(UnsupportedOperationException.class, () -> map.remove("a"));
+        assertThrows(UnsupportedOperationException.class, () -> map.entrySet().iterator().next().setValue(2));
+        assertThrows(UnsupportedOperationException.class, () -> ((List<Object>) map.get("a")).add(2));
+    }
+    @Test void toStringKeyMap() {
+        final StringKeyMap source = new StringKeyMap("a", Map.of("b", 1), "c", List.of(2));
+        final PersistentStringKeyMap map = source.toPersistent();
+        assertThat(map.toStringKeyMap(), is(source));
+        assertThat(map.toStringKeyMap().get("a.b", 0), is(1));
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -111,6 +112,67 @@ class StringKeyMapTest {
         assertThat(map.get("map.list.3.list[2].3.[1].CDB1"), is(1));
         assertThat(map.get("map.list.3.list[2].3[2"), is(567));
     }
+    @Test void testGetWithKeyPath() {
+        final StringKeyMap map = new StringKeyMap(
+            "a", new StringKeyMap("b", List.of(1, 2L, 3.5, new StringKeyMap("c", true, "s", "text")))
+        );
+        assertThat(map.getInt(KeyPath.compile("a.b[0]"), 0), is(1));
+        assertThat(map.getLong(KeyPath.compile("a.b[1]"), 0L), is(2L));
+        assertThat(map.getDouble(KeyPath.compile("a.b[2]"), 0d), is(3.5));
+        assertThat(map.getInt(KeyPath.compile("a.b[2]"), 0), is(3));
+        assertThat(map.getBoolean(KeyPath.compile("a.b[3].c"), false), is(true));
+        assertThat(map.get(KeyPath.compile("a.b[3].s")), is("text"));
+        assertThat(map.getValue(KeyPath.compile("a.b[3].s")).orElse(""), is("text"));
+
+        assertThat(map.getInt(KeyPath.compile("a.b[3].s"), -1), is(-1));
+        assertThat(map.getInt(KeyPath.compile("a.b[4]"), -1), is(-1));
+        assertThat(map.getBoolean(KeyPath.compile("a.x"), true), is(true));
+        assertThat(map.getValue(KeyPath.compile("a.x")), is(Value.empty()));
+    }
+    @Test void testIgnoreCaseFollowsMutations() {
+        final StringKeyMap map = new StringKeyMap("Alpha", 1, "Beta", 2);
+        assertThat(map.getIgnoreCase("ALPHA"), is(1));
+
+        map.put("Gamma", 3);
+        assertThat(map.getIgnoreCase("gamma"), is(3));
+        map.putAll(Map.of("Delta", 4));
+        assertThat(map.getIgnoreCase("DELTA"), is(4));
+        map.computeIfAbsent("Epsilon", key -> 5);
+        assertThat(map.getIgnoreCase("epsilon"), is(5));
+
+        map.put("BETA", 22);
+        assertThat(map.getIgnoreCase("beta"), is(22));
+        map.remove("BETA");
+        assertThat(map.getIgnoreCase("beta"), is(2));
+        map.keySet().remove("Beta");
+        assertThat(map.getIgnoreCase("beta"), is(nullValue()));
+
+        final StringKeyMap copy = map.clone();
+        copy.put("Zeta", 6);
+        assertThat(copy.getIgnoreCase("ZETA"), is(6));
+        assertThat(map.getIgnoreCase("ZETA"), is(nullValue()));
+
+        map.clear();
+        assertThat(map.getIgnoreCase("alpha"), is(nullValue()));
+        map.put("ALPHA", 11);
+        assertThat(map.getIgnoreCase("alpha"), is(11));
+    }
+    @Test void testIgnoreCaseAfterRemovingManyKeys() {
+        final StringKeyMap map = new StringKeyMap();
+        for(int i = 0; i < 10_000; i++) map.put("Key" + i, i);
+        assertThat(map.getIgnoreCase("KEY0"), is(0));
+
+        for(int i = 0; i < 10_000; i += 2) map.remove("Key" + i);
+        assertThat(map.getIgnoreCase("key2"), is(nullValue()));
+        assertThat(map.getIgnoreCase("key3"), is(3));
+
+        map.put("KEY3", 33);
+        map.remove("KEY3");
+        assertThat(map.getIgnoreCase("key3"), is(3));
+        map.remove("Key5");
+        assertThat(map.getIgnoreCase("key5"), is(nullValue()));
+        assertThat(map.getIgnoreCase("KEY7"), is(7));
+    }
     @Test void testGetCollectionWithEmptyDefault() {
         final StringKeyMap map = new StringKeyMap();
         map.put("strings", List.of("abc", "def"));
@@ -221,6 +283,24 @@ class StringKeyMapTest {
         assertThat(map.get("b"), is(20));
         assertThat(map.get("c"), is(30));
     }
+    @Test void testMergeLayers() {
+        final Map<String,Object> shared = Map.of("x", 1);
+        final StringKeyMap defaults = new StringKeyMap("a", Map.of("b", 1, "c", 2), "d", shared, "e", "E");
+        final StringKeyMap env      = new StringKeyMap("a", Map.of("c", 3), "e", Map.of("f", 4));
+        final StringKeyMap host     = new StringKeyMap("a", Map.of("g", 5), "e", Map.of("h", 6));
+        final Map<String,Object> override = new HashMap<>(Map.of("a", Map.of("b", 10)));
+        override.put("d", null);
+
+        final StringKeyMap merged = StringKeyMap.merge(List.of(defaults, env, host, override));
+        assertThat(merged, is(Map.of(
+            "a", Map.of("b", 10, "c", 3, "g", 5),
+            "d", Map.of("x", 1),
+            "e", Map.of("f", 4, "h", 6) // the string in defaults is overridden, so not merged
+        )));
+        assertThat(List.copyOf(merged.keySet()), is(List.of("a", "d", "e")));
+        assertThat(merged.get("d") == shared, is(true));
+        assertThat(merged, is(StringKeyMap.join(List.of(defaults, env, host, StringKeyMap.from(override)))));
+    }
     @Test void testJoinWith() {
         final StringKeyMap map = new StringKeyMap()
             .putc("a", "A")
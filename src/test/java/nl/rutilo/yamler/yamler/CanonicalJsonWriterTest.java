@@ -0,0 +1,85 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.yamler.exceptions.YamlerException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CanonicalJsonWriterTest {
+    private static String quoted(String s) { return s.replace("`", "\""); }
+
+    @Test void sortsKeysWithoutChangingSource() {
+        final Map<String, Object> inner = new LinkedHashMap<>();
+        inner.put("z", 1);
+        inner.put("a", List.of(Map.of("y", 2, "b", 3)));
+        final Map<Object, Object> map = new LinkedHashMap<>();
+        map.put("c", inner);
+        map.put(10, true);
+        map.put("b", null);
+
+        assertThat(Yamler.toCanonicalJsonString(map), is(quoted("{`10`:true,`b`:null,`c`:{`a`:[{`b`:3,`y`:2}],`z`:1}}")));
+        assertThat(List.copyOf(inner.keySet()), is(List.of("z", "a")));
+    }
+    @Test void normalizesNumbers() {
+        assertThat(CanonicalJsonWriter.normalized(1.0), is("1"));
+        assertThat(CanonicalJsonWriter.normalized(-0.0), is("0"));
+        assertThat(CanonicalJsonWriter.normalized(1.5f), is("1.5"));
+        assertThat(CanonicalJsonWriter.normalized(0.1f), is("0.1"));
+        assertThat(CanonicalJsonWriter.normalized(1e21), is("1000000000000000000000"));
+        assertThat(CanonicalJsonWriter.normalized(-1.5e17), is("-150000000000000000"));
+        assertThat(CanonicalJsonWriter.normalized(1e21f), is("1000000000000000000000"));
+        assertThat(CanonicalJsonWriter.normalized(1.25e-7), is("1.25e-7"));
+        assertThat(CanonicalJsonWriter.normalized((short) 7), is("7"));
+        assertThat(CanonicalJsonWriter.normalized(new BigDecimal("1.500")), is("1.5"));
+        assertThat(CanonicalJsonWriter.normalized(new BigDecimal("1.5E+3")), is("1500"));
+        assertThat(CanonicalJsonWriter.normalized(Double.NaN), is("nan"));
+        assertThat(CanonicalJsonWriter.normalized(new BigDecimal("1.25E-7")), is("1.25e-7"));
+        assertThat(CanonicalJsonWriter.normalized(new BigDecimal("0.00")), is("0"));
+        assertThat(Yamler.toCanonicalJsonString(Map.of("i", 1, "d", 1.0)), is(quoted("{`d`:1,`i`:1}")));
+    }
+    @Test void writesShortestDoubles() {
+        assertThat(CanonicalJsonWriter.normalized(1e23), is("100000000000000000000000")); // Double.toString: 9.999999999999999E22
+        assertThat(CanonicalJsonWriter.normalized(0.1 + 0.2), is("0.30000000000000004"));
+        assertThat(CanonicalJsonWriter.normalized(2e-3), is("0.002"));
+        assertThat(CanonicalJsonWriter.normalized(1e-6), is("0.000001"));
+        assertThat(CanonicalJsonWriter.normalized(-1e-7), is("-1e-7"));
+        assertThat(CanonicalJsonWriter.normalized(12345678.5), is("12345678.5"));
+        assertThat(CanonicalJsonWriter.normalized(Double.MIN_VALUE), is("5e-324"));
+        assertThat(CanonicalJsonWriter.normalized(Double.MAX_VALUE), is("17976931348623157" + "0".repeat(292)));
+        assertThat(CanonicalJsonWriter.normalized(1.0e23f), is("100000000000000000000000"));
+        assertThat(CanonicalJsonWriter.normalized(3.4e10f), is("34000000000"));
+    }
+    @Test void keysThatAreTheSameAsTextAreRejected() {
+        final Map<Object, Object> map = new LinkedHashMap<>();
+        map.put(1, "a");
+        map.put("1", "b");
+        assertThrows(YamlerException.class, () -> Yamler.toCanonicalJsonString(map));
+        assertThrows(YamlerException.class, () -> Yamler.canonicalHash(new Yamler().parseYaml("1: a\n'1': b").first()));
+    }
+    @Test void hashesWhileWriting() throws Exception {
+        final Object data = new Yamler().parseYaml("b: [1, 2.50, text with ü and 𝄞]\na: { y: 1, x: 2 }").first();
+        final Object sameData = new Yamler().parseYaml("a: { x: 2, y: 1.0 }\nb: [1.0, 2.5, text with ü and 𝄞]").first();
+        final StringBuilder json = new StringBuilder();
+        final byte[] hash = Yamler.writeCanonicalJson(data, json);
+
+        assertThat(hash, is(MessageDigest.getInstance("SHA-256").digest(json.toString().getBytes(UTF_8))));
+        assertThat(Yamler.canonicalHash(data), is(hash));
+        assertThat(Yamler.canonicalHash(sameData), is(hash));
+        assertThat(Yamler.canonicalHash(Map.of("a", 1)).length, is(32));
+    }
+    @Test void largeStringsAreHashedCorrectly() throws Exception {
+        final String text = "é".repeat(1000) + "x".repeat(1000);
+        final byte[] hash = Yamler.canonicalHash(text);
+        final byte[] expected = MessageDigest.getInstance("SHA-256").digest(Yamler.toCanonicalJsonString(text).getBytes(UTF_8));
+        assertThat(hash, is(expected));
+    }
+}
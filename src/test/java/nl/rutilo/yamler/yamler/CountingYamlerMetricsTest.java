@@ -0,0 +1,71 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.collections.KeyPath;
+import nl.rutilo.yamler.objectmapper.RSObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+
+class CountingYamlerMetricsTest {
+    public record Point(int x, int y) {}
+
+    @Test void parsingReportsToTheMetricsOfTheConfig() {
+        final CountingYamlerMetrics metrics = new CountingYamlerMetrics();
+        final Yamler yamler = new Yamler(YamlerConfig.builder().metrics(metrics).build());
+        yamler.parseYaml("a: 1\n---\nb: [2, 3]\n");
+        yamler.parseYaml("c");
+        assertThat(metrics.parses(), is(2L));
+        assertThat(metrics.documents(), is(3L));
+        assertThat(metrics.tokens() > 10, is(true));
+        assertThat(metrics.parsedChars.sum(), is(20L));
+        assertThat(metrics.parsedChars.max(), is(19L));
+        assertThat(metrics.parseNanos.count(), is(2L));
+    }
+    @Test void bindingSerializingAndCachesReportToTheGlobalMetrics() {
+        final CountingYamlerMetrics metrics = new CountingYamlerMetrics();
+        Yamler.setMetrics(metrics);
+        try {
+            final Point point = new Yamler().mapYamlToClass("{ x: 1, y: 2 }", Point.class);
+            new Yamler().mapYamlToClass("{ x: 3, y: 4 }", Point.class);
+            Yamler.toJsonString(point);
+            KeyPath.cached("metrics.test.path");
+            KeyPath.cached("metrics.test.path");
+
+            assertThat(metrics.parses(), is(2L)); // no metrics in the config
+            assertThat(metrics.binds(), is(2L));
+            assertThat(metrics.serializations(), is(1L));
+            assertThat(metrics.serializedChars.sum(), is((long) "{\"x\":1,\"y\":2}".length()));
+            assertThat(metrics.strategies().get(Point.class) == RSObjectMapper.getStrategy(Point.class).getClass(), is(true));
+            assertThat(metrics.cacheHits(YamlerMetrics.Cache.KEY_PATHS) >= 1, is(true));
+            assertThat(metrics.cacheHits(YamlerMetrics.Cache.CLASS_PROJECTIONS) >= 1, is(true));
+            assertThat(metrics.cacheHitRate(YamlerMetrics.Cache.STRATEGIES) > 0, is(true));
+            assertThat(Double.isNaN(metrics.cacheHitRate(YamlerMetrics.Cache.YAML)), is(true));
+        } finally {
+            Yamler.setMetrics(null);
+        }
+        assertThat(Yamler.metrics() == YamlerMetrics.NONE, is(true));
+    }
+    @Test void histogramPercentilesAreUpperBounds() {
+        final CountingYamlerMetrics.Histogram histogram = new CountingYamlerMetrics.Histogram();
+        assertThat(histogram.percentile(.5), is(0L));
+        for(final long value : List.of(0L, 1L, 5L, 6L, 7L, 100L, 1000L, -3L)) histogram.record(value);
+        assertThat(histogram.count(), is(8L));
+        assertThat(histogram.sum(), is(1119L));
+        assertThat(histogram.max(), is(1000L));
+        assertThat(histogram.percentile(.5), is(7L));    // 5..7 are in bucket [4, 8)
+        assertThat(histogram.percentile(.8), is(127L));  // 100 is in bucket [64, 128)
+        assertThat(histogram.percentile(1), is(1000L));  // capped by max
+        assertThat(histogram.buckets()[0], is(2L));      // 0 and -3 (recorded as 0)
+    }
+    @Test void disabledMetricsAreNotCalled() {
+        final YamlerMetrics failing = new YamlerMetrics() {
+            @Override public boolean isEnabled() { return false; }
+            @Override public void parsed(int chars, int documents, int tokens, long nanos) { throw new IllegalStateException(); }
+        };
+        assertThat(new Yamler(YamlerConfig.builder().metrics(failing).build()).parseYaml("a: 1").first(), is(Map.of("a", 1)));
+    }
+}
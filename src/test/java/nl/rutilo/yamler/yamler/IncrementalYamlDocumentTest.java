@@ -0,0 +1,102 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.yamler.exceptions.YamlerException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IncrementalYamlDocumentTest extends BaseYamlTest {
+    private static final YamlerConfig ORDERED = YamlerConfig.builder().orderedMaps().build();
+    private static final String YAML = """
+        # settings
+        server:
+          port: 80
+          hosts: [a, b]
+        client:
+          timeout: 10
+          names:
+            - x
+            - y
+        debug: false
+        """;
+
+    private static void edit(IncrementalYamlDocument doc, String find, String replacement) {
+        final int offset = doc.text().indexOf(find);
+        doc.applyEdit(offset, find.length(), replacement);
+    }
+    private void assertSameAsFullParse(IncrementalYamlDocument doc) {
+        final String expected = orCatch(() -> toJsonString(new Yamler(ORDERED).parseYaml(doc.text())), Exception::getMessage);
+        assertThat("For yaml:\n" + doc.text(), toJsonString(doc.documents()), is(expected));
+    }
+
+    @Test void onlyTouchedEntriesAreParsed() {
+        final IncrementalYamlDocument doc = new Yamler(ORDERED).parseYamlIncremental(YAML);
+        final Map<?,?> before = (Map<?,?>) doc.first();
+
+        edit(doc, "timeout: 10", "timeout: 20");
+        final Map<?,?> after = (Map<?,?>) doc.first();
+        assertThat(doc.lastParsedLength(), is("client:\n  timeout: 20\n  names:\n    - x\n    - y\n".length()));
+        assertThat(((Map<?,?>) after.get("client")).get("timeout"), is(20));
+        assertThat(after.get("server") == before.get("server"), is(true));
+        assertSameAsFullParse(doc);
+    }
+    @Test void entriesCanBeAddedRemovedAndMerged() {
+        final IncrementalYamlDocument doc = new Yamler(ORDERED).parseYamlIncremental(YAML);
+        edit(doc, "debug: false\n", "debug: false\nextra: 1\n");
+        assertSameAsFullParse(doc);
+        edit(doc, "client:", "  client:");   // indents the key line into the entry before
+        assertSameAsFullParse(doc);
+        edit(doc, "  client:", "client:");
+        assertSameAsFullParse(doc);
+        edit(doc, "server:\n  port: 80\n  hosts: [a, b]\n", "");
+        assertSameAsFullParse(doc);
+        edit(doc, "# settings\n", "# settings\nfirst: 0\n");
+        assertSameAsFullParse(doc);
+        assertThat(String.join(",", ((Map<String,?>) doc.first()).keySet()), is("first,client,debug,extra"));
+    }
+    @Test void textThatContinuesIntoTheNextEntryIsParsedFully() {
+        final IncrementalYamlDocument doc = new Yamler(ORDERED).parseYamlIncremental("a: 1\nb: 2\"\nc: 3\n");
+        edit(doc, "a: 1", "a: \"1");
+        assertThat(doc.lastParsedLength(), is(doc.text().length()));
+        assertSameAsFullParse(doc);
+
+        final IncrementalYamlDocument last = new Yamler(ORDERED).parseYamlIncremental("a: 1\nb: \"x\n");
+        edit(last, "x\n", "x\nc: 3\n"); // unterminated quote of b continues into the new entry
+        assertSameAsFullParse(last);
+    }
+    @Test void anchorsLeadToFullParse() {
+        final IncrementalYamlDocument doc = new Yamler(ORDERED).parseYamlIncremental("a: &x { b: 1 }\nc: *x\n");
+        edit(doc, "b: 1", "b: 2");
+        assertThat(doc.lastParsedLength(), is(doc.text().length()));
+        assertThat(Yamler.toJsonString(doc.first()), is("{\"a\":{\"b\":2},\"c\":{\"b\":2}}"));
+    }
+    @Test void invalidEditKeepsLastValidDocuments() {
+        final IncrementalYamlDocument doc = new Yamler(ORDERED).parseYamlIncremental(YAML);
+        final Object before = doc.first();
+        assertThrows(YamlerException.class, () -> edit(doc, "  port: 80", "port: 80\n  x"));
+        assertThat(doc.first() == before, is(true));
+        edit(doc, "port: 80\n  x", "  port: 81");
+        assertSameAsFullParse(doc);
+        assertThrows(IndexOutOfBoundsException.class, () -> doc.applyEdit(doc.text().length(), 1, ""));
+    }
+    @Test void randomEditsGiveSameResultAsFullParse() {
+        final Random random = new Random(1);
+        final String[] inserts = { "\n", "  ", "x", ": ", "- ", "k: v\n", "\"", "[", "]", "#", "1" };
+        final IncrementalYamlDocument doc = new Yamler(ORDERED).parseYamlIncremental(YAML);
+        for(int i = 0; i < 500; i++) {
+            final int offset = random.nextInt(doc.text().length() + 1);
+            final int removed = Math.min(random.nextInt(4), doc.text().length() - offset);
+            try {
+                doc.applyEdit(offset, removed, inserts[random.nextInt(inserts.length)]);
+            } catch (final YamlerException e) {
+                continue; // invalid yaml is checked by assertSameAsFullParse below
+            }
+            assertSameAsFullParse(doc);
+        }
+    }
+}
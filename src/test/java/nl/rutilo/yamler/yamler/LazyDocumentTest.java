@@ -0,0 +1,72 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.collections.KeyPath;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LazyDocumentTest extends BaseYamlTest {
+    private static final YamlerConfig ORDERED = YamlerConfig.builder().orderedMaps().build();
+
+    private static String resource(String name) throws IOException {
+        try(final InputStream in = LazyDocumentTest.class.getResourceAsStream(name)) {
+            return new String(in.readAllBytes(), UTF_8).replace("\r\n", "\n");
+        }
+    }
+    private void assertSameAsEager(String yaml) {
+        final String eager = orCatch(() -> toJsonString(new YamlParser(ORDERED, yaml).parse()), Exception::getMessage);
+        final String lazy  = orCatch(() -> toJsonString(new YamlParser(ORDERED, yaml).parseLazy().materialize()), Exception::getMessage);
+        assertThat("For yaml:\n" + yaml, lazy, is(eager));
+    }
+
+    @Test void materializedIsSameAsEager() throws IOException {
+        final String fragments = resource("/test-yaml-fragments.txt");
+        for(final String block : fragments.substring(0, fragments.indexOf(">>== END")).split("@@@@")) {
+            assertSameAsEager(replaceSpecialChars(block.split("~~~~")[0]));
+        }
+        for(final String name : List.of("/test.yaml", "/test-invoice.yaml", "/test-log.yaml", "/configuration.yaml", "/testProps.yaml")) {
+            assertSameAsEager(resource(name));
+        }
+    }
+    @Test void viewsGiveAccessWithoutMaterializing() {
+        final LazyDocument doc = new Yamler().parseYamlLazy("""
+            a:
+              b: [1, 2, { c: text }]
+              d: &anchor { e: 3 }
+            f: *anchor
+            1: number key
+            """);
+        final LazyDocument.LazyMap map = doc.firstMap();
+        assertThat(map.get("a.b[2].c"), is("text"));
+        assertThat(map.getInt(KeyPath.compile("a.d.e"), 0), is(3));
+        assertThat(map.getValue("a.x").isPresent(), is(false));
+        assertThat(map.get("1"), is("number key"));
+        assertThat(map.get("f") == map.get("a.d"), is(true));
+        assertThat(map.get("a.b"), is(List.of(1, 2, Map.of("c", "text"))));
+        assertThat(List.copyOf(map.keySet()), is(List.of("a", "f", "1")));
+        assertThat(map.toStringKeyMap().get("a.d.e"), is(3));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("x", 1));
+    }
+    @Test void multipleDocuments() {
+        final LazyDocument doc = new Yamler().parseYamlLazy("a: 1\n---\n- 2\n---\n");
+        assertThat(doc.size(), is(2));
+        assertThat(doc.get(0), is(Map.of("a", 1)));
+        assertThat(doc.get(1), is(List.of(2)));
+        assertThat(new Yamler().parseYamlLazy("").first(), is(nullValue()));
+        assertThat(new Yamler().parseYamlLazy("[1]").firstMap().isEmpty(), is(true));
+    }
+    @Test void duplicateKeysKeepLastValue() {
+        final LazyDocument.LazyMap map = new Yamler().parseYamlLazy("{a: 1, b: 2, a: 3}").firstMap();
+        assertThat(map.size(), is(2));
+        assertThat(map.get("a"), is(3));
+    }
+}
@@ -0,0 +1,118 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.collections.IntList;
+import nl.rutilo.yamler.collections.KeyPath;
+import nl.rutilo.yamler.yamler.exceptions.YamlerException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class YamlBinaryTest extends BaseYamlTest {
+    private static final YamlerConfig ORDERED = YamlerConfig.builder().orderedMaps().build();
+
+    private static String resource(String name) throws IOException {
+        try(final InputStream in = YamlBinaryTest.class.getResourceAsStream(name)) {
+            return new String(in.readAllBytes(), UTF_8).replace("\r\n", "\n");
+        }
+    }
+    private static byte[] toBinary(Object data) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Yamler.writeBinary(data, out);
+        return out.toByteArray();
+    }
+
+    @Test void readIsSameAsParsed() throws IOException {
+        final Yamler yamler = new Yamler(ORDERED);
+        final String fragments = resource("/test-yaml-fragments.txt");
+        for(final String block : fragments.substring(0, fragments.indexOf(">>== END")).split("@@@@")) {
+            final String yaml = replaceSpecialChars(block.split("~~~~")[0]);
+            final YamlDocuments parsed = orCatch(() -> yamler.parseYaml(yaml), e -> null);
+            if(parsed == null) continue; // fragments that test parse errors
+            final YamlDocuments read = yamler.readBinary(new ByteArrayInputStream(toBinary(parsed)));
+            assertThat("For yaml:\n" + yaml, toJsonString(read), is(toJsonString(parsed)));
+        }
+    }
+    @Test void scalarTypesAreKept() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("int", -5);
+        map.put("long", 1L << 40);
+        map.put("double", 1.5);
+        map.put("float", 2.5f);
+        map.put("bigInt", new BigInteger("123456789012345678901234567890"));
+        map.put("bigDec", new BigDecimal("1.50"));
+        map.put("bytes", new byte[] { 1, 2, 3 });
+        map.put("bool", false);
+        map.put("null", null);
+        map.put("array", new int[] { 1, 2 });
+
+        final Map<?, ?> read = (Map<?, ?>) new Yamler(ORDERED).readBinary(new ByteArrayInputStream(toBinary(map))).first();
+        assertThat(read.get("int"), is(-5));
+        assertThat(read.get("long"), is(1L << 40));
+        assertThat(read.get("double"), is(1.5));
+        assertThat(read.get("float"), is(2.5f));
+        assertThat(read.get("bigInt"), is(new BigInteger("123456789012345678901234567890")));
+        assertThat(read.get("bigDec"), is(new BigDecimal("1.50")));
+        assertThat(read.get("bytes"), is(new byte[] { 1, 2, 3 }));
+        assertThat(read.get("bool"), is(false));
+        assertThat(read.containsKey("null"), is(true));
+        assertThat(read.get("array"), is(List.of(1, 2)));
+        assertThat(List.copyOf(read.keySet()), is(List.copyOf(map.keySet())));
+    }
+    @Test void stringsAreStoredOnce() {
+        final String text = "some longer text that is repeated";
+        final byte[] once  = toBinary(List.of(text));
+        final byte[] often = toBinary(List.of(text, text, text, text));
+        assertThat(often.length - once.length, is(6));
+    }
+    @Test void readConfigIsUsed() {
+        final YamlerConfig config = YamlerConfig.builder().primitiveLists(true).build();
+        final Object read = new Yamler(config).readBinary(new ByteArrayInputStream(toBinary(List.of(1, 2, 3)))).first();
+        assertThat(read instanceof IntList, is(true));
+    }
+    @Test void lazyReadOfMappedFile(@TempDir Path dir) throws IOException {
+        final Path file = dir.resolve("snapshot.bin");
+        Files.write(file, toBinary(new Yamler().parseYaml("""
+            a:
+              b: [1, 2, { c: text }]
+              d: { e: 3 }
+            1: number key
+            ---
+            - 2
+            """)));
+        final BinaryDocument doc = new Yamler(ORDERED).readBinaryLazy(file);
+        final BinaryDocument.BinaryMap map = doc.firstMap();
+        assertThat(doc.size(), is(2));
+        assertThat(map.get("a.b[2].c"), is("text"));
+        assertThat(map.getInt(KeyPath.compile("a.d.e"), 0), is(3));
+        assertThat(map.getValue("a.x").isPresent(), is(false));
+        assertThat(map.get("1"), is("number key"));
+        assertThat(map.get("a.b"), is(List.of(1, 2, Map.of("c", "text"))));
+        assertThat(doc.get(1), is(List.of(2)));
+        assertThat(toJsonString(doc.materialize()), is(toJsonString(new Yamler(ORDERED).readBinary(Files.newInputStream(file)))));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("x", 1));
+    }
+    @Test void invalidInput() {
+        final Yamler yamler = new Yamler();
+        assertThrows(YamlerException.class, () -> yamler.readBinary(new ByteArrayInputStream("a: 1".getBytes(UTF_8))));
+        final byte[] truncated = toBinary(Map.of("a", List.of(1, 2, 3)));
+        assertThrows(YamlerException.class, () -> yamler.readBinary(new ByteArrayInputStream(truncated, 0, truncated.length - 1)));
+        assertThat(yamler.readBinary(new ByteArrayInputStream(toBinary(null))).first(), is(nullValue()));
+    }
+}
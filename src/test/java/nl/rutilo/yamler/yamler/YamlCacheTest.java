@@ -0,0 +1,108 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.yamler.exceptions.YamlerException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class YamlCacheTest {
+    private static Yamler yamlerWith(YamlCache cache) {
+        return new Yamler(YamlerConfig.builder().cache(cache).build());
+    }
+
+    @Test void filesAreParsedAgainOnlyWhenChanged(@TempDir Path dir) throws IOException {
+        final YamlCache cache = YamlCache.builder().build();
+        final Yamler yamler = yamlerWith(cache);
+        final Path file = Files.writeString(dir.resolve("a.yaml"), "a: 1");
+
+        final Object first = yamler.parseYaml(file).first();
+        assertThat(first, is(Map.of("a", 1)));
+        assertThat(yamler.parseYaml(file).first() == first, is(true));
+        assertThat(yamler.parseYaml(dir.resolve("x/../a.yaml")).first() == first, is(true));
+        assertThat(cache.stats(), is(new YamlCache.Stats(2, 1, 0, 1, 4)));
+
+        Files.writeString(file, "a: 2");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        assertThat(yamler.parseYaml(file).first(), is(Map.of("a", 2)));
+        assertThat(cache.stats().misses(), is(2L));
+
+        cache.invalidate(file);
+        assertThat(cache.stats().size(), is(0));
+        assertThrows(YamlerException.class, () -> yamler.parseYaml(dir.resolve("missing.yaml")));
+    }
+    @Test void stringsAreCachedByContent() {
+        final YamlCache cache = YamlCache.builder().cacheStrings(true).build();
+        final Yamler yamler = yamlerWith(cache);
+        final Object first = yamler.parseYaml("a: [1, 2]").first();
+        assertThat(yamler.parseYaml(new String("a: [1, 2]")).first() == first, is(true));
+        assertThat(yamler.parseYaml("a: [1, 3]").first() == first, is(false));
+        assertThat(cache.stats(), is(new YamlCache.Stats(1, 2, 0, 2, 18)));
+
+        assertThat(yamlerWith(YamlCache.builder().build()).parseYaml("a: 1").first() == yamlerWith(YamlCache.builder().build()).parseYaml("a: 1").first(), is(false));
+    }
+    public record Numbers(List<Integer> a) {}
+    @Test void mappingToClassUsesCachedStrings() {
+        final YamlCache cache = YamlCache.builder().cacheStrings(true).build();
+        final Yamler yamler = yamlerWith(cache);
+        assertThat(yamler.mapYamlToClass("a: [1, 2]\nb: 3", Numbers.class), is(new Numbers(List.of(1, 2))));
+        assertThat(yamler.mapYamlToClass("a: [1, 2]\nb: 3", Numbers.class), is(new Numbers(List.of(1, 2))));
+        assertThat(cache.stats().hits(), is(1L));
+    }
+    @Test void cachedDocumentsCantBeChanged() {
+        final Yamler yamler = yamlerWith(YamlCache.builder().cacheStrings(true).build());
+        final YamlDocuments docs = yamler.parseYaml("a: &x { b: [1, { c: 2 }] }\nd: *x");
+        final Map<String, Object> map = (Map<String, Object>) docs.first();
+        final Map<String, Object> a = (Map<String, Object>) map.get("a");
+        final List<Object> b = (List<Object>) a.get("b");
+
+        assertThrows(UnsupportedOperationException.class, () -> map.put("x", 1));
+        assertThrows(UnsupportedOperationException.class, () -> a.remove("b"));
+        assertThrows(UnsupportedOperationException.class, () -> b.add(3));
+        assertThrows(UnsupportedOperationException.class, () -> ((Map<String, Object>) b.get(1)).put("c", 3));
+        assertThat(map.get("d") == a, is(true));
+
+        docs.clear();
+        assertThat(yamler.parseYaml("a: &x { b: [1, { c: 2 }] }\nd: *x").size(), is(1));
+    }
+    @Test void immutableHandlerResultsCanBeCached() {
+        final Yamler yamler = yamlerWith(YamlCache.builder().cacheStrings(true).build());
+        final Map<String, Object> map = (Map<String, Object>) yamler.parseYaml("a: !!seq x\nb: !!map [[k, { v: 1 }]]").first();
+        assertThat(map, is(Map.of("a", List.of("x"), "b", Map.of("k", Map.of("v", 1)))));
+        assertThat(map, is(new Yamler().parseYaml("a: !!seq x\nb: !!map [[k, { v: 1 }]]").first()));
+        assertThrows(UnsupportedOperationException.class, () -> ((Map<String, Object>) ((Map<String, Object>) map.get("b")).get("k")).put("w", 2));
+    }
+    @Test void leastRecentlyUsedIsEvicted() {
+        final YamlCache cache = YamlCache.builder().cacheStrings(true).maxEntries(2).build();
+        final Yamler yamler = yamlerWith(cache);
+        yamler.parseYaml("a: 1");
+        yamler.parseYaml("b: 1");
+        yamler.parseYaml("a: 1");
+        yamler.parseYaml("c: 1"); // evicts b
+        yamler.parseYaml("a: 1");
+        assertThat(cache.stats(), is(new YamlCache.Stats(2, 3, 1, 2, 8)));
+
+        final YamlCache weighted = YamlCache.builder().cacheStrings(true).maxWeight(10).build();
+        yamlerWith(weighted).parseYaml("a: 1");
+        yamlerWith(weighted).parseYaml("b: 1");
+        yamlerWith(weighted).parseYaml("c: 1");
+        assertThat(weighted.stats(), is(new YamlCache.Stats(0, 3, 1, 2, 8)));
+    }
+    @Test void softValuesAreStillReturned() {
+        final YamlCache cache = YamlCache.builder().cacheStrings(true).softValues(true).build();
+        final Yamler yamler = yamlerWith(cache);
+        assertThat(yamler.parseYaml("a: 1").first(), is(Map.of("a", 1)));
+        assertThat(yamler.parseYaml("a: 1").first(), is(Map.of("a", 1)));
+        cache.clear();
+        assertThat(cache.stats(), is(new YamlCache.Stats(0, 0, 0, 0, 0)));
+    }
+}
@@ -0,0 +1,52 @@
+package nl.rutilo.yamler.yamler;
+
+import lombok.RequiredArgsConstructor;
+import nl.rutilo.yamler.yamler.exceptions.YamlerCancelledException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class YamlCancellationTest {
+    private static final String LARGE = "items:\n" + "  - { a: 1, b: 2 }\n".repeat(1000);
+
+    @RequiredArgsConstructor
+    public static class Item { public final int a; public final int b; }
+    @RequiredArgsConstructor
+    public static class Items { public final List<Item> items; }
+
+    @Test void deadlines() {
+        assertThat(YamlCancellation.deadline(Duration.ofMillis(-1)).isCancelled(), is(true));
+        assertThat(YamlCancellation.deadline(Duration.ofHours(1)).isCancelled(), is(false));
+        assertThat(YamlCancellation.deadline(Duration.ofSeconds(Long.MAX_VALUE)).isCancelled(), is(false));
+        assertThat(new Yamler().parseYaml(LARGE, YamlCancellation.deadline(Duration.ofHours(1))).size(), is(1));
+        assertThat(assertThrows(YamlerCancelledException.class, () -> new Yamler().parseYaml("a: 1", YamlCancellation.deadline(Duration.ZERO))).getMessage(), is("Deadline passed"));
+    }
+    @Test void parsingStopsWhenCancelled() {
+        final YamlCancellation cancellation = YamlCancellation.create();
+        final Yamler yamler = new Yamler();
+        assertThat(cancellation.call(() -> { cancellation.cancel(); return yamler.parseYaml("a: [1, 2, 3]"); }).size(), is(1)); // too short to check
+        final String message = assertThrows(YamlerCancelledException.class, () -> cancellation.call(() -> yamler.parseYaml(LARGE))).getMessage();
+        assertThat(message.startsWith("Cancelled"), is(true));
+
+        final YamlCancellation midway = YamlCancellation.create();
+        final String midwayMessage = assertThrows(YamlerCancelledException.class, () -> midway.call(() -> { midway.cancel(); return yamler.parseYaml(LARGE); })).getMessage();
+        assertThat(midwayMessage.startsWith("Cancelled on line"), is(true));
+        assertThat(YamlCancellation.current() == null, is(true));
+    }
+    @Test void mappingStopsWhenCancelled() {
+        final Yamler yamler = new Yamler();
+        assertThat(yamler.mapYamlToClass(LARGE, Items.class, YamlCancellation.create()).items.size(), is(1000));
+
+        final Object data = yamler.parseYaml(LARGE).first();
+        final YamlCancellation cancellation = YamlCancellation.create();
+        assertThrows(YamlerCancelledException.class, () -> cancellation.call(() -> {
+            cancellation.cancel();
+            return Yamler.mapCollectionsToClass(data, Items.class);
+        }));
+    }
+}
@@ -0,0 +1,59 @@
+package nl.rutilo.yamler.yamler;
+
+import nl.rutilo.yamler.yamler.exceptions.YamlerException;
+import org.junit.jupiter.api.Test;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class YamlLimitsTest {
+    private static Yamler limited(YamlerConfig.YamlerConfigBuilder builder) {
+        return new Yamler(builder.build());
+    }
+    private static String failure(Yamler yamler, String yaml) {
+        return assertThrows(YamlerException.class, () -> yamler.parseYaml(yaml)).getMessage();
+    }
+
+    @Test void nestingDepthIsLimited() {
+        final String deep = "[".repeat(1001) + "]".repeat(1001);
+        assertThat(failure(new Yamler(), deep).startsWith("Nesting deeper than 1000 on line 1"), is(true));
+        assertThat(new Yamler().parseYaml("[".repeat(1000) + "]".repeat(1000)).size(), is(1));
+
+        final Yamler yamler = limited(YamlerConfig.builder().maxDepth(2));
+        assertThat(yamler.parseYaml("a:\n  b: 1\n").size(), is(1));
+        assertThat(failure(yamler, "a:\n  b: [1]\n").startsWith("Nesting deeper than 2 on line 2"), is(true));
+        assertThat(limited(YamlerConfig.builder().maxDepth(0)).parseYaml(deep).size(), is(1));
+    }
+    @Test void aliasExpansionIsLimited() {
+        final StringBuilder laughs = new StringBuilder("a0: &a0 [lol, lol, lol, lol, lol, lol, lol, lol, lol, lol]\n");
+        for(int i = 1; i < 10; i++) {
+            laughs.append("a").append(i).append(": &a").append(i).append(" [").append(("*a" + (i - 1) + ", ").repeat(9)).append("*a").append(i - 1).append("]\n");
+        }
+        assertThat(failure(new Yamler(), laughs.toString()).startsWith("Aliases expand to more than 10000000 nodes"), is(true));
+
+        final Yamler yamler = limited(YamlerConfig.builder().maxAliasExpansion(25));
+        assertThat(yamler.parseYaml("a: &a [1, 2]\nb: [*a, *a]\n").size(), is(1)); // 2 x 3 nodes
+        assertThat(failure(yamler, "a: &a [1, 2]\nb: &b [*a, *a, *a]\nc: [*b, *b]\n").startsWith("Aliases expand to more than 25 nodes on line 3"), is(true));
+    }
+    @Test void nodesAreLimited() {
+        final Yamler yamler = limited(YamlerConfig.builder().maxNodes(5));
+        assertThat(yamler.parseYaml("[1, 2, 3, 4]").size(), is(1));
+        assertThat(failure(yamler, "[1, 2, 3, 4, 5]").startsWith("More than 5 nodes"), is(true));
+        assertThat(failure(yamler, "a: &a [1]\nb: *a\n").startsWith("More than 5 nodes"), is(true)); // alias counts as its value
+    }
+    @Test void scalarLengthIsLimited() {
+        final Yamler yamler = limited(YamlerConfig.builder().maxScalarLength(5));
+        assertThat(yamler.parseYaml("a: 12345\nbc: \"abcde\"").size(), is(1));
+        assertThat(failure(yamler, "a: abcdef").startsWith("Scalar longer than 5 characters on line 1"), is(true));
+        assertThat(failure(yamler, "a: |\n  abc\n  def\n").startsWith("Scalar longer than 5 characters"), is(true));
+        assertThat(failure(yamler, "a: 1234567"), is("Scalar longer than 5 characters on line 1:\na: 1234567\n        ^"));
+        assertThat(failure(yamler, "a: 'abcdefgh' "), is("Scalar longer than 5 characters on line 1:\na: 'abcdefgh' \n         ^")); // fails at the 6th character
+        assertThat(failure(limited(YamlerConfig.builder().maxScalarLength(5).projection("b")), "a: abcdef\nb: 1").startsWith("Scalar longer than 5 characters on line 1"), is(true));
+    }
+    @Test void documentsAreLimited() {
+        final Yamler yamler = limited(YamlerConfig.builder().maxDocuments(2));
+        assertThat(yamler.parseYaml("a: 1\n---\nb: 2\n").size(), is(2));
+        assertThat(failure(yamler, "a: 1\n---\nb: 2\n---\nc: 3\n").startsWith("More than 2 documents on line 5"), is(true));
+    }
+}
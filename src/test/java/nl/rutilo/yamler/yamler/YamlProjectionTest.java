@@ -0,0 +1,194 @@
+package nl.rutilo.yamler.yamler;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import nl.rutilo.yamler.yamler.annotations.YamlIgnore;
+import nl.rutilo.yamler.yamler.annotations.YamlIgnoreCase;
+import nl.rutilo.yamler.yamler.annotations.YamlName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+
+class YamlProjectionTest extends BaseYamlTest {
+    private static final String MANIFEST = """
+        apiVersion: apps/v1
+        kind: Deployment
+        metadata:
+          name: web
+          labels: { app: web, tier: front }
+        spec:
+          replicas: 3
+          template:
+            spec:
+              containers:
+                - name: app
+                  image: web:1.2
+                  ports: [{ containerPort: 80 }]
+                - name: sidecar
+                  image: proxy:2
+        """;
+
+    private static YamlDocuments parse(String yaml, String... paths) {
+        return new Yamler(YamlerConfig.builder().orderedMaps().projection(paths).build()).parseYaml(yaml);
+    }
+    private static String project(String yaml, String... paths) {
+        final YamlDocuments documents = parse(yaml, paths);
+        return Yamler.toJsonString(documents.size() == 1 ? documents.first() : documents);
+    }
+
+    @Test void onlyProjectedPathsAreKept() {
+        assertThat(project(MANIFEST, "metadata.name", "spec.replicas"), is("{\"metadata\":{\"name\":\"web\"},\"spec\":{\"replicas\":3}}"));
+        assertThat(project(MANIFEST, "metadata"), is("{\"metadata\":{\"name\":\"web\",\"labels\":{\"app\":\"web\",\"tier\":\"front\"}}}"));
+        assertThat(project(MANIFEST, "metadata.labels.app", "kind"), is("{\"kind\":\"Deployment\",\"metadata\":{\"labels\":{\"app\":\"web\"}}}"));
+        assertThat(project(MANIFEST, "missing"), is("{}"));
+    }
+    @Test void wildcardsAndIndices() {
+        assertThat(project(MANIFEST, "spec.template.spec.containers[*].image"), is("{\"spec\":{\"template\":{\"spec\":{\"containers\":[{\"image\":\"web:1.2\"},{\"image\":\"proxy:2\"}]}}}}"));
+        assertThat(project(MANIFEST, "spec.*.*.containers.1.name"), is("{\"spec\":{\"template\":{\"spec\":{\"containers\":[null,{\"name\":\"sidecar\"}]}}}}"));
+        assertThat(project("a: [1, 2, 3]\nb: [4, 5]", "*[0]", "a.2"), is("{\"a\":[1,null,3],\"b\":[4]}"));
+        assertThat(project("{ a: { x: 1, y: 2 }, b: { x: 3, y: 4 } }", "*.x", "b"), is("{\"a\":{\"x\":1},\"b\":{\"x\":3,\"y\":4}}"));
+        assertThat(project("- a: 1\n  b: 2\n- a: 3\n  b: 4\n", "*.b"), is("[{\"b\":2},{\"b\":4}]"));
+    }
+    @Test void skippedAnchorsCanBeAliased() {
+        final String yaml = "defaults: &d { timeout: 5, retries: 2 }\nunused: &u [1, 2]\nservice:\n  settings: *d\n";
+        assertThat(project(yaml, "service"), is("{\"service\":{\"settings\":{\"timeout\":5,\"retries\":2}}}"));
+        assertThat(project(yaml, "defaults.timeout", "service"), is("{\"defaults\":{\"timeout\":5,\"retries\":2},\"service\":{\"settings\":{\"timeout\":5,\"retries\":2}}}"));
+        assertThat(project("a: &x { b: 1 }\nc: 2", "a.b"), is("{\"a\":{\"b\":1}}"));
+        assertThat(project("a: &x 1\nb: &y { c: 2 }\nd: [*x,*y]\ne: { f: *y}\ng: &z 3", "d", "e"), is("{\"d\":[1,{\"c\":2}],\"e\":{\"f\":{\"c\":2}}}"));
+    }
+    @Test void multipleDocumentsAreProjected() {
+        assertThat(project("a: 1\nb: 2\n---\na: 3\nc: 4\n", "a"), is("[{\"a\":1},{\"a\":3}]"));
+    }
+    @Test void projectingEverythingGivesSameResultAsFullParse() throws IOException {
+        final String fragments;
+        try(final InputStream in = YamlProjectionTest.class.getResourceAsStream("/test-yaml-fragments.txt")) {
+            fragments = new String(in.readAllBytes(), UTF_8).replace("\r\n", "\n");
+        }
+        final Yamler full = new Yamler(YamlerConfig.builder().orderedMaps().build());
+        for(final String block : fragments.substring(0, fragments.indexOf(">>== END")).split("@@@@")) {
+            final String yaml = replaceSpecialChars(block.split("~~~~")[0]);
+            final String expected = orCatch(() -> toJsonString(full.parseYaml(yaml)), e -> null);
+            if(expected == null) continue; // fragments that test parse errors
+            assertThat("For yaml:\n" + yaml, toJsonString(parse(yaml, "*")), is(expected));
+
+            final Object nothing = orCatch(() -> new Yamler(YamlerConfig.builder().projection("no such key").build()).parseYaml(yaml).first(), e -> e);
+            assertThat("For yaml:\n" + yaml, nothing instanceof Exception, is(false)); // structure is still followed
+            if(nothing instanceof Map<?,?> map) assertThat(map.isEmpty(), is(true));
+            if(nothing instanceof List<?> list) assertThat(list.isEmpty(), is(true));
+        }
+    }
+
+    @Test void skippedScalarsAreNotDecoded() {
+        final List<String> variables = new ArrayList<>();
+        final Yamler yamler = new Yamler(YamlerConfig.builder().orderedMaps().projection("keep", "list[1]").variableGetter(name -> { variables.add(name); return name; }).build());
+        final String yaml = """
+            plain: ${a} and
+              more ${b}
+            quoted: "${c}\\n"
+            single: '${d}'
+            literal: |
+              ${e}
+            folded: >-
+              ${f}
+              x
+            keep: ${g}
+            list: [${h}, ${i}, '${j}']
+            """;
+        assertThat(Yamler.toJsonString(yamler.parseYaml(yaml).first()), is("{\"keep\":\"g\",\"list\":[null,\"i\"]}"));
+        assertThat(variables, is(List.of("g", "i")));
+    }
+    @Test void keysAfterSkippedScalarsAreRead() throws IOException {
+        final String fragments;
+        try(final InputStream in = YamlProjectionTest.class.getResourceAsStream("/test-yaml-fragments.txt")) {
+            fragments = new String(in.readAllBytes(), UTF_8).replace("\r\n", "\n");
+        }
+        final Yamler full = new Yamler(YamlerConfig.builder().orderedMaps().build());
+        for(final String block : fragments.substring(0, fragments.indexOf(">>== END")).split("@@@@")) {
+            final String yaml = replaceSpecialChars(block.split("~~~~")[0]);
+            final Object parsed = orCatch(() -> full.parseYaml(yaml).first(), e -> null);
+            if(!(parsed instanceof Map<?,?> map)) continue;
+            for(final Map.Entry<?,?> entry : map.entrySet()) {
+                if(!(entry.getKey() instanceof String key) || !key.matches("\\w+")) continue;
+                final Map<String, Object> expected = new LinkedHashMap<>();
+                expected.put(key, entry.getValue());
+                assertThat("For " + key + " in yaml:\n" + yaml, toJsonString(parse(yaml, key).first()), is(toJsonString(expected)));
+            }
+        }
+    }
+
+    @RequiredArgsConstructor @EqualsAndHashCode @ToString
+    public static class Item {
+        public final String sku;
+        @YamlIgnoreCase public final int quantity;
+    }
+    @RequiredArgsConstructor @EqualsAndHashCode @ToString
+    public static class Order {
+        @YamlName("order-id") public final String id;
+        public final List<Item> items;
+        public final Map<String, Item> byWarehouse;
+        public final Object extra;
+        @YamlIgnore public final String ignored;
+        public final Order next;
+    }
+    private static final String ORDER = """
+        order-id: o1
+        id: not read
+        ignored: not read
+        items: [{ sku: a, QUANTITY: 2, price: 1.5 }, { sku: b, Quantity: 1, notes: [x, y] }]
+        byWarehouse: { north: { sku: c, location: { row: 1 } } }
+        extra: { anything: [1, 2] }
+        audit: { by: someone, at: [2024, 1, 1] }
+        next: { order-id: o2, items: [], unknown: 3 }
+        """;
+
+    @Test void classProjectionOnlyKeepsKeysTheClassReads() {
+        assertThat(Yamler.toJsonString(new Yamler(YamlerConfig.builder().orderedMaps().projection(YamlProjection.forClass(Order.class)).build()).parseYaml(ORDER).first()),
+            is("{\"order-id\":\"o1\",\"items\":[{\"sku\":\"a\",\"QUANTITY\":2},{\"sku\":\"b\",\"Quantity\":1}],"
+             + "\"byWarehouse\":{\"north\":{\"sku\":\"c\"}},\"extra\":{\"anything\":[1,2]},\"next\":{\"order-id\":\"o2\",\"items\":[]}}"));
+        assertThat(YamlProjection.forClass(Order.class) == YamlProjection.forClass(Order.class), is(true));
+    }
+    @Test void mappingToClassGivesSameResultAsWithoutProjection() {
+        final Yamler yamler = new Yamler();
+        final Order order = yamler.mapYamlToClass(ORDER, Order.class);
+        assertThat(order, is(Yamler.mapCollectionsToClass(yamler.parseYaml(ORDER).first(), Order.class)));
+        assertThat(order.items.get(0), is(new Item("a", 2)));
+        assertThat(order.next.id, is("o2"));
+        assertThat(order.ignored == null, is(true));
+    }
+
+    @RequiredArgsConstructor @EqualsAndHashCode @ToString
+    public static class Tags {
+        public final List<String> value;
+    }
+    @RequiredArgsConstructor @EqualsAndHashCode @ToString
+    public static class Items {
+        public final List<Item> value;
+    }
+    @RequiredArgsConstructor @EqualsAndHashCode @ToString
+    public static class Lists {
+        public final Tags tags;
+        public final Items items;
+    }
+    @Test void listsMappedToClassesAreKept() {
+        final Yamler yamler = new Yamler();
+        for(final String yaml : new String[] { "[a, b]", "- a\n- b", "value: [a, b]" }) {
+            assertThat(yamler.mapYamlToClass(yaml, Tags.class), is(new Tags(List.of("a", "b"))));
+        }
+        final String lists = "tags: [a, b]\nitems:\n  - { sku: a, quantity: 2, price: 1.5 }\n  - sku: b";
+        final Lists mapped = yamler.mapYamlToClass(lists, Lists.class);
+        assertThat(mapped, is(Yamler.mapCollectionsToClass(yamler.parseYaml(lists).first(), Lists.class)));
+        assertThat(mapped.items.value, is(List.of(new Item("a", 2), new Item("b", 0))));
+        assertThat(new Yamler(YamlerConfig.builder().projection(YamlProjection.forClass(Lists.class)).build()).parseYaml(lists).first(),
+            is(Map.of("tags", List.of("a", "b"), "items", List.of(Map.of("sku", "a", "quantity", 2), Map.of("sku", "b")))));
+    }
+}
@@ -0,0 +1,73 @@
+package nl.rutilo.yamler.yamler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static nl.rutilo.yamler.utils.ThreadUtils.sleepMillis;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class YamlWatcherTest {
+    private static void waitFor(BooleanSupplier condition) {
+        for(int i = 0; i < 100 && !condition.getAsBoolean(); i++) sleepMillis(50);
+    }
+
+    @Test void filesAreParsedAgainWhenChanged(@TempDir Path dir) throws IOException {
+        final Path file = Files.writeString(dir.resolve("a.yaml"), "server: { port: 80, host: x }\nother: 1");
+        final List<Object> ports = new CopyOnWriteArrayList<>();
+        final List<Object> others = new CopyOnWriteArrayList<>();
+        try(final YamlWatcher watcher = new YamlWatcher(new Yamler(), Duration.ofMillis(50)).watch(file)) {
+            assertThat(watcher.get(file), is(Map.of("server", Map.of("port", 80, "host", "x"), "other", 1)));
+            watcher.subscribe(file, "server.port", ports::add);
+            watcher.subscribe(file, "other", others::add);
+
+            Files.writeString(file, "server: { port: 8080, host: x }\nother: 1");
+            waitFor(() -> !ports.isEmpty());
+            assertThat(ports, is(List.of(8080)));
+            assertThat(others.isEmpty(), is(true));
+            assertThat(watcher.get(file), is(Map.of("server", Map.of("port", 8080, "host", "x"), "other", 1)));
+
+            final Map<?,?> snapshot = (Map<?,?>) watcher.get(file);
+            assertThrows(UnsupportedOperationException.class, () -> ((Map<String,Object>) snapshot).put("x", 1));
+        }
+    }
+    @Test void directoriesAreWatched(@TempDir Path dir) throws IOException {
+        Files.writeString(dir.resolve("a.yaml"), "a: 1");
+        Files.writeString(dir.resolve("ignored.txt"), "x: 1");
+        try(final YamlWatcher watcher = new YamlWatcher(new Yamler(), Duration.ofMillis(50)).watch(dir)) {
+            assertThat(watcher.snapshot().size(), is(1));
+
+            final Path added = dir.resolve("b.yml");
+            Files.writeString(added, "b: 2");
+            waitFor(() -> watcher.get(added) != null);
+            assertThat(watcher.get(added), is(Map.of("b", 2)));
+            assertThat(watcher.snapshot().size(), is(2));
+
+            Files.delete(added);
+            waitFor(() -> watcher.get(added) == null);
+            assertThat(watcher.get(added), is(nullValue()));
+            assertThat(watcher.get(dir.resolve("a.yaml")), is(Map.of("a", 1)));
+        }
+    }
+    @Test void invalidChangesKeepPreviousContents(@TempDir Path dir) throws IOException {
+        final Path file = Files.writeString(dir.resolve("a.yaml"), "a: 1");
+        final List<Exception> errors = new CopyOnWriteArrayList<>();
+        try(final YamlWatcher watcher = new YamlWatcher(new Yamler(), Duration.ofMillis(50)).onError(errors::add).watch(file)) {
+            Files.writeString(file, "a: [1");
+            waitFor(() -> !errors.isEmpty());
+            assertThat(errors.size(), is(1));
+            assertThat(watcher.get(file), is(Map.of("a", 1)));
+        }
+    }
+}
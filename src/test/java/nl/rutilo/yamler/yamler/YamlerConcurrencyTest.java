@@ -0,0 +1,98 @@
+package nl.rutilo.yamler.yamler;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import nl.rutilo.yamler.yamler.exceptions.YamlerException;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class YamlerConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 300;
+
+    @RequiredArgsConstructor @EqualsAndHashCode
+    public static class Point { public final int x; public final int y; public final String label; }
+
+    private static String yaml(int n) {
+        return "id: " + n + "\nname: ${name}-" + n + "\nitems: [" + "a, ".repeat(n % 7) + "b]\n"
+             + "text: |\n  line " + n + "\n  next\nanchor: &a { x: " + n + " }\nalias: *a\n---\nsecond: " + n + "\n";
+    }
+
+    @Test void sharedYamlerGivesSameResultsOnAllThreads() throws Exception {
+        final Yamler yamler = new Yamler(YamlerConfig.builder().variables(Map.of("name", "v")).build());
+        final List<String> expected = new ArrayList<>();
+        for(int i = 0; i < ROUNDS; i++) expected.add(Yamler.toJsonString(yamler.parseYaml(yaml(i))));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Callable<Integer>> tasks = new ArrayList<>();
+            for(int t = 0; t < THREADS; t++) {
+                final int offset = t;
+                tasks.add(() -> {
+                    int checked = 0;
+                    for(int i = 0; i < ROUNDS; i++) {
+                        final int n = (i + offset * 37) % ROUNDS;
+                        assertThat(Yamler.toJsonString(yamler.parseYaml(yaml(n))), is(expected.get(n)));
+                        assertThat(yamler.mapYamlToClass("x: " + n + "\ny: 2\nlabel: p" + n + "\nz: skipped", Point.class), is(new Point(n, 2, "p" + n)));
+                        if(n % 50 == 0) assertThrows(YamlerException.class, () -> yamler.parseYaml("a: [1, 2"));
+                        checked++;
+                    }
+                    return checked;
+                });
+            }
+            for(final Future<Integer> result : executor.invokeAll(tasks)) assertThat(result.get(), is(ROUNDS));
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+        }
+    }
+    @Test void parserIsReusedForAllConfigs() {
+        final Yamler yamler = new Yamler(YamlerConfig.builder().build());
+        yamler.parseYaml("a: 1");
+        final YamlParser parser = Yamler.pooledParser();
+        assertThat(parser != null, is(true));
+        assertThat(parser.config == YamlerConfig.DEFAULT, is(true)); // only bound while parsing
+        assertThat(yamler.mapYamlToClass("x: 1\ny: 2\nlabel: p\nz: 3", Point.class), is(new Point(1, 2, "p")));
+        assertThat(new Yamler(YamlerConfig.builder().variables(Map.of("v", "x")).build()).parseYaml("b: ${v}").first(), is(Map.of("b", "x")));
+        assertThat(yamler.parseYaml("b: ${v}").first(), is(Map.of("b", "${v}")));
+        assertThat(Yamler.pooledParser() == parser, is(true));
+    }
+    @Test void discardedConfigsAreNotKept() throws InterruptedException {
+        YamlerConfig config = YamlerConfig.builder().cache(YamlCache.builder().build()).build();
+        new Yamler(config).parseYaml("a: 1");
+        final WeakReference<YamlerConfig> discarded = new WeakReference<>(config);
+        config = null; // NOSONAR -- to make it unreachable
+        for(int i = 0; i < 50 && discarded.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(discarded.get() == null, is(true));
+    }
+    @Test void parserIsReusedAfterErrorsAndNestedParses() {
+        final Yamler yamler = new Yamler();
+        assertThrows(YamlerException.class, () -> yamler.parseYaml("a: [1, 2\nb: {"));
+        assertThat(yamler.parseYaml("a: [1, 2]").first(), is(Map.of("a", List.of(1, 2))));
+
+        final YamlParser parser = new YamlParser("a: &x |\n  text\nb: *x\n");
+        assertThat(parser.parse().first(), is(Map.of("a", "text\n", "b", "text\n")));
+        assertThat(parser.reset("- [1, { c: d }]").parse().first(), is(List.of(List.of(1, Map.of("c", "d")))));
+        assertThat(assertThrows(YamlerException.class, () -> parser.reset("b: *x").parse()).getMessage().startsWith("Unknown ref"), is(true));
+
+        final Yamler[] nesting = new Yamler[1]; // parses the value of a !!yaml tag with the same instance
+        nesting[0] = new Yamler(YamlerConfig.builder().userParseHandlers(Map.of("yaml", info -> nesting[0].parseYaml(String.valueOf(info.nextObject(false))).first())).build());
+        assertThat(nesting[0].parseYaml("a: !!yaml 'n: [1]'\nb: 2").first(), is(Map.of("a", Map.of("n", List.of(1)), "b", 2)));
+    }
+}
@@ -7,10 +7,14 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.experimental.SuperBuilder;
+import nl.rutilo.yamler.collections.DoubleList;
+import nl.rutilo.yamler.collections.IntList;
+import nl.rutilo.yamler.collections.LongList;
 import nl.rutilo.yamler.collections.StringKeyMap;
 import nl.rutilo.yamler.utils.Value;
 import nl.rutilo.yamler.yamler.annotations.CustomMapper;
 import nl.rutilo.yamler.yamler.annotations.YamlIgnoreCase;
+import nl.rutilo.yamler.yamler.annotations.YamlName;
 import nl.rutilo.yamler.yamler.exceptions.YamlerException;
 import org.junit.jupiter.api.Test;
 
@@ -63,6 +67,39 @@ class YamlerTest {
         assertThat(new Yamler().mapYamlToClass(json, TestClassWithConstructor.class), is(obj));
     }
     //</editor-fold>
+    //<editor-fold desc="Test record">
+    public record TestRecord(int a, String s, double d, List<Integer> ints) {}
+    public record TestRecordWithAnnotations(@YamlName("aName") int a, @YamlIgnoreCase String someText, TestRecord nested) {}
+    @Test void testRecord() {
+        final TestRecord obj = new TestRecord(123, "text", 12.5, List.of(1, 2, 3));
+        final String json = quoted("{`a`:123,`s`:`text`,`d`:12.5,`ints`:[1,2,3]}");
+        assertThat(Yamler.toJsonString(obj), is(json));
+        assertThat(new Yamler().mapYamlToClass(json, TestRecord.class), is(obj));
+        assertThat(new Yamler().mapYamlToClass("{a: 1}", TestRecord.class), is(new TestRecord(1, null, 0, null)));
+    }
+    @Test void testRecordWithAnnotations() {
+        final TestRecordWithAnnotations obj = new TestRecordWithAnnotations(1, "text", new TestRecord(2, "s", 3.5, List.of(4)));
+        final String yaml = "aName: 1\nSOMETEXT: text\nnested: { a: 2, s: s, d: 3.5, ints: [ 4 ] }";
+        assertThat(new Yamler().mapYamlToClass(yaml, TestRecordWithAnnotations.class), is(obj));
+    }
+    public record ValidatedRecord(int a) {
+        public ValidatedRecord { if(a < 0) throw new IllegalArgumentException("negative a"); }
+    }
+    public record FailingAccessorRecord(int a) {
+        @Override public int a() { throw new IllegalStateException("no a"); }
+    }
+    @Test void testRecordErrors() {
+        final Exception invalid = assertThrows(RuntimeException.class, () -> new Yamler().mapYamlToClass("a: -1", ValidatedRecord.class));
+        Throwable cause = invalid;
+        while(cause.getCause() != null && !(cause instanceof IllegalArgumentException)) cause = cause.getCause();
+        assertThat(cause.getMessage(), is("negative a"));
+
+        final Exception failing = assertThrows(RuntimeException.class, () -> Yamler.toJsonString(new FailingAccessorRecord(1)));
+        cause = failing;
+        while(cause.getCause() != null && !(cause instanceof IllegalStateException)) cause = cause.getCause();
+        assertThat(cause.getMessage(), is("no a"));
+    }
+    //</editor-fold>
     //<editor-fold desc="Test class with builder & public fields">
     @Builder
     @ToString
@@ -409,6 +446,31 @@ class YamlerTest {
     }
     //</editor-fold>
 
+    //<editor-fold desc="Test primitive lists">
+    public record TestPrimitiveArrays(int[] ints, long[] longs, double[] doubles, double[] intsAsDoubles, List<Object> mixed) {}
+    @Test void testPrimitiveLists() {
+        final Yamler yamler = new Yamler(YamlerConfig.builder().primitiveLists(true).build());
+        final String yaml = "ints: [1, 2, 3]\nlongs:\n  - 10000000000\n  - 20000000000\n"
+                          + "doubles: [1.5, .inf]\nintsAsDoubles: [1, 2]\nmixed: [1, 2.5, a]\nempty: []";
+        final Map<?,?> map = yamler.parseYaml(yaml).firstMap();
+        assertThat(map.get("ints") instanceof IntList, is(true));
+        assertThat(map.get("longs") instanceof LongList, is(true));
+        assertThat(map.get("doubles") instanceof DoubleList, is(true));
+        assertThat(map.get("ints"), is(List.of(1, 2, 3)));
+        assertThat(map.get("mixed"), is(List.of(1, 2.5, "a")));
+        assertThat(map.get("empty"), is(List.of()));
+        assertThat(Yamler.toJsonString(map.get("doubles")), is("[1.5,.inf]"));
+        assertThat(Yamler.toJsonString(map.get("longs"), 0), is("[ 10000000000, 20000000000 ]"));
+
+        final TestPrimitiveArrays arrays = yamler.mapYamlToClass(yaml, TestPrimitiveArrays.class);
+        assertThat(arrays.ints(), is(new int[] { 1, 2, 3 }));
+        assertThat(arrays.longs(), is(new long[] { 10000000000L, 20000000000L }));
+        assertThat(arrays.doubles(), is(new double[] { 1.5, Double.POSITIVE_INFINITY }));
+        assertThat(arrays.intsAsDoubles(), is(new double[] { 1, 2 }));
+        assertThat(new Yamler().parseYaml(yaml).firstMap().get("ints") instanceof IntList, is(false));
+    }
+    //</editor-fold>
+
     //<editor-fold desc="Test error output">
     public static class ClassThatCannotBeSerialized {
         public final Point p;
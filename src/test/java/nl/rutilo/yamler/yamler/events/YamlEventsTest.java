@@ -0,0 +1,70 @@
+package nl.rutilo.yamler.yamler.events;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import nl.rutilo.yamler.yamler.Yamler;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static nl.rutilo.yamler.testutils.IsMatcher.is;
+import static nl.rutilo.yamler.testutils.SilverAssert.assertThat;
+
+class YamlEventsTest {
+    public record Size(int width, int height) {}
+
+    private static List<RecordedEvent> record(Runnable work) throws IOException {
+        final Path file = Files.createTempFile("yamler", ".jfr");
+        try(final Recording recording = new Recording()) {
+            for(final String name : List.of("Parse", "Bind", "Serialize", "StrategyDiscovery")) {
+                recording.enable("nl.rutilo.yamler." + name).withoutThreshold();
+            }
+            recording.start();
+            work.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    private static RecordedEvent only(List<RecordedEvent> events, String name, Predicate<RecordedEvent> filter) {
+        final List<RecordedEvent> found = events.stream().filter(e -> e.getEventType().getName().equals("nl.rutilo.yamler." + name)).filter(filter).toList();
+        assertThat(name + " events: " + found, found.size(), is(1));
+        return found.get(0);
+    }
+
+    @Test void parsingBindingAndSerializingAreRecorded() throws IOException {
+        final Path yamlFile = Files.createTempFile("yamler", ".yaml");
+        try {
+            Files.writeString(yamlFile, "a: 1\n---\nb: 2\n");
+            final List<RecordedEvent> events = record(() -> {
+                new Yamler().parseYaml(yamlFile);
+                final Size size = new Yamler().mapYamlToClass("{ width: 3, height: 4 }", Size.class);
+                Yamler.toJsonString(size);
+            });
+
+            final RecordedEvent parse = only(events, "Parse", e -> e.getInt("documents") == 2);
+            assertThat(parse.getInt("chars"), is(14));
+            assertThat(parse.getString("source"), is(yamlFile.toString()));
+
+            final RecordedEvent bind = only(events, "Bind", e -> true);
+            assertThat(bind.getClass("type").getName(), is(Size.class.getName()));
+            assertThat(bind.getString("strategy"), is("RecordStrategy"));
+            assertThat(bind.getInt("fields"), is(2));
+
+            final RecordedEvent discovery = only(events, "StrategyDiscovery", e -> true);
+            assertThat(discovery.getString("strategy"), is("RecordStrategy"));
+
+            final RecordedEvent serialize = only(events, "Serialize", e -> true);
+            assertThat(serialize.getInt("chars"), is("{\"width\":3,\"height\":4}".length()));
+        } finally {
+            Files.deleteIfExists(yamlFile);
+        }
+    }
+}